@@ -4,7 +4,10 @@ import com.inmaytide.orbit.commons.configuration.GlobalProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author inmaytide
@@ -18,6 +21,28 @@ public class ApplicationProperties extends GlobalProperties {
 
     private List<String> enabledAccessSources;
 
+    private AccessTokenCache accessTokenCache = new AccessTokenCache();
+
+    private DisabledRefreshTokens disabledRefreshTokens = new DisabledRefreshTokens();
+
+    private RedisBatching redisBatching = new RedisBatching();
+
+    private TokenRenewal tokenRenewal = new TokenRenewal();
+
+    private Geolocation geolocation = new Geolocation();
+
+    private IpBlocklist ipBlocklist = new IpBlocklist();
+
+    private BlockingOperations blockingOperations = new BlockingOperations();
+
+    private AuthorizeRateLimit authorizeRateLimit = new AuthorizeRateLimit();
+
+    private LoginAudit loginAudit = new LoginAudit();
+
+    private ScanCode scanCode = new ScanCode();
+
+    private ClientAddress clientAddress = new ClientAddress();
+
     public List<String> getDisabledAccessSources() {
         return disabledAccessSources;
     }
@@ -33,4 +58,865 @@ public class ApplicationProperties extends GlobalProperties {
     public void setEnabledAccessSources(List<String> enabledAccessSources) {
         this.enabledAccessSources = enabledAccessSources;
     }
+
+    public AccessTokenCache getAccessTokenCache() {
+        return accessTokenCache;
+    }
+
+    public void setAccessTokenCache(AccessTokenCache accessTokenCache) {
+        this.accessTokenCache = accessTokenCache;
+    }
+
+    public DisabledRefreshTokens getDisabledRefreshTokens() {
+        return disabledRefreshTokens;
+    }
+
+    public void setDisabledRefreshTokens(DisabledRefreshTokens disabledRefreshTokens) {
+        this.disabledRefreshTokens = disabledRefreshTokens;
+    }
+
+    public RedisBatching getRedisBatching() {
+        return redisBatching;
+    }
+
+    public void setRedisBatching(RedisBatching redisBatching) {
+        this.redisBatching = redisBatching;
+    }
+
+    public TokenRenewal getTokenRenewal() {
+        return tokenRenewal;
+    }
+
+    public void setTokenRenewal(TokenRenewal tokenRenewal) {
+        this.tokenRenewal = tokenRenewal;
+    }
+
+    public Geolocation getGeolocation() {
+        return geolocation;
+    }
+
+    public void setGeolocation(Geolocation geolocation) {
+        this.geolocation = geolocation;
+    }
+
+    public IpBlocklist getIpBlocklist() {
+        return ipBlocklist;
+    }
+
+    public void setIpBlocklist(IpBlocklist ipBlocklist) {
+        this.ipBlocklist = ipBlocklist;
+    }
+
+    public BlockingOperations getBlockingOperations() {
+        return blockingOperations;
+    }
+
+    public void setBlockingOperations(BlockingOperations blockingOperations) {
+        this.blockingOperations = blockingOperations;
+    }
+
+    public AuthorizeRateLimit getAuthorizeRateLimit() {
+        return authorizeRateLimit;
+    }
+
+    public void setAuthorizeRateLimit(AuthorizeRateLimit authorizeRateLimit) {
+        this.authorizeRateLimit = authorizeRateLimit;
+    }
+
+    public LoginAudit getLoginAudit() {
+        return loginAudit;
+    }
+
+    public void setLoginAudit(LoginAudit loginAudit) {
+        this.loginAudit = loginAudit;
+    }
+
+    public ScanCode getScanCode() {
+        return scanCode;
+    }
+
+    public void setScanCode(ScanCode scanCode) {
+        this.scanCode = scanCode;
+    }
+
+    public ClientAddress getClientAddress() {
+        return clientAddress;
+    }
+
+    public void setClientAddress(ClientAddress clientAddress) {
+        this.clientAddress = clientAddress;
+    }
+
+    /**
+     * 网关本地缓存的 access_token 过期时间
+     */
+    public static class AccessTokenCache {
+
+        /**
+         * 是否启用本地缓存, 关闭后每次请求都会查询 Redis
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本地最多缓存多少个 access_token 的过期时间
+         */
+        private long maximumSize = 100_000;
+
+        /**
+         * 是否订阅 Redis keyspace notifications 以感知其他服务对 access_token 的修改,
+         * 需要 Redis 服务端开启 <code>notify-keyspace-events</code> (至少包含 <code>Kg$x</code>)
+         * <p>
+         * 关闭时 (默认) 网关只能收到发布到 {@value com.inmaytide.orbit.gateway.service.AccessTokenExpiryCache#INVALIDATION_CHANNEL} 频道的失效通知,
+         * 其他服务直接删除 Redis 中的 access_token (如认证服务中强制下线) 而没有发布到该频道时,
+         * 各网关节点会继续使用本地缓存的过期时间放行该 access_token, 直到其进入续期时间窗口或过期.
+         * 此类服务需要将被吊销的 access_token 发布到上述频道, 否则应开启本项.
+         * 关闭时 {@link com.inmaytide.orbit.gateway.filter.AuthenticationRequiredFilter} 不使用本地缓存, 总是查询 Redis
+         */
+        private boolean keyspaceNotifications = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public boolean isKeyspaceNotifications() {
+            return keyspaceNotifications;
+        }
+
+        public void setKeyspaceNotifications(boolean keyspaceNotifications) {
+            this.keyspaceNotifications = keyspaceNotifications;
+        }
+    }
+
+    /**
+     * 被强制下线的 refresh_token 在网关本地的副本
+     */
+    public static class DisabledRefreshTokens {
+
+        /**
+         * 是否在本地维护被强制下线的 refresh_token 副本,
+         * 依赖 Redis keyspace notifications, 需要 Redis 服务端开启 <code>notify-keyspace-events</code> (至少包含 <code>Kg$xe</code>);
+         * 服务端没有开启或无法读取该配置时不使用本地副本, 直接查询 Redis
+         */
+        private boolean replicated = false;
+
+        /**
+         * 全量重新同步的时间间隔, 用于修正因通知丢失导致的偏差
+         */
+        private Duration resyncInterval = Duration.ofMinutes(10);
+
+        public boolean isReplicated() {
+            return replicated;
+        }
+
+        public void setReplicated(boolean replicated) {
+            this.replicated = replicated;
+        }
+
+        public Duration getResyncInterval() {
+            return resyncInterval;
+        }
+
+        public void setResyncInterval(Duration resyncInterval) {
+            this.resyncInterval = resyncInterval;
+        }
+    }
+
+    /**
+     * 合并并发请求中的 Redis 查询
+     */
+    public static class RedisBatching {
+
+        /**
+         * 是否合并查询, 关闭时每次查询单独执行
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每批最多合并多少次查询, 达到该数量后立即执行
+         */
+        private int maxBatchSize = 64;
+
+        /**
+         * 查询最长等待多久后执行
+         */
+        private Duration maxWait = Duration.ofNanos(500_000);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    /**
+     * access_token 自动刷新
+     */
+    public static class TokenRenewal {
+
+        /**
+         * 是否在所有网关节点间协调刷新, 同一个 access_token 在整个集群中同时只会有一个节点调用刷新接口
+         */
+        private boolean distributed = true;
+
+        /**
+         * 执行刷新的节点持有刷新权的最长时间, 其他节点最多等待这么久
+         */
+        private Duration lease = Duration.ofSeconds(10);
+
+        private Proactive proactive = new Proactive();
+
+        public boolean isDistributed() {
+            return distributed;
+        }
+
+        public void setDistributed(boolean distributed) {
+            this.distributed = distributed;
+        }
+
+        public Duration getLease() {
+            return lease;
+        }
+
+        public void setLease(Duration lease) {
+            this.lease = lease;
+        }
+
+        public Proactive getProactive() {
+            return proactive;
+        }
+
+        public void setProactive(Proactive proactive) {
+            this.proactive = proactive;
+        }
+    }
+
+    /**
+     * 在后台提前刷新最近活跃的 access_token, 请求到达时直接使用已刷新的 access_token, 不再等待刷新接口
+     */
+    public static class Proactive {
+
+        private boolean enabled = false;
+
+        /**
+         * access_token 剩余有效时间小于该值时在后台刷新, 需要大于请求时触发刷新的时间窗口
+         */
+        private Duration ahead = Duration.ofSeconds(60);
+
+        /**
+         * 在 {@link #ahead} 的基础上随机提前的最大时间, 避免同一时刻签发的 access_token 集中刷新
+         */
+        private Duration jitter = Duration.ofSeconds(15);
+
+        /**
+         * 每秒最多调用多少次刷新接口
+         */
+        private int rate = 20;
+
+        /**
+         * 多久内没有请求的 access_token 不再跟踪, 也不再在后台刷新;
+         * 不能超过刷新结果的最短保留时间 {@value com.inmaytide.orbit.gateway.service.TokenRenewalCoordinator#TOKEN_TEMPORARY_STORE_MILLISECONDS}ms, 超过时按该值处理
+         */
+        private Duration activityWindow = Duration.ofSeconds(60);
+
+        /**
+         * 最多跟踪多少个 access_token
+         */
+        private long maximumTracked = 100_000;
+
+        /**
+         * 检查需要刷新的 access_token 的时间间隔
+         */
+        private Duration interval = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getAhead() {
+            return ahead;
+        }
+
+        public void setAhead(Duration ahead) {
+            this.ahead = ahead;
+        }
+
+        public Duration getJitter() {
+            return jitter;
+        }
+
+        public void setJitter(Duration jitter) {
+            this.jitter = jitter;
+        }
+
+        public int getRate() {
+            return rate;
+        }
+
+        public void setRate(int rate) {
+            this.rate = rate;
+        }
+
+        public Duration getActivityWindow() {
+            return activityWindow;
+        }
+
+        public void setActivityWindow(Duration activityWindow) {
+            this.activityWindow = activityWindow;
+        }
+
+        public long getMaximumTracked() {
+            return maximumTracked;
+        }
+
+        public void setMaximumTracked(long maximumTracked) {
+            this.maximumTracked = maximumTracked;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * IP 地址归属地查询
+     */
+    public static class Geolocation {
+
+        /**
+         * ip2region xdb 文件路径, 文件变化后自动重新加载; 未配置时使用 classpath 中的 <code>ip2region.xdb</code>, 不会重新加载
+         */
+        private String database;
+
+        /**
+         * 检查 {@link #database} 是否变化的时间间隔
+         */
+        private Duration reloadInterval = Duration.ofMinutes(1);
+
+        /**
+         * 本地最多缓存多少个 IP 地址的查询结果
+         */
+        private long cacheSize = 100_000;
+
+        public String getDatabase() {
+            return database;
+        }
+
+        public void setDatabase(String database) {
+            this.database = database;
+        }
+
+        public Duration getReloadInterval() {
+            return reloadInterval;
+        }
+
+        public void setReloadInterval(Duration reloadInterval) {
+            this.reloadInterval = reloadInterval;
+        }
+
+        public long getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(long cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+    }
+
+    /**
+     * 网关全局的 IP 黑名单, 名单中的地址访问任何路由都会被拒绝. 只支持 IPv4 (及 IPv4-mapped IPv6) 地址,
+     * 原生 IPv6 客户端不受黑名单限制; 客户端地址的识别见 {@link ClientAddress}
+     */
+    public static class IpBlocklist {
+
+        private boolean enabled = false;
+
+        /**
+         * 黑名单文件路径, 每行一个 <code>a.b.c.d</code>, <code>a.b.c.d/n</code> 或 <code>a.b.c.d-e.f.g.h</code>, <code>#</code> 开头的行为注释;
+         * 文件变化后自动重新加载
+         */
+        private String file;
+
+        /**
+         * 直接在配置中(如 Nacos)维护的黑名单, 格式同 {@link #file}
+         */
+        private List<String> ranges;
+
+        /**
+         * 检查 {@link #file} 是否变化的时间间隔
+         */
+        private Duration reloadInterval = Duration.ofMinutes(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public List<String> getRanges() {
+            return ranges;
+        }
+
+        public void setRanges(List<String> ranges) {
+            this.ranges = ranges;
+        }
+
+        public Duration getReloadInterval() {
+            return reloadInterval;
+        }
+
+        public void setReloadInterval(Duration reloadInterval) {
+            this.reloadInterval = reloadInterval;
+        }
+    }
+
+    /**
+     * 登录, 注销等处理器中阻塞调用(认证服务接口, Redis, 消息队列)的执行方式
+     */
+    public static class BlockingOperations {
+
+        /**
+         * 执行阻塞调用的线程, 不影响网关代理请求使用的 Netty 线程
+         */
+        private Mode mode = Mode.BOUNDED_ELASTIC;
+
+        /**
+         * 每种操作同时执行的最大数量, 超出的调用排队等待
+         */
+        private int maxConcurrency = 64;
+
+        /**
+         * 单独设置某种操作同时执行的最大数量, 如 <code>login: 32</code>
+         */
+        private Map<String, Integer> concurrency = new HashMap<>();
+
+        /**
+         * 每种操作最多排队等待的调用数量, 超出时直接拒绝; 为 0 时不排队, 没有空闲的执行数就直接拒绝
+         */
+        private int maxQueued = 1000;
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public Map<String, Integer> getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(Map<String, Integer> concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public enum Mode {
+
+            /**
+             * {@link reactor.core.scheduler.Schedulers#boundedElastic()}
+             */
+            BOUNDED_ELASTIC,
+
+            /**
+             * 每个调用使用一个虚拟线程
+             */
+            VIRTUAL_THREADS
+
+        }
+    }
+
+    /**
+     * <code>/authorize/**</code> 接口的限流, 按客户端 IP 和登录用户名分别限制
+     */
+    public static class AuthorizeRateLimit {
+
+        private boolean enabled = false;
+
+        /**
+         * 是否在本地限流通过后再通过 Redis 在所有网关节点间共同限流
+         */
+        private boolean distributed = false;
+
+        /**
+         * 每个网关节点最多记录多少个 IP 或用户名的限流状态
+         */
+        private long maximumTracked = 100_000;
+
+        /**
+         * 同一个客户端 IP 访问所有 <code>/authorize/**</code> 接口的限制
+         */
+        private Limit ipAddress = new Limit(60, Duration.ofMinutes(1));
+
+        /**
+         * 同一个用户名登录的限制
+         */
+        private Limit username = new Limit(10, Duration.ofMinutes(1));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isDistributed() {
+            return distributed;
+        }
+
+        public void setDistributed(boolean distributed) {
+            this.distributed = distributed;
+        }
+
+        public long getMaximumTracked() {
+            return maximumTracked;
+        }
+
+        public void setMaximumTracked(long maximumTracked) {
+            this.maximumTracked = maximumTracked;
+        }
+
+        public Limit getIpAddress() {
+            return ipAddress;
+        }
+
+        public void setIpAddress(Limit ipAddress) {
+            this.ipAddress = ipAddress;
+        }
+
+        public Limit getUsername() {
+            return username;
+        }
+
+        public void setUsername(Limit username) {
+            this.username = username;
+        }
+
+        /**
+         * 每 {@link #period} 内最多 {@link #capacity} 次, 令牌匀速补充, 允许短时间内一次用完
+         */
+        public static class Limit {
+
+            private int capacity;
+
+            private Duration period;
+
+            public Limit() {
+            }
+
+            public Limit(int capacity, Duration period) {
+                this.capacity = capacity;
+                this.period = period;
+            }
+
+            public int getCapacity() {
+                return capacity;
+            }
+
+            public void setCapacity(int capacity) {
+                this.capacity = capacity;
+            }
+
+            public Duration getPeriod() {
+                return period;
+            }
+
+            public void setPeriod(Duration period) {
+                this.period = period;
+            }
+        }
+    }
+
+    /**
+     * 登录失败的操作日志
+     */
+    public static class LoginAudit {
+
+        /**
+         * 同一用户名, 同一 IP, 相同错误的登录失败在该时间内只立即记录第一次, 其余的在时间结束时合并为一条记录; 为 <code>0</code> 时每次失败都记录
+         */
+        private Duration aggregationWindow = Duration.ofMinutes(1);
+
+        /**
+         * 同时合并的记录数上限, 超出后新的失败只按错误合并
+         */
+        private int maximumAggregated = 10_000;
+
+        public Duration getAggregationWindow() {
+            return aggregationWindow;
+        }
+
+        public void setAggregationWindow(Duration aggregationWindow) {
+            this.aggregationWindow = aggregationWindow;
+        }
+
+        public int getMaximumAggregated() {
+            return maximumAggregated;
+        }
+
+        public void setMaximumAggregated(int maximumAggregated) {
+            this.maximumAggregated = maximumAggregated;
+        }
+    }
+
+    /**
+     * 扫码登录
+     */
+    public static class ScanCode {
+
+        /**
+         * 当前网关节点的标识, 只能包含字母, 数字, <code>-</code> 和 <code>_</code>; 为空时启动时随机生成.
+         * 扫码结果通过该标识路由到持有对应 WebSocket 会话的节点
+         */
+        private String nodeId;
+
+        /**
+         * 每个节点同时保持的 WebSocket 会话数量上限, 超出时直接关闭新的连接
+         */
+        private int maximumSessions = 100_000;
+
+        /**
+         * 每个会话等待发送的消息数量上限, 客户端不读取时消息积压到该数量后按 {@link #overflowPolicy} 处理
+         */
+        private int outboundBuffer = 16;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.CLOSE;
+
+        /**
+         * 服务端发送 ping 的间隔, 超过两个间隔没有收到客户端的任何帧 (包括 pong) 时认为连接已经断开
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(30);
+
+        /**
+         * 客户端超过该时间没有请求新的二维码时关闭会话, 为空时与二维码的有效期一致
+         */
+        private Duration idleTimeout;
+
+        /**
+         * 对二维码内容签名的 HMAC-SHA256 密钥, 键为密钥标识 (字母, 数字, <code>-</code> 和 <code>_</code>), 值至少 32 个字节;
+         * 为空时二维码内容仍使用 RSA 加密. 所有节点必须配置相同的密钥
+         * <p>
+         * 轮换密钥: 先在所有节点增加新的密钥, 再将 {@link #signingKeyId} 改为新的标识, 旧密钥在二维码有效期过后删除
+         */
+        private Map<String, String> signingKeys = new HashMap<>();
+
+        /**
+         * 签名新二维码使用的密钥标识, 只配置了一个密钥时可以为空
+         */
+        private String signingKeyId;
+
+        /**
+         * 同一个会话两次请求新二维码的最小间隔, 间隔内的请求被忽略
+         */
+        private Duration codeInterval = Duration.ofSeconds(1);
+
+        /**
+         * 每个扫码结果队列的消费者数量
+         */
+        private int listenerConcurrency = 2;
+
+        /**
+         * 每个消费者未确认的扫码结果数量上限, 结果推送到 WebSocket 后才确认, 即每个消费者同时处理的登录数量
+         */
+        private int listenerPrefetch = 32;
+
+        /**
+         * 登录被拒绝 (排队已满) 的扫码结果延迟多久后放回队列
+         */
+        private Duration requeueDelay = Duration.ofSeconds(1);
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public int getMaximumSessions() {
+            return maximumSessions;
+        }
+
+        public void setMaximumSessions(int maximumSessions) {
+            this.maximumSessions = maximumSessions;
+        }
+
+        public int getOutboundBuffer() {
+            return outboundBuffer;
+        }
+
+        public void setOutboundBuffer(int outboundBuffer) {
+            this.outboundBuffer = outboundBuffer;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public Duration getHeartbeatInterval() {
+            return heartbeatInterval;
+        }
+
+        public void setHeartbeatInterval(Duration heartbeatInterval) {
+            this.heartbeatInterval = heartbeatInterval;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Map<String, String> getSigningKeys() {
+            return signingKeys;
+        }
+
+        public void setSigningKeys(Map<String, String> signingKeys) {
+            this.signingKeys = signingKeys;
+        }
+
+        public String getSigningKeyId() {
+            return signingKeyId;
+        }
+
+        public void setSigningKeyId(String signingKeyId) {
+            this.signingKeyId = signingKeyId;
+        }
+
+        public Duration getCodeInterval() {
+            return codeInterval;
+        }
+
+        public void setCodeInterval(Duration codeInterval) {
+            this.codeInterval = codeInterval;
+        }
+
+        public int getListenerConcurrency() {
+            return listenerConcurrency;
+        }
+
+        public void setListenerConcurrency(int listenerConcurrency) {
+            this.listenerConcurrency = listenerConcurrency;
+        }
+
+        public int getListenerPrefetch() {
+            return listenerPrefetch;
+        }
+
+        public void setListenerPrefetch(int listenerPrefetch) {
+            this.listenerPrefetch = listenerPrefetch;
+        }
+
+        public Duration getRequeueDelay() {
+            return requeueDelay;
+        }
+
+        public void setRequeueDelay(Duration requeueDelay) {
+            this.requeueDelay = requeueDelay;
+        }
+
+        public enum OverflowPolicy {
+
+            /**
+             * 丢弃新的消息, 保留会话
+             */
+            DROP,
+
+            /**
+             * 关闭会话, 客户端重新连接后获取新的二维码
+             */
+            CLOSE
+
+        }
+    }
+
+    /**
+     * 识别客户端地址, 用于 IP 黑名单和限流
+     */
+    public static class ClientAddress {
+
+        /**
+         * 可信的反向代理地址, 格式同 {@link IpBlocklist#getRanges()}. 只有请求直接来自这些地址时才读取
+         * <code>X-Forwarded-For</code> 等请求头, 否则以连接的地址为客户端地址; 为空时不信任任何请求头
+         */
+        private List<String> trustedProxies;
+
+        public List<String> getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(List<String> trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+    }
 }
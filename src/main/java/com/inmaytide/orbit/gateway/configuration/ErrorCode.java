@@ -16,6 +16,9 @@ public enum ErrorCode implements com.inmaytide.exception.web.domain.ErrorCode {
     E_0x00200008("0x00200008", "生成验证码时发生错误"),
     E_0x00200009("0x00200009", "用户名、密码、登录平台等请求参数不能为空"),
     E_0x00200010("0x00200010", "用户名或密码输入错误"),
+    E_0x00200011("0x00200011", "您尚未登录或登录已过期, 请重新登录"),
+    E_0x00200012("0x00200012", "系统繁忙, 请稍后再试"),
+    E_0x00200013("0x00200013", "二维码内容不正确"),
     ;
 
     private final String value;
@@ -1,11 +1,17 @@
 package com.inmaytide.orbit.gateway.configuration;
 
 import com.inmaytide.orbit.gateway.handler.LoginWithScanCodeHandler;
+import com.inmaytide.orbit.gateway.service.GatewayNode;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -16,6 +22,8 @@ import org.springframework.context.annotation.Configuration;
 @Configuration("customizedRabbitMQConfiguration")
 public class RabbitMQConfiguration {
 
+    public static final String SCAN_CODE_LISTENER_FACTORY = "scanCodeListenerContainerFactory";
+
     @Bean("scanCodeResQueue")
     public Queue scanCodeResQueue() {
         return new Queue(LoginWithScanCodeHandler.ROUTE_KEY_SCAN_CODE_LOGIN_RES, true);
@@ -27,4 +35,40 @@ public class RabbitMQConfiguration {
         return BindingBuilder.bind(queue).to(directExchange).with(LoginWithScanCodeHandler.ROUTE_KEY_SCAN_CODE_LOGIN_RES);
     }
 
+    /**
+     * 当前节点专用的扫码结果队列, 节点下线后自动删除
+     */
+    @Bean("scanCodeResNodeQueue")
+    public Queue scanCodeResNodeQueue(GatewayNode node) {
+        return new Queue(node.getRoutingKey(), false, false, true);
+    }
+
+    @Bean("bindingScanCodeResNodeQueue")
+    public Binding bindingScanCodeResNodeQueue(@Qualifier("scanCodeResNodeQueue") Queue queue,
+                                               @Qualifier("directExchange") DirectExchange directExchange,
+                                               GatewayNode node) {
+        return BindingBuilder.bind(queue).to(directExchange).with(node.getRoutingKey());
+    }
+
+    /**
+     * 扫码结果的监听容器, 手动确认: 结果推送到 WebSocket 后才确认, 未确认的数量由 prefetch 限制
+     * <p>
+     * 手动确认时容器不会拒绝监听方法之外失败的消息 (例如消息转换失败), 统一拒绝且不再放回队列, 避免未确认的消息占满 prefetch
+     */
+    @Bean(SCAN_CODE_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory scanCodeListenerContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                                 ConnectionFactory connectionFactory,
+                                                                                 ApplicationProperties properties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConcurrentConsumers(properties.getScanCode().getListenerConcurrency());
+        factory.setMaxConcurrentConsumers(properties.getScanCode().getListenerConcurrency());
+        factory.setPrefetchCount(properties.getScanCode().getListenerPrefetch());
+        factory.setErrorHandler(e -> {
+            throw new AmqpRejectAndDontRequeueException("Failed to handle scan code result", true, e);
+        });
+        return factory;
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.inmaytide.orbit.gateway.configuration;
 
+import com.inmaytide.orbit.gateway.filter.AuthorizeRateLimitFilter;
 import com.inmaytide.orbit.gateway.handler.CaptchaHandler;
 import com.inmaytide.orbit.gateway.handler.LoginWithScanCodeHandler;
 import com.inmaytide.orbit.gateway.handler.LoginWithUsernameAndPasswordHandler;
@@ -36,11 +37,14 @@ public class WebConfiguration {
 
     private final LogoutHandler logoutHandler;
 
-    public WebConfiguration(LoginWithScanCodeHandler loginWithScanCodeHandler, LoginWithUsernameAndPasswordHandler loginWithUsernameAndPasswordHandler, CaptchaHandler captchaHandler, LogoutHandler logoutHandler) {
+    private final AuthorizeRateLimitFilter rateLimitFilter;
+
+    public WebConfiguration(LoginWithScanCodeHandler loginWithScanCodeHandler, LoginWithUsernameAndPasswordHandler loginWithUsernameAndPasswordHandler, CaptchaHandler captchaHandler, LogoutHandler logoutHandler, AuthorizeRateLimitFilter rateLimitFilter) {
         this.loginWithScanCodeHandler = loginWithScanCodeHandler;
         this.loginWithUsernameAndPasswordHandler = loginWithUsernameAndPasswordHandler;
         this.captchaHandler = captchaHandler;
         this.logoutHandler = logoutHandler;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -61,7 +65,8 @@ public class WebConfiguration {
                 .andRoute(RequestPredicates.POST("/authorize/scan-code"), loginWithScanCodeHandler::validateScanCode)
                 .andRoute(RequestPredicates.DELETE("/authorize/logout"), logoutHandler::logout)
                 .andRoute(RequestPredicates.POST("/authorize/captcha"), captchaHandler::getCaptcha)
-                .andRoute(RequestPredicates.POST("/authorize/captcha/validate"), captchaHandler::validate);
+                .andRoute(RequestPredicates.POST("/authorize/captcha/validate"), captchaHandler::validate)
+                .filter(rateLimitFilter);
     }
 
     @Bean
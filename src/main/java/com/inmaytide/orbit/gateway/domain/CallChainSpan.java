@@ -0,0 +1,73 @@
+package com.inmaytide.orbit.gateway.domain;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * 网关在一次请求的调用链中所处的节点, 保存在请求属性 {@link #ATTRIBUTE} 中
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public class CallChainSpan {
+
+    public static final String ATTRIBUTE = CallChainSpan.class.getName();
+
+    /**
+     * 写入 {@link com.inmaytide.orbit.commons.constants.Constants.HttpHeaderNames#CALL_CHAIN} 的接口调用链标识
+     */
+    private final String callChain;
+
+    private final String traceId;
+
+    private final String spanId;
+
+    /**
+     * 调用方通过 <code>traceparent</code> 传入的上级节点标识, 调用方未传入时为空
+     */
+    @Nullable
+    private final String parentSpanId;
+
+    /**
+     * 网关开始处理请求的时间, {@link System#nanoTime()}
+     */
+    private final long startNanos;
+
+    public CallChainSpan(String callChain, String traceId, String spanId, @Nullable String parentSpanId, long startNanos) {
+        this.callChain = callChain;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.startNanos = startNanos;
+    }
+
+    public String getCallChain() {
+        return callChain;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    @Nullable
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CallChainSpan{" +
+                "callChain='" + callChain + '\'' +
+                ", traceId='" + traceId + '\'' +
+                ", spanId='" + spanId + '\'' +
+                ", parentSpanId='" + parentSpanId + '\'' +
+                '}';
+    }
+}
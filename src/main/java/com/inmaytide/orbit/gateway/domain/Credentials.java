@@ -4,8 +4,8 @@ import com.inmaytide.exception.web.BadCredentialsException;
 import com.inmaytide.orbit.commons.constants.Bool;
 import com.inmaytide.orbit.commons.constants.Constants;
 import com.inmaytide.orbit.commons.constants.Platforms;
-import com.inmaytide.orbit.commons.utils.CodecUtils;
 import com.inmaytide.orbit.gateway.configuration.ErrorCode;
+import com.inmaytide.orbit.gateway.service.CredentialCipher;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import org.apache.commons.lang3.StringUtils;
@@ -48,6 +48,8 @@ public class Credentials implements Serializable {
     @Schema(title = "验证码验证信息")
     private CaptchaValidate captcha;
 
+    private transient String decryptedPassword;
+
     public void validate() {
         if (StringUtils.isBlank(username)
                 || StringUtils.isBlank(password)
@@ -64,9 +66,21 @@ public class Credentials implements Serializable {
         this.username = username;
     }
 
+    /**
+     * 返回解密后的密码, 只在第一次调用时解密
+     */
     public String getPassword() {
+        String decrypted = decryptedPassword;
+        if (decrypted == null) {
+            decrypted = decryptPassword();
+            decryptedPassword = decrypted;
+        }
+        return decrypted;
+    }
+
+    private String decryptPassword() {
         try {
-            return CodecUtils.decrypt(password, CodecUtils.RSA_PRIVATE_KEY);
+            return CredentialCipher.decrypt(password);
         } catch (Exception e) {
             if (log.isDebugEnabled()) {
                 log.error("Password of User{username = {}} decryption failed, Cause by: ", getUsername(), e);
@@ -79,6 +93,7 @@ public class Credentials implements Serializable {
 
     public void setPassword(String password) {
         this.password = password;
+        this.decryptedPassword = null;
     }
 
     public boolean isRememberMe() {
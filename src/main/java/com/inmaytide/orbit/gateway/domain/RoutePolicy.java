@@ -0,0 +1,103 @@
+package com.inmaytide.orbit.gateway.domain;
+
+import java.util.Map;
+
+/**
+ * 路由在网关全局过滤器中的处理策略, 在路由刷新时根据路由元数据(可通过 Nacos 配置)计算:
+ * <pre>
+ * spring.cloud.gateway.routes:
+ *   - id: static
+ *     uri: lb://static
+ *     metadata:
+ *       skip-token-renewal: true
+ *       skip-forced-logout-check: true
+ *       skip-call-chain: true
+ * </pre>
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public class RoutePolicy {
+
+    public static final String AUTHENTICATION_REQUIRED = "authentication-required";
+
+    public static final String SKIP_TOKEN_RENEWAL = "skip-token-renewal";
+
+    public static final String SKIP_FORCED_LOGOUT_CHECK = "skip-forced-logout-check";
+
+    public static final String SKIP_CALL_CHAIN = "skip-call-chain";
+
+    /**
+     * 没有匹配到路由或路由未配置任何元数据时使用的策略
+     */
+    public static final RoutePolicy DEFAULT = new RoutePolicy(false, false, false, false);
+
+    /**
+     * 是否必须携带有效的 access_token
+     */
+    private final boolean authenticationRequired;
+
+    /**
+     * 是否跳过即将过期的 access_token 的自动刷新
+     */
+    private final boolean skipTokenRenewal;
+
+    /**
+     * 是否跳过 refresh_token 是否已被强制下线的检查
+     */
+    private final boolean skipForcedLogoutCheck;
+
+    /**
+     * 是否跳过接口调用链标识的生成
+     */
+    private final boolean skipCallChain;
+
+    public RoutePolicy(boolean authenticationRequired, boolean skipTokenRenewal, boolean skipForcedLogoutCheck, boolean skipCallChain) {
+        this.authenticationRequired = authenticationRequired;
+        this.skipTokenRenewal = skipTokenRenewal;
+        this.skipForcedLogoutCheck = skipForcedLogoutCheck;
+        this.skipCallChain = skipCallChain;
+    }
+
+    public static RoutePolicy of(Map<String, Object> metadata) {
+        if (metadata.isEmpty()) {
+            return DEFAULT;
+        }
+        return new RoutePolicy(
+                isTrue(metadata, AUTHENTICATION_REQUIRED),
+                isTrue(metadata, SKIP_TOKEN_RENEWAL),
+                isTrue(metadata, SKIP_FORCED_LOGOUT_CHECK),
+                isTrue(metadata, SKIP_CALL_CHAIN)
+        );
+    }
+
+    private static boolean isTrue(Map<String, Object> metadata, String key) {
+        return Boolean.parseBoolean(String.valueOf(metadata.get(key)));
+    }
+
+    public boolean isAuthenticationRequired() {
+        return authenticationRequired;
+    }
+
+    public boolean isSkipTokenRenewal() {
+        return skipTokenRenewal;
+    }
+
+    public boolean isSkipForcedLogoutCheck() {
+        return skipForcedLogoutCheck;
+    }
+
+    public boolean isSkipCallChain() {
+        return skipCallChain;
+    }
+
+    @Override
+    public String toString() {
+        return "RoutePolicy{" +
+                "authenticationRequired=" + authenticationRequired +
+                ", skipTokenRenewal=" + skipTokenRenewal +
+                ", skipForcedLogoutCheck=" + skipForcedLogoutCheck +
+                ", skipCallChain=" + skipCallChain +
+                '}';
+    }
+}
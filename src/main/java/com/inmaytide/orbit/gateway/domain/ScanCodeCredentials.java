@@ -1,7 +1,8 @@
 package com.inmaytide.orbit.gateway.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.inmaytide.orbit.commons.utils.CodecUtils;
+import com.inmaytide.orbit.gateway.service.CredentialCipher;
+import com.inmaytide.orbit.gateway.service.ScanCodeSigner;
 import io.swagger.v3.oas.annotations.media.Schema;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -35,25 +36,50 @@ public class ScanCodeCredentials implements Serializable {
     @JsonIgnore
     private Instant expiry;
 
+    @JsonIgnore
+    private transient boolean decoded;
+
     public String getContent() {
         return content;
     }
 
+    /**
+     * 二维码内容在第一次读取 {@link #getSessionId()}, {@link #getCode()} 或 {@link #getExpiry()} 时才解密,
+     * 使反序列化请求体时不在 Netty 线程上执行 RSA 解密; 内容不正确时这些方法抛出 {@link IllegalArgumentException}
+     */
     public void setContent(String content) {
         this.content = content;
+        this.decoded = false;
+    }
+
+    private void decode() {
+        if (decoded) {
+            return;
+        }
         try {
-            String[] values = StringUtils.split(CodecUtils.decrypt(content, CodecUtils.RSA_PRIVATE_KEY), ".");
-            this.sessionId = values[0];
-            this.code = values[1];
-            this.expiry = Instant.ofEpochMilli(NumberUtils.createLong(values[2]));
+            String[] values = StringUtils.split(CredentialCipher.decrypt(content), ".");
             if (values.length != 3) { // 二维码内容不正确
                 throw new IllegalArgumentException(content);
             }
+            this.sessionId = values[0];
+            this.code = values[1];
+            this.expiry = Instant.ofEpochMilli(NumberUtils.createLong(values[2]));
+            this.decoded = true;
         } catch (Exception e) {
             throw new IllegalArgumentException(content);
         }
     }
 
+    /**
+     * 二维码内容已由 {@link ScanCodeSigner#verify(ScanCodeCredentials)} 验证, 不再解密
+     */
+    public void verified(String sessionId, String code, Instant expiry) {
+        this.sessionId = sessionId;
+        this.code = code;
+        this.expiry = expiry;
+        this.decoded = true;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -63,23 +89,27 @@ public class ScanCodeCredentials implements Serializable {
     }
 
     public String getSessionId() {
+        decode();
         return sessionId;
     }
 
     public String getCode() {
+        decode();
         return code;
     }
 
     public Instant getExpiry() {
+        decode();
         return expiry;
     }
 
     public void setExpiry(Instant expiry) {
+        decode();
         this.expiry = expiry;
     }
 
     public boolean isExpired() {
-        return Instant.now().isAfter(expiry);
+        return Instant.now().isAfter(getExpiry());
     }
 
     @Override
@@ -33,10 +33,14 @@ public class ScanCodeResult implements Serializable {
 
     private String refreshToken;
 
+    @Schema(title = "网关收到扫码请求的时间 (毫秒时间戳)")
+    private Long scannedAt;
+
     public static ScanCodeResult withCredentials(ScanCodeCredentials credentials) {
         ScanCodeResult res = new ScanCodeResult();
         res.setSessionId(credentials.getSessionId());
         res.setUsername(credentials.getUsername());
+        res.setScannedAt(System.currentTimeMillis());
         return res;
     }
 
@@ -88,6 +92,14 @@ public class ScanCodeResult implements Serializable {
         this.refreshToken = refreshToken;
     }
 
+    public Long getScannedAt() {
+        return scannedAt;
+    }
+
+    public void setScannedAt(Long scannedAt) {
+        this.scannedAt = scannedAt;
+    }
+
     public ScanCodeResult failure(ErrorCode errorCode) {
         this.result = "failure";
         this.message = errorCode.description();
@@ -0,0 +1,70 @@
+package com.inmaytide.orbit.gateway.domain;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * 一次请求所携带的 access_token/refresh_token 在网关中的状态
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public class TokenState {
+
+    public static final TokenState NONE = new TokenState(false, 0, null);
+
+    /**
+     * access_token 没有设置过期时间 (Redis <code>TTL</code> 返回 <code>-1</code>)
+     */
+    public static final long NEVER_EXPIRES = -1;
+
+    /**
+     * refresh_token 是否已被强制下线
+     */
+    private final boolean disabled;
+
+    /**
+     * access_token 剩余有效时间(秒), access_token 不存在时为 <code>0</code>, 没有设置过期时间时为 {@link #NEVER_EXPIRES}
+     */
+    private final long expire;
+
+    /**
+     * access_token 在最近被刷新过时, 刷新后的 access_token
+     */
+    @Nullable
+    private final String renewedAccessToken;
+
+    public TokenState(boolean disabled, long expire, @Nullable String renewedAccessToken) {
+        this.disabled = disabled;
+        this.expire = expire;
+        this.renewedAccessToken = renewedAccessToken;
+    }
+
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    public long getExpire() {
+        return expire;
+    }
+
+    /**
+     * access_token 是否仍存在于 {@link com.inmaytide.orbit.commons.constants.Constants.CacheNames#ACCESS_TOKEN_STORE} 中
+     */
+    public boolean isAccessTokenValid() {
+        return expire > 0 || expire == NEVER_EXPIRES;
+    }
+
+    @Nullable
+    public String getRenewedAccessToken() {
+        return renewedAccessToken;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenState{" +
+                "disabled=" + disabled +
+                ", expire=" + expire +
+                ", renewed=" + (renewedAccessToken != null) +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import com.inmaytide.exception.web.UnauthorizedException;
+import com.inmaytide.orbit.gateway.configuration.ErrorCode;
+import com.inmaytide.orbit.gateway.domain.RoutePolicy;
+import com.inmaytide.orbit.gateway.handler.AbstractHandler;
+import com.inmaytide.orbit.gateway.service.RoutePolicies;
+import com.inmaytide.orbit.gateway.service.TokenStateService;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 在网关拒绝访问受保护路由的未登录请求, 避免这些请求转发到下游服务后再由各个服务自行查询 Redis 拒绝
+ * <p>
+ * 路由元数据中 {@value RoutePolicy#AUTHENTICATION_REQUIRED} 为 <code>true</code> 时, 请求必须携带仍存在于
+ * {@link com.inmaytide.orbit.commons.constants.Constants.CacheNames#ACCESS_TOKEN_STORE} 中的 access_token, 否则直接响应 401:
+ * <pre>
+ * spring.cloud.gateway.routes:
+ *   - id: system
+ *     uri: lb://system
+ *     metadata:
+ *       authentication-required: true
+ * </pre>
+ * 在 {@link RenewAccessTokenHandler} 之后执行, 即将过期的 access_token 已经被替换为刷新后的 access_token;
+ * access_token 是否有效通过 {@link TokenStateService#resolveAccessToken(String)} 查询, 只有本地缓存能感知所有吊销时才使用本地缓存
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class AuthenticationRequiredFilter extends AbstractHandler implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthenticationRequiredFilter.class);
+
+    private final TokenStateService tokenStates;
+
+    private final RoutePolicies routePolicies;
+
+    public AuthenticationRequiredFilter(TokenStateService tokenStates, RoutePolicies routePolicies) {
+        this.tokenStates = tokenStates;
+        this.routePolicies = routePolicies;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!routePolicies.get(exchange).isAuthenticationRequired()) {
+            return chain.filter(exchange);
+        }
+        String accessToken = getAccessToken(exchange);
+        if (StringUtils.isBlank(accessToken)) {
+            log.debug("Rejected the request to \"{}\" without access token", exchange.getRequest().getPath());
+            return Mono.error(new UnauthorizedException(ErrorCode.E_0x00200011));
+        }
+        return tokenStates.resolveAccessToken(accessToken)
+                .flatMap(state -> {
+                    if (!state.isAccessTokenValid()) {
+                        log.debug("Rejected the request to \"{}\" with expired access token \"{}\"", exchange.getRequest().getPath(), accessToken);
+                        return Mono.error(new UnauthorizedException(ErrorCode.E_0x00200011));
+                    }
+                    return chain.filter(exchange);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return Integer.MIN_VALUE + 3;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import com.inmaytide.orbit.gateway.service.AuthorizeRateLimiter;
+import com.inmaytide.orbit.gateway.service.ClientAddressResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * 按客户端 IP 限制 {@link com.inmaytide.orbit.gateway.configuration.WebConfiguration#routers()} 中所有接口的访问频率
+ * <p>
+ * 在读取请求体之前执行, 被限流的请求直接响应 429 且不包含响应体, 不创建异常对象;
+ * 客户端地址由 {@link ClientAddressResolver} 识别, 伪造 <code>X-Forwarded-For</code> 不能获得新的令牌桶;
+ * 按用户名的限流需要先读取请求体, 由各处理器在解密和调用认证服务之前执行
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class AuthorizeRateLimitFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizeRateLimitFilter.class);
+
+    private final AuthorizeRateLimiter rateLimiter;
+
+    private final ClientAddressResolver clientAddresses;
+
+    public AuthorizeRateLimitFilter(AuthorizeRateLimiter rateLimiter, ClientAddressResolver clientAddresses) {
+        this.rateLimiter = rateLimiter;
+        this.clientAddresses = clientAddresses;
+    }
+
+    @Override
+    public @NonNull Mono<ServerResponse> filter(@NonNull ServerRequest request, @NonNull HandlerFunction<ServerResponse> next) {
+        if (!rateLimiter.isEnabled()) {
+            return next.handle(request);
+        }
+        String ipAddress = clientAddresses.resolve(request.exchange().getRequest());
+        return rateLimiter.tryAcquireByIpAddress(ipAddress).flatMap(allowed -> {
+            if (allowed) {
+                return next.handle(request);
+            }
+            log.debug("Request to \"{}\" from \"{}\" was rate limited", request.path(), ipAddress);
+            return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        });
+    }
+
+}
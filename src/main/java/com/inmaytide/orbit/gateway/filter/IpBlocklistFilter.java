@@ -0,0 +1,61 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import com.inmaytide.orbit.gateway.service.ClientAddressResolver;
+import com.inmaytide.orbit.gateway.service.IpAddresses;
+import com.inmaytide.orbit.gateway.service.IpBlocklist;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 拒绝来自 {@link IpBlocklist} 中地址的请求, 在 {@link RenewAccessTokenHandler} 之前执行, 被拒绝的请求不会访问 Redis
+ * <p>
+ * 直接响应 403 且不包含响应体, 不创建异常对象, 尽量降低被拒绝的请求的处理成本.
+ * 客户端地址由 {@link ClientAddressResolver} 识别, 不信任客户端自己提供的 <code>X-Forwarded-For</code>;
+ * 黑名单只支持 IPv4, 来自 IPv6 地址 (IPv4-mapped 地址除外) 的请求不会被拒绝
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class IpBlocklistFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(IpBlocklistFilter.class);
+
+    private final IpBlocklist blocklist;
+
+    private final ClientAddressResolver clientAddresses;
+
+    public IpBlocklistFilter(IpBlocklist blocklist, ClientAddressResolver clientAddresses) {
+        this.blocklist = blocklist;
+        this.clientAddresses = clientAddresses;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!blocklist.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        String ipAddress = clientAddresses.resolve(exchange.getRequest());
+        if (blocklist.isBlocked(IpAddresses.parseIpv4(ipAddress))) {
+            if (log.isDebugEnabled()) {
+                log.debug("Rejected the request to \"{}\" from blocked ip address \"{}\"", exchange.getRequest().getPath(), ipAddress);
+            }
+            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+            return exchange.getResponse().setComplete();
+        }
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return Integer.MIN_VALUE + 1;
+    }
+
+}
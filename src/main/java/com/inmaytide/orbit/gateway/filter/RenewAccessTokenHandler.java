@@ -4,9 +4,14 @@ import com.inmaytide.exception.web.BadCredentialsException;
 import com.inmaytide.exception.web.UnauthorizedException;
 import com.inmaytide.orbit.commons.constants.Constants;
 import com.inmaytide.orbit.commons.domain.Oauth2Token;
-import com.inmaytide.orbit.commons.utils.ValueCaches;
 import com.inmaytide.orbit.gateway.configuration.ErrorCode;
+import com.inmaytide.orbit.gateway.domain.RoutePolicy;
+import com.inmaytide.orbit.gateway.domain.TokenState;
 import com.inmaytide.orbit.gateway.handler.AbstractHandler;
+import com.inmaytide.orbit.gateway.service.ProactiveTokenRenewalScheduler;
+import com.inmaytide.orbit.gateway.service.RoutePolicies;
+import com.inmaytide.orbit.gateway.service.TokenRenewalCoordinator;
+import com.inmaytide.orbit.gateway.service.TokenStateService;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,11 +26,16 @@ import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 当本次请求中的 <code>access_token</code> 有效时间小于 {@value REQUIRED_REFRESH_TOKEN_LT} 秒时 <br/>
  * 自动调用刷新 token 的接口获取新的 access_token 写入本次请求的 Response 和 Request 中
+ * <p>
+ * 整个过程不会阻塞事件循环线程: token 的各项状态通过 {@link TokenStateService} 一次性查询,
+ * 同一个 access_token 的并发刷新请求通过 {@link TokenRenewalCoordinator} 在节点内和节点间都合并为一次;
+ * 携带的 access_token 同时交给 {@link ProactiveTokenRenewalScheduler}, 活跃的 access_token 通常在过期前已经在后台刷新完成
+ * <p>
+ * 路由可以通过 {@link RoutePolicy#isSkipTokenRenewal()} 和 {@link RoutePolicy#isSkipForcedLogoutCheck()} 跳过自动刷新和强制下线检查
  *
  * @author inmaytide
  * @since 2020/12/12
@@ -40,78 +50,89 @@ public class RenewAccessTokenHandler extends AbstractHandler implements GlobalFi
      */
     private static final long REQUIRED_REFRESH_TOKEN_LT = 30;
 
-    /**
-     * {@link Oauth2Token} 在临时存储容器中保留时间
-     */
-    private static final long TOKEN_TEMPORARY_STORE_MILLISECONDS = 60 * 1000;
+    private final TokenStateService tokenStates;
 
+    private final TokenRenewalCoordinator renewalCoordinator;
 
-    @Override
-    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        wasForciblyCancelled(exchange);
-        String accessToken = getAccessToken(exchange);
-        if (StringUtils.isNotBlank(accessToken) && requireRenew(accessToken)) {
-            log.debug("The access token needs to be refreshed");
-            synchronized (accessToken.intern()) {
-                exchange = renewToken(exchange, accessToken);
-            }
-        }
-        return chain.filter(exchange);
-    }
+    private final ProactiveTokenRenewalScheduler proactiveRenewals;
 
-    private void wasForciblyCancelled(ServerWebExchange exchange) {
-        getRefreshToken(exchange)
-                .flatMap(refreshToken -> ValueCaches.get(Constants.CacheNames.DISABLED_REFRESH_TOKEN, refreshToken))
-                .ifPresent(value -> {
-                    log.debug("The access token was forcibly cancelled by other users");
-                    throw new UnauthorizedException(ErrorCode.E_0x00200001);
-                });
-    }
+    private final RoutePolicies routePolicies;
 
-    private Oauth2Token refreshToken(@Nullable String refreshToken) {
-        if (StringUtils.isBlank(refreshToken)) {
-            throw new BadCredentialsException();
-        }
-        return authorizationService.refreshToken(refreshToken);
+    public RenewAccessTokenHandler(TokenStateService tokenStates, TokenRenewalCoordinator renewalCoordinator, ProactiveTokenRenewalScheduler proactiveRenewals, RoutePolicies routePolicies) {
+        this.tokenStates = tokenStates;
+        this.renewalCoordinator = renewalCoordinator;
+        this.proactiveRenewals = proactiveRenewals;
+        this.routePolicies = routePolicies;
     }
 
-    private void doCache(final String key, final Oauth2Token value) {
-        // 将新token与旧token放入缓存绑定
-        ValueCaches.put(Constants.CacheNames.TOKEN_TEMPORARY_STORE, key, value.getAccessToken(), TOKEN_TEMPORARY_STORE_MILLISECONDS, TimeUnit.MILLISECONDS);
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RoutePolicy policy = routePolicies.get(exchange);
+        if (policy.isSkipTokenRenewal() && policy.isSkipForcedLogoutCheck()) {
+            return chain.filter(exchange);
+        }
+        // 跳过的检查不读取对应的 token, TokenStateService 也就不会为其访问 Redis
+        String accessToken = policy.isSkipTokenRenewal() ? null : StringUtils.defaultIfBlank(getAccessToken(exchange), null);
+        String refreshToken = getRefreshToken(exchange).orElse(null);
+        String checkedRefreshToken = policy.isSkipForcedLogoutCheck() ? null : refreshToken;
+        return tokenStates.resolve(accessToken, checkedRefreshToken, REQUIRED_REFRESH_TOKEN_LT)
+                .flatMap(state -> {
+                    if (state.isDisabled()) {
+                        log.debug("The access token was forcibly cancelled by other users");
+                        return Mono.error(new UnauthorizedException(ErrorCode.E_0x00200001));
+                    }
+                    if (accessToken == null) {
+                        return Mono.just(exchange);
+                    }
+                    log.debug("Access token \"{}\" will expired in {} seconds", accessToken, state.getExpire());
+                    if (refreshToken != null) {
+                        proactiveRenewals.track(accessToken, refreshToken, state.getExpire());
+                    }
+                    if (state.getExpire() >= REQUIRED_REFRESH_TOKEN_LT || state.getExpire() == TokenState.NEVER_EXPIRES) {
+                        return Mono.just(exchange);
+                    }
+                    log.debug("The access token needs to be refreshed");
+                    return renewToken(exchange, accessToken, state.getRenewedAccessToken());
+                })
+                .flatMap(chain::filter);
     }
 
-    private ServerWebExchange renewToken(ServerWebExchange exchange, String accessToken) {
-        try {
-            String refreshedToken = ValueCaches.get(Constants.CacheNames.TOKEN_TEMPORARY_STORE, accessToken).orElse(null);
-            if (refreshedToken != null) {
-                log.debug("The access token is refreshed within {}ms and a new access token is read from the cache", TOKEN_TEMPORARY_STORE_MILLISECONDS);
-            } else {
-                log.debug("No new access token is read from the cache, request the remote api to refresh the access token");
-                Optional<String> refreshToken = getRefreshToken(exchange);
-                if (refreshToken.isEmpty()) {
-                    return exchange;
-                }
-                log.debug("Refresh Token value is \"{}\"", refreshToken.get());
-                Oauth2Token token = refreshToken(refreshToken.get());
-                log.debug("The refresh result is {}", token);
-                refreshedToken = token.getAccessToken();
-                doCache(accessToken, token);
-                setTokenCookies(exchange, token);
-            }
-            ServerHttpRequest request = exchange.getRequest().mutate().header(Constants.HttpHeaderNames.AUTHORIZATION, Constants.HttpHeaderNames.AUTHORIZATION_PREFIX + refreshedToken).build();
-            return exchange.mutate().request(request).build();
-        } catch (Exception e) {
-            log.error("Failed to refresh token, Cause by: ", e);
-            if (e instanceof BadCredentialsException) {
-                throw e;
-            }
-            return exchange;
-        }
+    /**
+     * @param renewedAccessToken 该 access_token 在 {@value TokenRenewalCoordinator#TOKEN_TEMPORARY_STORE_MILLISECONDS}ms 内已经被刷新过时, 刷新后的 access_token
+     */
+    private Mono<ServerWebExchange> renewToken(ServerWebExchange exchange, String accessToken, @Nullable String renewedAccessToken) {
+        return Mono.justOrEmpty(renewedAccessToken)
+                .doOnNext(refreshedToken -> log.debug("The access token is refreshed within {}ms and a new access token is read from the cache", TokenRenewalCoordinator.TOKEN_TEMPORARY_STORE_MILLISECONDS))
+                // 在后台或其他节点刷新得到的 token 也需要写回客户端
+                .flatMap(refreshedToken -> renewalCoordinator.lookup(accessToken, getRefreshToken(exchange).orElse(null))
+                        .doOnNext(token -> setTokenCookies(exchange, token))
+                        .onErrorResume(e -> Mono.empty())
+                        .thenReturn(refreshedToken))
+                .switchIfEmpty(Mono.defer(() -> getRefreshToken(exchange)
+                        .map(refreshToken -> renewalCoordinator.renew(accessToken, refreshToken))
+                        .orElse(Mono.empty())
+                        .doOnNext(token -> setTokenCookies(exchange, token))
+                        .map(Oauth2Token::getAccessToken)))
+                .map(refreshedToken -> {
+                    ServerHttpRequest request = exchange.getRequest().mutate().header(Constants.HttpHeaderNames.AUTHORIZATION, Constants.HttpHeaderNames.AUTHORIZATION_PREFIX + refreshedToken).build();
+                    return exchange.mutate().request(request).build();
+                })
+                .defaultIfEmpty(exchange)
+                .onErrorResume(e -> {
+                    log.error("Failed to refresh token, Cause by: ", e);
+                    if (e instanceof BadCredentialsException) {
+                        return Mono.error(e);
+                    }
+                    return Mono.just(exchange);
+                });
     }
 
+    /**
+     * 在 {@link IpBlocklistFilter} 之后
+     */
     @Override
     public int getOrder() {
-        return Integer.MIN_VALUE;
+        return Integer.MIN_VALUE + 2;
     }
 
     private Optional<String> getRefreshToken(ServerWebExchange exchange) {
@@ -119,13 +140,6 @@ public class RenewAccessTokenHandler extends AbstractHandler implements GlobalFi
         return cookie != null ? Optional.of(cookie.getValue()) : Optional.empty();
     }
 
-    private boolean requireRenew(String accessToken) {
-        Long expire = ValueCaches.getExpire(Constants.CacheNames.ACCESS_TOKEN_STORE, accessToken);
-        log.debug("Access token \"{}\" will expired in {} seconds", accessToken, expire);
-        expire = expire == null ? 0 : expire;
-        return expire < REQUIRED_REFRESH_TOKEN_LT;
-    }
-
     @Override
     protected Logger getLogger() {
         return log;
@@ -0,0 +1,76 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import com.inmaytide.orbit.gateway.handler.RouteMetricsEndpoint;
+import com.inmaytide.orbit.gateway.service.RouteMetrics;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * 按路由记录请求数、处理中的请求数、响应状态、请求/响应体大小和耗时, 通过 {@link RouteMetricsEndpoint} 查看
+ * <p>
+ * 耗时分为网关自身的耗时和等待下游服务响应的耗时, 后者由 {@link UpstreamTimingFilter} 在转发前后记录;
+ * 请求/响应体大小取自 <code>Content-Length</code>, 分块传输的请求/响应不计入
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class RouteMetricsFilter implements GlobalFilter, Ordered {
+
+    static final String TIMING_ATTRIBUTE = RouteMetricsFilter.class.getName() + ".timing";
+
+    private final RouteMetrics routeMetrics;
+
+    public RouteMetricsFilter(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RouteMetrics.Stats stats = routeMetrics.get(route);
+        Timing timing = new Timing(System.nanoTime());
+        exchange.getAttributes().put(TIMING_ATTRIBUTE, timing);
+        stats.begin(exchange.getRequest().getHeaders().getContentLength());
+        return chain.filter(exchange).doFinally(signal -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            stats.end(
+                    signal == SignalType.ON_ERROR || status == null ? 0 : status.value(),
+                    exchange.getResponse().getHeaders().getContentLength(),
+                    System.nanoTime() - timing.start,
+                    timing.upstreamNanos
+            );
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * 一次请求的耗时, 由 {@link RouteMetricsFilter} 创建, {@link UpstreamTimingFilter} 填充
+     */
+    static final class Timing {
+
+        final long start;
+
+        volatile long upstreamNanos = -1;
+
+        Timing(long start) {
+            this.start = start;
+        }
+    }
+
+}
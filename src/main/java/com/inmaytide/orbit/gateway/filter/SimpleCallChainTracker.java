@@ -1,13 +1,15 @@
 package com.inmaytide.orbit.gateway.filter;
 
 import com.inmaytide.orbit.commons.constants.Constants;
-import com.inmaytide.orbit.commons.utils.CodecUtils;
+import com.inmaytide.orbit.gateway.domain.CallChainSpan;
 import com.inmaytide.orbit.gateway.handler.AbstractHandler;
+import com.inmaytide.orbit.gateway.service.RoutePolicies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
@@ -16,8 +18,14 @@ import reactor.core.publisher.Mono;
 /**
  * Simple call chain tracker
  * <ol>
- *     <li>Generate API call chain identifier into http header for current request</li>
+ *     <li>Generate API call chain identifier into http header for current request, an identifier sent by the caller is kept as is</li>
+ *     <li>When the caller sent a W3C <code>traceparent</code>, continue the trace with a new span for the gateway hop</li>
+ *     <li>Record the gateway hop as a {@link CallChainSpan} request attribute, its duration is logged at debug level</li>
  * </ol>
+ * Identifiers are generated by {@link TraceIds} without touching {@link java.security.SecureRandom}.
+ * No <code>traceparent</code> is created for requests that did not carry one, so sampling decisions of downstream services are unchanged.
+ * <p>
+ * Skipped for routes whose {@link com.inmaytide.orbit.gateway.domain.RoutePolicy#isSkipCallChain()} is <code>true</code>
  *
  * @author inmaytide
  * @since 2022/3/20
@@ -27,11 +35,44 @@ public class SimpleCallChainTracker extends AbstractHandler implements GlobalFil
 
     private static final Logger LOG = LoggerFactory.getLogger(SimpleCallChainTracker.class);
 
+    private final RoutePolicies routePolicies;
+
+    public SimpleCallChainTracker(RoutePolicies routePolicies) {
+        this.routePolicies = routePolicies;
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (routePolicies.get(exchange).isSkipCallChain()) {
+            return chain.filter(exchange);
+        }
+        long startNanos = System.nanoTime();
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        String[] parent = TraceIds.parseTraceparent(headers.getFirst(TraceIds.TRACEPARENT));
+        String traceId = parent != null ? parent[0] : TraceIds.newTraceId();
+        String callChain = headers.getFirst(Constants.HttpHeaderNames.CALL_CHAIN);
+        boolean keepCallChain = TraceIds.isValidCallChain(callChain);
+        if (!keepCallChain) {
+            callChain = traceId;
+        }
+        CallChainSpan span = new CallChainSpan(callChain, traceId, TraceIds.newSpanId(), parent != null ? parent[1] : null, startNanos);
+        exchange.getAttributes().put(CallChainSpan.ATTRIBUTE, span);
+        if (keepCallChain && parent == null) {
+            return trace(chain.filter(exchange), exchange, span);
+        }
         // 写入接口调用链标识
-        ServerHttpRequest request = exchange.getRequest().mutate().header(Constants.HttpHeaderNames.CALL_CHAIN, CodecUtils.randomUUID()).build();
-        return chain.filter(exchange.mutate().request(request).build());
+        ServerHttpRequest.Builder builder = exchange.getRequest().mutate().header(Constants.HttpHeaderNames.CALL_CHAIN, span.getCallChain());
+        if (parent != null) {
+            builder.header(TraceIds.TRACEPARENT, TraceIds.traceparent(traceId, span.getSpanId(), parent[2]));
+        }
+        return trace(chain.filter(exchange.mutate().request(builder.build()).build()), exchange, span);
+    }
+
+    private Mono<Void> trace(Mono<Void> filtered, ServerWebExchange exchange, CallChainSpan span) {
+        if (!LOG.isDebugEnabled()) {
+            return filtered;
+        }
+        return filtered.doFinally(signal -> LOG.debug("{} of \"{}\" completed with {} in {}μs", span, exchange.getRequest().getPath(), signal, (System.nanoTime() - span.getStartNanos()) / 1000));
     }
 
     @Override
@@ -0,0 +1,136 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates and validates call chain identifiers and W3C trace context values
+ * <p>
+ * Identifiers come from {@link ThreadLocalRandom} and are encoded as lowercase hex directly into a {@code char[]},
+ * which never blocks or contends on the event loop the way {@link java.security.SecureRandom} backed UUIDs do.
+ * They are only used for correlation and carry no security meaning.
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ * @see <a href="https://www.w3.org/TR/trace-context/#traceparent-header">traceparent</a>
+ */
+public final class TraceIds {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final String VERSION = "00";
+
+    private static final int TRACEPARENT_LENGTH = 55;
+
+    private static final int MAX_CALL_CHAIN_LENGTH = 64;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private TraceIds() {
+
+    }
+
+    /**
+     * @return 32 lowercase hex characters, never all zero
+     */
+    public static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high = random.nextLong();
+        long low = random.nextLong();
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        char[] chars = new char[32];
+        writeHex(high, chars, 0);
+        writeHex(low, chars, 16);
+        return new String(chars);
+    }
+
+    /**
+     * @return 16 lowercase hex characters, never all zero
+     */
+    public static String newSpanId() {
+        long id = ThreadLocalRandom.current().nextLong();
+        char[] chars = new char[16];
+        writeHex(id == 0 ? 1 : id, chars, 0);
+        return new String(chars);
+    }
+
+    public static String traceparent(String traceId, String spanId, String flags) {
+        return VERSION + '-' + traceId + '-' + spanId + '-' + flags;
+    }
+
+    /**
+     * Parses an incoming <code>traceparent</code> header
+     *
+     * @return <code>{traceId, parentId, flags}</code>, or <code>null</code> when the value is absent or malformed
+     */
+    @Nullable
+    public static String[] parseTraceparent(@Nullable String value) {
+        if (value == null || value.length() < TRACEPARENT_LENGTH) {
+            return null;
+        }
+        if (value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-') {
+            return null;
+        }
+        String version = value.substring(0, 2);
+        if (!isHex(version) || "ff".equals(version)) {
+            return null;
+        }
+        // Future versions may append fields, version 00 must be exactly 55 characters
+        if (value.length() > TRACEPARENT_LENGTH && (VERSION.equals(version) || value.charAt(TRACEPARENT_LENGTH) != '-')) {
+            return null;
+        }
+        String traceId = value.substring(3, 35);
+        String parentId = value.substring(36, 52);
+        String flags = value.substring(53, 55);
+        if (!isHex(traceId) || !isHex(parentId) || !isHex(flags) || isZero(traceId) || isZero(parentId)) {
+            return null;
+        }
+        return new String[]{traceId, parentId, flags};
+    }
+
+    /**
+     * Whether a call chain identifier sent by the caller can be forwarded as is
+     */
+    public static boolean isValidCallChain(@Nullable String value) {
+        if (value == null || value.isEmpty() || value.length() > MAX_CALL_CHAIN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeHex(long value, char[] dest, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            dest[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 紧挨着转发请求的过滤器执行, 记录从开始转发到收到下游服务响应头的时间, 供 {@link RouteMetricsFilter} 拆分耗时
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RouteMetricsFilter.Timing timing = exchange.getAttribute(RouteMetricsFilter.TIMING_ATTRIBUTE);
+        if (timing == null) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        // 在完成信号向外传递前记录, 保证 RouteMetricsFilter 结束时已经能读到
+        return chain.filter(exchange).doOnTerminate(() -> timing.upstreamNanos = System.nanoTime() - start);
+    }
+
+    /**
+     * 在 {@link org.springframework.cloud.gateway.filter.NettyRoutingFilter} 和
+     * {@link org.springframework.cloud.gateway.filter.WebsocketRoutingFilter} 之前
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 2;
+    }
+
+}
@@ -2,8 +2,6 @@ package com.inmaytide.orbit.gateway.handler;
 
 import cloud.tianai.captcha.application.ImageCaptchaApplication;
 import cloud.tianai.captcha.spring.plugins.secondary.SecondaryVerificationApplication;
-import com.inmaytide.exception.web.AccessDeniedException;
-import com.inmaytide.exception.web.BadCredentialsException;
 import com.inmaytide.exception.web.HttpResponseException;
 import com.inmaytide.exception.web.ServiceUnavailableException;
 import com.inmaytide.exception.web.domain.DefaultResponse;
@@ -15,12 +13,16 @@ import com.inmaytide.orbit.commons.domain.dto.params.LoginParameters;
 import com.inmaytide.orbit.commons.log.OperationLogMessageProducer;
 import com.inmaytide.orbit.commons.log.domain.OperationLog;
 import com.inmaytide.orbit.commons.service.uaa.UserService;
-import com.inmaytide.orbit.commons.utils.ValueCaches;
 import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
 import com.inmaytide.orbit.gateway.configuration.ErrorCode;
 import com.inmaytide.orbit.gateway.domain.Credentials;
-import org.apache.commons.lang3.math.NumberUtils;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.util.Objects;
@@ -33,11 +35,15 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractAuthorizeHandler extends AbstractHandler {
 
-    protected final static int MAXIMUM_NUMBER_OF_FAILED_LOGIN_ATTEMPTS = 5;
+    protected final static int MAXIMUM_NUMBER_OF_FAILED_LOGIN_ATTEMPTS = LoginFailureCounter.MAXIMUM_FAILURES;
 
-    protected final static int EXCEED_NUMBER_LOCK_TIMES_IN_MINUTE = 5;
+    protected final static int EXCEED_NUMBER_LOCK_TIMES_IN_MINUTE = LoginFailureCounter.LOCK_TIMES_IN_MINUTE;
 
-    protected final static String CACHE_NAME_LOGIN_FAILURE_NUMBERS = "LOGIN_FAILURE_NUMBERS";
+    protected final static String CACHE_NAME_LOGIN_FAILURE_NUMBERS = LoginFailureCounter.CACHE_NAME;
+
+    protected final static String STAGE_TIMER = "gateway.login.stage";
+
+    private final static String ACCESS_SOURCE_DENIED = "access-source-denied";
 
     protected final OperationLogMessageProducer producer;
 
@@ -49,30 +55,40 @@ public abstract class AbstractAuthorizeHandler extends AbstractHandler {
 
     private final ImageCaptchaApplication captchaApplication;
 
-    protected AbstractAuthorizeHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication) {
+    private final LoginFailureCounter failureCounter;
+
+    private final AccessSourcePolicy accessSources;
+
+    protected final BlockingOperations blockingOperations;
+
+    private final MeterRegistry meterRegistry;
+
+    private final LoginFailureAudit failureAudit;
+
+    protected AbstractAuthorizeHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication, LoginFailureCounter failureCounter, AccessSourcePolicy accessSources, BlockingOperations blockingOperations, MeterRegistry meterRegistry, LoginFailureAudit failureAudit) {
         this.producer = producer;
         this.properties = properties;
         this.throwableTranslator = throwableTranslator;
         this.userService = userService;
         this.captchaApplication = captchaApplication;
+        this.failureCounter = failureCounter;
+        this.accessSources = accessSources;
+        this.blockingOperations = blockingOperations;
+        this.meterRegistry = meterRegistry;
+        this.failureAudit = failureAudit;
     }
 
     /**
-     * 验证访问来源的黑白名单
+     * 验证访问来源的黑白名单, 名单由 {@link AccessSourcePolicy} 预先编译, 只有内存查找, 直接在调用线程中执行;
+     * 未通过时的操作日志在 {@link BlockingOperations} 的线程中记录
      */
-    protected void assertAllowAccessSource(ServerRequest request, Credentials credentials) {
+    protected void assertAllowAccessSource(ServerRequest request) {
         String ipAddress = getClientIpAddress(request.exchange());
         String geolocation = searchIpAddressGeolocation(ipAddress);
         getLogger().debug("Client IP Address: {}", ipAddress);
         getLogger().debug("Client IP Address Geolocation: {}", geolocation);
-        if ((properties.getDisabledAccessSources() != null && properties.getDisabledAccessSources().stream().anyMatch(e -> ipAddress.contains(e) || geolocation.contains(e)))
-                || (properties.getEnabledAccessSources() != null && properties.getEnabledAccessSources().stream().noneMatch(geolocation::contains))) {
-            OperationLog log = buildOperationLog(request, credentials);
-            log.setResult(Bool.N);
-            log.setArguments(credentials.toString());
-            log.setResponse("受限地区访问");
-            producer.produce(log);
-            throw new AccessDeniedException(ErrorCode.E_0x00200002);
+        if (!accessSources.isAllowed(ipAddress, geolocation)) {
+            throw StacklessExceptions.accessDenied(ErrorCode.E_0x00200002);
         }
     }
 
@@ -83,40 +99,81 @@ public abstract class AbstractAuthorizeHandler extends AbstractHandler {
      *     <li>大于等于 <code>1</code> 时需要强制验证验证码</li>
      * </ol>
      */
-    protected void checkFailureNumbers(Credentials credentials) {
-        int failuresNumber = getFailuresNumber(credentials.getUsername());
+    protected void checkFailureNumbers(Credentials credentials, int failuresNumber) {
         if (failuresNumber >= MAXIMUM_NUMBER_OF_FAILED_LOGIN_ATTEMPTS) {
-            throw new AccessDeniedException(ErrorCode.E_0x00200003, String.valueOf(MAXIMUM_NUMBER_OF_FAILED_LOGIN_ATTEMPTS), String.valueOf(EXCEED_NUMBER_LOCK_TIMES_IN_MINUTE));
+            throw StacklessExceptions.accessDenied(ErrorCode.E_0x00200003, String.valueOf(MAXIMUM_NUMBER_OF_FAILED_LOGIN_ATTEMPTS), String.valueOf(EXCEED_NUMBER_LOCK_TIMES_IN_MINUTE));
         }
         if (failuresNumber >= 1) {
             if (credentials.getCaptcha() == null) {
-                throw new BadCredentialsException(ErrorCode.E_0x00200007);
+                throw StacklessExceptions.badCredentials(ErrorCode.E_0x00200007);
             }
             if (captchaApplication instanceof SecondaryVerificationApplication sva) {
                 if (!sva.matching(credentials.getCaptcha().getId(), credentials.getCaptcha().getData()).isSuccess()) {
-                    throw new BadCredentialsException(ErrorCode.E_0x00200007);
+                    throw StacklessExceptions.badCredentials(ErrorCode.E_0x00200007);
                 }
             }
         }
     }
 
-    protected Integer getFailuresNumber(String username) {
-        return ValueCaches.get(CACHE_NAME_LOGIN_FAILURE_NUMBERS, username)
-                .map(NumberUtils::createInteger)
-                .orElse(0);
+    /**
+     * 读取登录失败次数, 已被锁定的用户名直接使用本地记录的次数, 见 {@link LoginFailureCounter}
+     */
+    protected Mono<Integer> getFailuresNumber(String username) {
+        return failureCounter.get(username);
     }
 
+    /**
+     * 原子地累加登录失败次数, 在 {@link BlockingOperations} 的线程中调用
+     */
     protected void accumulateFailuresNumber(String username) {
-        Integer number = getFailuresNumber(username);
-        ValueCaches.put(CACHE_NAME_LOGIN_FAILURE_NUMBERS, username, String.valueOf(number + 1), EXCEED_NUMBER_LOCK_TIMES_IN_MINUTE, TimeUnit.MINUTES);
+        failureCounter.increment(username).block();
+    }
+
+    /**
+     * 登录前依次检查, 任意一项未通过时立即结束, 不再执行之后的检查:
+     * <ul>
+     *     <li>访问来源的黑白名单, 只有内存查找, 直接在调用线程中执行</li>
+     *     <li>读取登录失败次数, 再根据失败次数检查验证码</li>
+     * </ul>
+     * 全部通过后调用认证服务获取 token; 验证码检查和认证服务调用等阻塞操作通过 {@link BlockingOperations} 在 Netty 线程之外执行,
+     * 各阶段的耗时记录在 {@value STAGE_TIMER} 中
+     */
+    protected Mono<Oauth2Token> login(ServerRequest request, Credentials credentials) {
+        return Mono.defer(() -> {
+            credentials.validate();
+            getLogger().debug("Received login request from user \"{}\"", credentials.getUsername());
+            Mono<Void> accessSource = timed("access-source", Mono.fromRunnable(() -> assertAllowAccessSource(request)));
+            Mono<Void> captcha = timed("failures-number", getFailuresNumber(credentials.getUsername()))
+                    .flatMap(number -> timed("captcha", blockingOperations.run(BlockingOperations.LOGIN_CHECK, () -> checkFailureNumbers(credentials, number))));
+            return accessSource.then(captcha)
+                    .onErrorResume(e -> onCheckFailed(request, credentials, e))
+                    .then(timed("token", blockingOperations.call(BlockingOperations.LOGIN, () -> login(request, credentials))));
+        });
+    }
+
+    /**
+     * 检查未通过时与认证服务调用失败的处理一致
+     */
+    private Mono<Void> onCheckFailed(ServerRequest request, Credentials credentials, Throwable e) {
+        if (!(e instanceof Exception ex)) {
+            return Mono.error(e);
+        }
+        return blockingOperations.run(BlockingOperations.LOGIN_CHECK, () -> {
+            if (ex instanceof HttpResponseException hre && Objects.equals(hre.getCode(), ErrorCode.E_0x00200002.value())) {
+                failureAudit.failed(credentials.getUsername(), getClientIpAddress(request.exchange()), ACCESS_SOURCE_DENIED, () -> {
+                    OperationLog log = buildOperationLog(request, credentials);
+                    log.setResult(Bool.N);
+                    log.setArguments(credentials.toString());
+                    log.setResponse("受限地区访问");
+                    return log;
+                });
+            }
+            throw handleFailure(request, credentials, ex);
+        });
     }
 
-    protected Oauth2Token login(ServerRequest request, Credentials credentials) {
-        credentials.validate();
-        getLogger().debug("Received login request from user \"{}\"", credentials.getUsername());
+    private Oauth2Token login(ServerRequest request, Credentials credentials) {
         try {
-            assertAllowAccessSource(request, credentials);
-            checkFailureNumbers(credentials);
             LoginParameters params = new LoginParameters();
             params.setLoginName(credentials.getUsername());
             params.setPassword(credentials.getPassword());
@@ -127,27 +184,42 @@ public abstract class AbstractAuthorizeHandler extends AbstractHandler {
             setTokenCookies(request.exchange(), token);
             return token;
         } catch (Exception e) {
-            onFailed(request, credentials, e);
-            HttpResponseException ex = new HttpResponseException(e);
-            Optional<HttpResponseException> translated = throwableTranslator.translate(e);
-            if (translated.isPresent()) {
-                ex = translated.get();
-                // 账号已登录或认证服务不可用不累加异常次数
-                if (Objects.equals(ex.getCode(), "0x00100001") || ex instanceof ServiceUnavailableException) {
-                    throw ex;
-                }
-                // 如果账号不存在或密码错误, 根据安全管理要求整合错误信息模糊具体的错误提醒
-                if (Objects.equals(ex.getCode(), "0x00100002") || Objects.equals(ex.getCode(), "0x00100003")) {
-                    ex = new BadCredentialsException(ErrorCode.E_0x00200010);
-                }
-            }
+            throw handleFailure(request, credentials, e);
+        }
+    }
+
+    /**
+     * 异常只转换一次, 结果同时用于操作日志和响应; 重复的失败由 {@link LoginFailureAudit} 合并记录
+     */
+    protected HttpResponseException handleFailure(ServerRequest request, Credentials credentials, Exception e) {
+        Optional<HttpResponseException> translated = throwableTranslator.translate(e);
+        onFailed(request, credentials, e, translated);
+        if (translated.isEmpty()) {
             accumulateFailuresNumber(credentials.getUsername());
-            throw ex;
+            return new HttpResponseException(e);
         }
+        HttpResponseException ex = translated.get();
+        // 账号已登录或认证服务不可用不累加异常次数
+        if (Objects.equals(ex.getCode(), "0x00100001") || ex instanceof ServiceUnavailableException) {
+            return ex;
+        }
+        // 如果账号不存在或密码错误, 根据安全管理要求整合错误信息模糊具体的错误提醒
+        if (Objects.equals(ex.getCode(), "0x00100002") || Objects.equals(ex.getCode(), "0x00100003")) {
+            ex = StacklessExceptions.badCredentials(ErrorCode.E_0x00200010);
+        }
+        accumulateFailuresNumber(credentials.getUsername());
+        return ex;
+    }
+
+    private <T> Mono<T> timed(String stage, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono.doFinally(signal -> meterRegistry.timer(STAGE_TIMER, "stage", stage, "signal", signal.name()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
     }
 
     private void onSuccess(ServerRequest request, Credentials credentials, Oauth2Token token) {
-        ValueCaches.delete(CACHE_NAME_LOGIN_FAILURE_NUMBERS, credentials.getUsername());
+        failureCounter.reset(credentials.getUsername()).block();
         OperationLog log = buildOperationLog(request, credentials);
         log.setResult(Bool.Y);
         log.setArguments(credentials.toString());
@@ -156,14 +228,15 @@ public abstract class AbstractAuthorizeHandler extends AbstractHandler {
         producer.produce(log);
     }
 
-    private void onFailed(ServerRequest request, Credentials credentials, Throwable e) {
-        OperationLog log = buildOperationLog(request, credentials);
-        log.setResult(Bool.N);
-        log.setArguments(credentials.toString());
-        throwableTranslator
-                .translate(e)
-                .ifPresent(ex -> log.setResponse(DefaultResponse.withException(ex).URL(request.path()).build().toString()));
-        producer.produce(log);
+    private void onFailed(ServerRequest request, Credentials credentials, Exception e, Optional<HttpResponseException> translated) {
+        String code = translated.map(HttpResponseException::getCode).orElse(e.getClass().getName());
+        failureAudit.failed(credentials.getUsername(), getClientIpAddress(request.exchange()), code, () -> {
+            OperationLog log = buildOperationLog(request, credentials);
+            log.setResult(Bool.N);
+            log.setArguments(credentials.toString());
+            translated.ifPresent(ex -> log.setResponse(DefaultResponse.withException(ex).URL(request.path()).build().toString()));
+            return log;
+        });
     }
 
     private OperationLog buildOperationLog(ServerRequest request, Credentials credentials) {
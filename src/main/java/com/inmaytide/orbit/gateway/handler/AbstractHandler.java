@@ -4,8 +4,8 @@ import com.inmaytide.orbit.commons.constants.Constants;
 import com.inmaytide.orbit.commons.domain.Oauth2Token;
 import com.inmaytide.orbit.commons.service.uaa.AuthorizationService;
 import com.inmaytide.orbit.commons.utils.HttpUtils;
+import com.inmaytide.orbit.gateway.service.IpGeolocationService;
 import org.apache.commons.lang3.StringUtils;
-import org.lionsoul.ip2region.xdb.Searcher;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -25,7 +25,7 @@ public abstract class AbstractHandler {
     protected AuthorizationService authorizationService;
 
     @Autowired
-    private Searcher searcher;
+    private IpGeolocationService geolocations;
 
     private ResponseCookie buildAccessTokenCookie(Oauth2Token token) {
         return ResponseCookie.from(Constants.RequestParameters.ACCESS_TOKEN)
@@ -55,7 +55,8 @@ public abstract class AbstractHandler {
                 return HttpUtils.getIpAddress(value);
             }
         }
-        return exchange.getRequest().getRemoteAddress() == null ? StringUtils.EMPTY : exchange.getRequest().getRemoteAddress().getHostName();
+        // getHostString 不会触发反向域名解析
+        return exchange.getRequest().getRemoteAddress() == null ? StringUtils.EMPTY : exchange.getRequest().getRemoteAddress().getHostString();
     }
 
     protected String getAccessToken(ServerWebExchange exchange) {
@@ -78,36 +79,11 @@ public abstract class AbstractHandler {
         return token;
     }
 
-
     protected String searchIpAddressGeolocation(@Nullable String ipAddress) {
-        if (StringUtils.isNotBlank(ipAddress)) {
-            if (StringUtils.equalsIgnoreCase(ipAddress, "localhost") || "127.0.0.1".equals(ipAddress)) {
-                return Constants.Markers.LOCAL;
-            }
-            try {
-                String region = searcher.search(ipAddress);
-                if (StringUtils.isBlank(region)) {
-                    return Constants.Markers.NOT_APPLICABLE;
-                }
-                String[] regions = region.split("\\|");
-                String country = regions[0];
-                for (int i = regions.length - 2; i >= 0; i--) {
-                    if ("内网IP".equalsIgnoreCase(regions[i])) {
-                        return Constants.Markers.LAN;
-                    }
-                    if (!"0".equals(regions[i])) {
-                        return i != 0 ? country + "-" + regions[i] : regions[i];
-                    }
-                }
-            } catch (Exception e) {
-                if (getLogger().isDebugEnabled()) {
-                    getLogger().error("Failed to search geolocation of ip address \"{}\" with ip2region Searcher, Cause by: \n", ipAddress, e);
-                } else {
-                    getLogger().error("Failed to search geolocation of ip address \"{}\" with ip2region Searcher", ipAddress);
-                }
-            }
+        if (StringUtils.equalsAnyIgnoreCase(ipAddress, "localhost", "127.0.0.1", "::1", "0:0:0:0:0:0:0:1")) {
+            return Constants.Markers.LOCAL;
         }
-        return Constants.Markers.NOT_APPLICABLE;
+        return geolocations.search(ipAddress);
     }
 
     protected abstract Logger getLogger();
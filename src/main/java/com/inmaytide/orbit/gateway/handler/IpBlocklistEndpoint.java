@@ -0,0 +1,54 @@
+package com.inmaytide.orbit.gateway.handler;
+
+import com.inmaytide.orbit.gateway.service.IpBlocklist;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 查看和在运行时维护当前节点的 {@link IpBlocklist}
+ * <ul>
+ *     <li><code>GET /actuator/ipblocklist</code> 查看名单大小</li>
+ *     <li><code>POST /actuator/ipblocklist</code> <code>{"range": "1.2.3.0/24"}</code> 增加</li>
+ *     <li><code>DELETE /actuator/ipblocklist?range=1.2.3.0/24</code> 移除运行时增加的名单</li>
+ * </ul>
+ * 需要在 <code>management.endpoints.web.exposure.include</code> 中开放
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+@Endpoint(id = "ipblocklist")
+public class IpBlocklistEndpoint {
+
+    private final IpBlocklist blocklist;
+
+    public IpBlocklistEndpoint(IpBlocklist blocklist) {
+        this.blocklist = blocklist;
+    }
+
+    @ReadOperation
+    public Map<String, Object> blocklist() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", blocklist.isEnabled());
+        result.put("configuredRanges", blocklist.configuredSize());
+        result.put("runtimeRanges", blocklist.runtimeSize());
+        return result;
+    }
+
+    @WriteOperation
+    public boolean block(String range) {
+        return blocklist.block(range);
+    }
+
+    @DeleteOperation
+    public boolean unblock(String range) {
+        return blocklist.unblock(range);
+    }
+
+}
@@ -12,27 +12,36 @@ import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
 import com.inmaytide.orbit.gateway.configuration.ErrorCode;
 import com.inmaytide.orbit.gateway.domain.ScanCodeCredentials;
 import com.inmaytide.orbit.gateway.domain.ScanCodeResult;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.GatewayNode;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import com.inmaytide.orbit.gateway.service.ScanCodeSigner;
+import com.inmaytide.orbit.gateway.service.WebSocketSender;
+import com.inmaytide.orbit.gateway.service.WebSocketSessionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.socket.CloseStatus;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SignalType;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+import static org.springframework.web.reactive.function.server.ServerResponse.badRequest;
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
 
 /**
@@ -44,10 +53,17 @@ public class LoginWithScanCodeHandler extends AbstractAuthorizeHandler implement
 
     private static final Logger log = LoggerFactory.getLogger(LoginWithScanCodeHandler.class);
 
-    private static final Map<String, WebSocketSender> SENDER_STORE = new ConcurrentHashMap<>();
-
     public static final String REQ_NEW_CODE = "getNewCode";
 
+    private static final byte[] REQ_NEW_CODE_BYTES = REQ_NEW_CODE.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 发送二维码内容的消息格式为 <code>{"content":"...","category":"login"}</code>, 只有 content 是变化的
+     */
+    private static final String NEW_CODE_PREFIX = "{\"content\":";
+
+    private static final String NEW_CODE_SUFFIX = ",\"category\":\"login\"}";
+
     public static final String CACHE_NAME_SCAN_CODE = "SCAN_CODE";
 
     public static final String ROUTE_KEY_SCAN_CODE_LOGIN_RES = "orbit.queue.scan.code.login.result";
@@ -58,97 +74,157 @@ public class LoginWithScanCodeHandler extends AbstractAuthorizeHandler implement
 
     private final ObjectMapper objectMapper;
 
-    protected LoginWithScanCodeHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication, RabbitProducer rabbitProducer, ObjectMapper objectMapper) {
-        super(producer, properties, throwableTranslator, userService, captchaApplication);
+    private final GatewayNode node;
+
+    private final WebSocketSessionRegistry sessions;
+
+    private final ScanCodeSigner signer;
+
+    protected LoginWithScanCodeHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication, LoginFailureCounter failureCounter, AccessSourcePolicy accessSources, BlockingOperations blockingOperations, MeterRegistry meterRegistry, LoginFailureAudit failureAudit, RabbitProducer rabbitProducer, ObjectMapper objectMapper, GatewayNode node, WebSocketSessionRegistry sessions, ScanCodeSigner signer) {
+        super(producer, properties, throwableTranslator, userService, captchaApplication, failureCounter, accessSources, blockingOperations, meterRegistry, failureAudit);
         this.rabbitProducer = rabbitProducer;
         this.objectMapper = objectMapper;
+        this.node = node;
+        this.sessions = sessions;
+        this.signer = signer;
     }
 
 
+    /**
+     * @return 升级前生成的二维码内容无法解密时返回 <code>null</code>
+     */
+    @Nullable
     private ScanCodeResult validateScanCode(ScanCodeCredentials credentials) {
+        ScanCodeResult res;
+        try {
+            res = ScanCodeResult.withCredentials(credentials);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
         log.debug("Receive credentials {}", credentials);
-        ScanCodeResult res = ScanCodeResult.withCredentials(credentials);
         if (credentials.isExpired()) {
             return res.failure(ErrorCode.E_0x00200004);
         }
         return ValueCaches.getAndDelete(CACHE_NAME_SCAN_CODE, credentials.getCode())
                 .map(e -> res.success())
-                .orElse(res.failure(ErrorCode.E_0x00200005));
+                .orElseGet(() -> res.failure(ErrorCode.E_0x00200005));
     }
 
     public Mono<ServerResponse> validateScanCode(@NonNull ServerRequest request) {
         return request.bodyToMono(ScanCodeCredentials.class)
-                .map(this::validateScanCode)
-                .doOnNext(res -> rabbitProducer.sendMessage(res, ROUTE_KEY_SCAN_CODE_LOGIN_RES))
-                .flatMap(res -> ok().body(BodyInserters.fromValue(res)));
+                .flatMap(credentials -> {
+                    // 签名的二维码内容在这里验证, 只需要几微秒; 伪造或已过期的二维码不会占用阻塞调用的线程
+                    try {
+                        signer.verify(credentials);
+                    } catch (IllegalArgumentException e) {
+                        return invalidScanCode(credentials);
+                    }
+                    if (ScanCodeSigner.isSigned(credentials.getContent()) && credentials.isExpired()) {
+                        log.debug("Rejected expired scan code of session [{}]", credentials.getSessionId());
+                        return ok().body(BodyInserters.fromValue(ScanCodeResult.withCredentials(credentials).failure(ErrorCode.E_0x00200004)));
+                    }
+                    return blockingOperations.call(BlockingOperations.SCAN_CODE, () -> {
+                                ScanCodeResult res = validateScanCode(credentials);
+                                if (res != null) {
+                                    // 直接发送到持有 WebSocket 会话的节点, 升级前生成的二维码仍使用共享的队列
+                                    String routingKey = GatewayNode.routingKeyOf(res.getSessionId());
+                                    rabbitProducer.sendMessage(res, routingKey == null ? ROUTE_KEY_SCAN_CODE_LOGIN_RES : routingKey);
+                                }
+                                return res;
+                            })
+                            .flatMap(res -> ok().body(BodyInserters.fromValue(res)))
+                            .switchIfEmpty(Mono.defer(() -> invalidScanCode(credentials)));
+                });
+    }
+
+    /**
+     * 伪造, 篡改或无法解密的二维码内容, 无法确定对应的 WebSocket 会话, 只响应给扫码的客户端
+     */
+    private Mono<ServerResponse> invalidScanCode(ScanCodeCredentials credentials) {
+        log.debug("Rejected invalid scan code content [{}]", credentials.getContent());
+        ScanCodeResult res = new ScanCodeResult();
+        res.setUsername(credentials.getUsername());
+        res.setScannedAt(System.currentTimeMillis());
+        return badRequest().body(BodyInserters.fromValue(res.failure(ErrorCode.E_0x00200013)));
     }
 
     @Override
     public @NonNull Mono<Void> handle(@NonNull WebSocketSession session) {
+        WebSocketSender sender = sessions.register(session);
+        if (sender == null) {
+            log.warn("Too many WebSocket sessions, rejecting [{}]", session.getId());
+            return session.close(CloseStatus.SERVICE_OVERLOAD);
+        }
         Mono<Void> in = session.receive()
-                .doOnNext(message -> processMessage(session, message))
+                .filter(message -> isNewCodeRequest(sender, message))
+                .concatMap(message -> issueCode(sender))
                 .doFinally(signal -> disconnect(session, signal))
                 .then();
 
-        Mono<Void> out = session.send(Flux.create(sink -> {
-            SENDER_STORE.put(session.getId(), new WebSocketSender(session, sink));
-        }));
+        Mono<Void> out = session.send(sender.outbound());
         return Mono.zip(in, out).then();
     }
 
     private void disconnect(WebSocketSession session, SignalType signal) {
         log.debug("Terminating WebSocket Session (client side) signal: [{}], [{}]", signal.name(), session.getId());
-        SENDER_STORE.remove(session.getId());
-        session.close();
+        sessions.remove(session.getId());
+        session.close().subscribe();
     }
 
-    private void processMessage(WebSocketSession session, WebSocketMessage message) {
-        log.debug("Receive a new message from client[{}], content is [{}]", session.getId(), message.getPayloadAsText());
-        String content = message.getPayloadAsText();
-        if (REQ_NEW_CODE.equals(content)) {
-            try {
-                String code = CodecUtils.generateRandomCode(8);
-                ValueCaches.put(CACHE_NAME_SCAN_CODE, code, code, CODE_VALID_TIME_IN_SECONDS, TimeUnit.SECONDS);
-                String res = session.getId() + "." + code + "." + Instant.now().plusSeconds(CODE_VALID_TIME_IN_SECONDS).toEpochMilli();
-                Map<String, String> body = Map.of("content", CodecUtils.encrypt(res, CodecUtils.RSA_PRIVATE_KEY), "category", "login");
-                log.debug("Generated new code content is [{}]", res);
-                SENDER_STORE.get(session.getId()).send(objectMapper.writeValueAsString(body));
-                log.debug("Generated new code was sent");
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+    /**
+     * 消息内容在这里同步读取, 之后的处理不再使用消息
+     */
+    private boolean isNewCodeRequest(WebSocketSender sender, WebSocketMessage message) {
+        sender.received();
+        if (message.getType() != WebSocketMessage.Type.TEXT) {
+            return false;
         }
+        if (log.isDebugEnabled()) {
+            log.debug("Receive a new message from client[{}], content is [{}]", sender.getSession().getId(), message.getPayloadAsText());
+        }
+        return isNewCodeRequest(message.getPayload()) && sessions.tryIssueCode(sender);
     }
 
-    @Nullable
-    public static WebSocketSender getSender(String id) {
-        return SENDER_STORE.get(id);
-    }
-
-    @Override
-    protected Logger getLogger() {
-        return log;
+    private Mono<Void> issueCode(WebSocketSender sender) {
+        return blockingOperations.call(BlockingOperations.SCAN_CODE, () -> {
+                    String code = CodecUtils.generateRandomCode(8);
+                    ValueCaches.put(CACHE_NAME_SCAN_CODE, code, code, CODE_VALID_TIME_IN_SECONDS, TimeUnit.SECONDS);
+                    String sessionId = node.qualify(sender.getSession().getId());
+                    Instant expiry = Instant.now().plusSeconds(CODE_VALID_TIME_IN_SECONDS);
+                    log.debug("Generated new code [{}] for session [{}]", code, sessionId);
+                    String content = signer.isEnabled()
+                            ? signer.sign(sessionId, code, expiry)
+                            : CodecUtils.encrypt(sessionId + "." + code + "." + expiry.toEpochMilli(), CodecUtils.RSA_PRIVATE_KEY);
+                    return NEW_CODE_PREFIX + objectMapper.writeValueAsString(content) + NEW_CODE_SUFFIX;
+                })
+                .doOnNext(sender::send)
+                .doOnNext(message -> log.debug("Generated new code was sent"))
+                .onErrorResume(e -> {
+                    log.warn("Failed to generate a new code for session [{}], Cause by: {}", sender.getSession().getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
     }
 
-
-    public static class WebSocketSender {
-
-        private final WebSocketSession session;
-
-        private final FluxSink<WebSocketMessage> sink;
-
-        public WebSocketSender(WebSocketSession session, FluxSink<WebSocketMessage> sink) {
-            this.session = session;
-            this.sink = sink;
+    /**
+     * 直接比较消息内容的字节, 不把每条消息都解码为字符串
+     */
+    private static boolean isNewCodeRequest(DataBuffer payload) {
+        if (payload.readableByteCount() != REQ_NEW_CODE_BYTES.length) {
+            return false;
         }
-
-        public void send(String message) {
-            sink.next(session.textMessage(message));
+        int position = payload.readPosition();
+        for (int i = 0; i < REQ_NEW_CODE_BYTES.length; i++) {
+            if (payload.getByte(position + i) != REQ_NEW_CODE_BYTES[i]) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        public WebSocketSession getSession() {
-            return session;
-        }
+    @Override
+    protected Logger getLogger() {
+        return log;
     }
 
 
@@ -1,6 +1,7 @@
 package com.inmaytide.orbit.gateway.handler;
 
 import cloud.tianai.captcha.application.ImageCaptchaApplication;
+import com.inmaytide.exception.web.ServiceUnavailableException;
 import com.inmaytide.exception.web.translator.HttpExceptionTranslatorDelegator;
 import com.inmaytide.orbit.commons.constants.Bool;
 import com.inmaytide.orbit.commons.constants.Constants;
@@ -13,7 +14,18 @@ import com.inmaytide.orbit.commons.service.uaa.UserService;
 import com.inmaytide.orbit.commons.utils.HttpUtils;
 import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
 import com.inmaytide.orbit.gateway.configuration.ErrorCode;
+import com.inmaytide.orbit.gateway.configuration.RabbitMQConfiguration;
 import com.inmaytide.orbit.gateway.domain.ScanCodeResult;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.GatewayNode;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import com.inmaytide.orbit.gateway.service.WebSocketSender;
+import com.inmaytide.orbit.gateway.service.WebSocketSessionRegistry;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,10 +33,26 @@ import org.springframework.amqp.rabbit.annotation.Exchange;
 import org.springframework.amqp.rabbit.annotation.Queue;
 import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.socket.HandshakeInfo;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * 消费扫码结果并完成免密登录
+ * <p>
+ * 监听线程只负责把结果交给 {@link BlockingOperations#SCAN_CODE_LOGIN}, 获取令牌等阻塞调用不占用监听线程;
+ * 结果推送到 WebSocket 后才确认消息, 同时处理的数量由 {@link ApplicationProperties.ScanCode#getListenerPrefetch()} 限制,
+ * 认证服务变慢时未确认的消息留在队列中, 不会在内存中堆积
+ * <p>
+ * 处理过程中出现意外异常的消息直接拒绝且不再放回队列, 避免未确认的消息占满 prefetch;
+ * 被 {@link BlockingOperations} 拒绝的消息延迟 {@link ApplicationProperties.ScanCode#getRequeueDelay()} 后放回队列
+ *
  * @author inmaytide
  * @since 2022/9/9
  */
@@ -33,37 +61,87 @@ public class LoginWithScanCodeResultConsumer extends AbstractAuthorizeHandler {
 
     private static final Logger log = LoggerFactory.getLogger(LoginWithScanCodeResultConsumer.class);
 
-    protected LoginWithScanCodeResultConsumer(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication) {
-        super(producer, properties, throwableTranslator, userService, captchaApplication);
-    }
+    private final WebSocketSessionRegistry sessions;
+
+    private final Timer lag;
+
+    private final Timer scanToToken;
 
+    protected LoginWithScanCodeResultConsumer(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication, LoginFailureCounter failureCounter, AccessSourcePolicy accessSources, BlockingOperations blockingOperations, MeterRegistry meterRegistry, LoginFailureAudit failureAudit, WebSocketSessionRegistry sessions) {
+        super(producer, properties, throwableTranslator, userService, captchaApplication, failureCounter, accessSources, blockingOperations, meterRegistry, failureAudit);
+        this.sessions = sessions;
+        // 两个时间都从收到扫码请求的节点开始计算, 包含节点间的时钟偏差
+        this.lag = Timer.builder("gateway.scan-code.result.lag").description("从收到扫码请求到当前节点接收到扫码结果").register(meterRegistry);
+        this.scanToToken = Timer.builder("gateway.scan-code.token").description("从收到扫码请求到获取到令牌").register(meterRegistry);
+    }
 
+    /**
+     * 共享队列只接收会话标识中不带节点标识的扫码结果 (升级前生成的二维码), 由任意节点消费
+     */
     @RabbitListener(bindings = @QueueBinding(
             value = @Queue(LoginWithScanCodeHandler.ROUTE_KEY_SCAN_CODE_LOGIN_RES),
             exchange = @Exchange(value = Constants.RabbitMQ.DIRECT_EXCHANGE),
             key = LoginWithScanCodeHandler.ROUTE_KEY_SCAN_CODE_LOGIN_RES
-    ))
-    public void onReceiveScanCodeResult(ScanCodeResult res) {
-        log.debug("Receive a scan code result, content is {}", res.toFullString());
-        LoginWithScanCodeHandler.WebSocketSender sender = LoginWithScanCodeHandler.getSender(res.getSessionId());
+    ), containerFactory = RabbitMQConfiguration.SCAN_CODE_LISTENER_FACTORY)
+    public void onReceiveScanCodeResult(ScanCodeResult res, Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        deliver(res, channel, deliveryTag);
+    }
+
+    /**
+     * 接收发送到当前节点的扫码结果, 见 {@link GatewayNode}
+     */
+    @RabbitListener(queues = "#{@scanCodeResNodeQueue.name}", containerFactory = RabbitMQConfiguration.SCAN_CODE_LISTENER_FACTORY)
+    public void onReceiveNodeScanCodeResult(ScanCodeResult res, Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        deliver(res, channel, deliveryTag);
+    }
+
+    void deliver(ScanCodeResult res, Channel channel, long deliveryTag) {
+        try {
+            dispatch(res, channel, deliveryTag);
+        } catch (Exception e) {
+            log.error("Failed to handle scan code result [{}], reject it, Cause by: ", deliveryTag, e);
+            reject(channel, deliveryTag);
+        }
+    }
+
+    private void dispatch(ScanCodeResult res, Channel channel, long deliveryTag) {
+        record(lag, res);
+        if (log.isDebugEnabled()) {
+            log.debug("Receive a scan code result, content is {}", res.toFullString());
+        }
+        WebSocketSender sender = sessions.get(GatewayNode.localSessionId(res.getSessionId()));
         if (sender == null) {
             log.debug("Receive a scan code result, but there is no websocket session in application.");
+            ack(channel, deliveryTag);
             return;
         }
 
-        if ("success".equals(res.getResult())) {
+        if (!"success".equals(res.getResult())) {
+            sender.send(res.toString());
+            ack(channel, deliveryTag);
+            return;
+        }
+        blockingOperations.run(BlockingOperations.SCAN_CODE_LOGIN, () -> {
             log.debug("QR code verification succeeded, Perform login operation, get access_token...");
             try {
                 execute(res, sender);
+                record(scanToToken, res);
             } catch (Exception e) {
                 res.failure(ErrorCode.E_0x00200006);
                 log.error("An error occurred while performing the login, Cause by: ", e);
             }
-        }
-        sender.send(res.toString());
+            sender.send(res.toString());
+        }).subscribe(null, e -> {
+            if (e instanceof ServiceUnavailableException) {
+                requeue(channel, deliveryTag, e);
+            } else {
+                log.error("Failed to handle scan code result [{}], reject it, Cause by: ", deliveryTag, e);
+                reject(channel, deliveryTag);
+            }
+        }, () -> ack(channel, deliveryTag));
     }
 
-    private void execute(ScanCodeResult res, LoginWithScanCodeHandler.WebSocketSender sender) {
+    private void execute(ScanCodeResult res, WebSocketSender sender) {
         // Perform login without password operation to obtain token
         LoginParameters params = new LoginParameters();
         params.setLoginName(res.getUsername());
@@ -89,6 +167,41 @@ public class LoginWithScanCodeResultConsumer extends AbstractAuthorizeHandler {
         res.setRefreshToken(token.getRefreshToken());
     }
 
+    private void record(Timer timer, ScanCodeResult res) {
+        if (res.getScannedAt() != null) {
+            timer.record(Math.max(System.currentTimeMillis() - res.getScannedAt(), 0), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void ack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicAck(deliveryTag, false);
+        } catch (IOException e) {
+            log.warn("Failed to acknowledge scan code result [{}], Cause by: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    /**
+     * 登录被 {@link BlockingOperations} 拒绝 (排队已满) 时延迟一段时间再把消息放回队列, 避免立即重新投递后再次被拒绝
+     */
+    private void requeue(Channel channel, long deliveryTag, Throwable cause) {
+        Duration delay = properties.getScanCode().getRequeueDelay();
+        log.warn("Scan code login was rejected, requeue result [{}] after {}, Cause by: {}", deliveryTag, delay, cause.getMessage());
+        Mono.delay(delay).subscribe(i -> nack(channel, deliveryTag, true));
+    }
+
+    private void reject(Channel channel, long deliveryTag) {
+        nack(channel, deliveryTag, false);
+    }
+
+    private void nack(Channel channel, long deliveryTag, boolean requeue) {
+        try {
+            channel.basicNack(deliveryTag, false, requeue);
+        } catch (IOException e) {
+            log.warn("Failed to nack scan code result [{}], Cause by: {}", deliveryTag, e.getMessage());
+        }
+    }
+
     private String getClientIpAddress(HandshakeInfo handshakeInfo) {
         for (String name : HttpUtils.HEADER_NAMES_FOR_CLIENT_ID) {
             String value = handshakeInfo.getHeaders().getFirst(name);
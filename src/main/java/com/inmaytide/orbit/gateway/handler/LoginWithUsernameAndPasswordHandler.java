@@ -7,6 +7,12 @@ import com.inmaytide.orbit.commons.service.uaa.UserService;
 import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
 import com.inmaytide.orbit.gateway.domain.AccessToken;
 import com.inmaytide.orbit.gateway.domain.Credentials;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.AuthorizeRateLimiter;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,6 +21,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
@@ -34,8 +41,11 @@ public class LoginWithUsernameAndPasswordHandler extends AbstractAuthorizeHandle
 
     private static final Logger LOG = LoggerFactory.getLogger(LoginWithUsernameAndPasswordHandler.class);
 
-    protected LoginWithUsernameAndPasswordHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication) {
-        super(producer, properties, throwableTranslator, userService, captchaApplication);
+    private final AuthorizeRateLimiter rateLimiter;
+
+    protected LoginWithUsernameAndPasswordHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication, LoginFailureCounter failureCounter, AccessSourcePolicy accessSources, BlockingOperations blockingOperations, MeterRegistry meterRegistry, LoginFailureAudit failureAudit, AuthorizeRateLimiter rateLimiter) {
+        super(producer, properties, throwableTranslator, userService, captchaApplication, failureCounter, accessSources, blockingOperations, meterRegistry, failureAudit);
+        this.rateLimiter = rateLimiter;
     }
 
 
@@ -52,8 +62,13 @@ public class LoginWithUsernameAndPasswordHandler extends AbstractAuthorizeHandle
     )
     public Mono<ServerResponse> loginWithUsernameAndPassword(@NonNull ServerRequest request) {
         return request.bodyToMono(Credentials.class)
-                .map(credentials -> login(request, credentials))
-                .flatMap(token -> ok().body(BodyInserters.fromValue(new AccessToken(token.getAccessToken()))));
+                .flatMap(credentials -> rateLimiter.tryAcquireByUsername(credentials.getUsername()).flatMap(allowed -> {
+                    if (!allowed) {
+                        LOG.debug("Login request for user \"{}\" was rate limited", credentials.getUsername());
+                        return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS).build();
+                    }
+                    return login(request, credentials).flatMap(token -> ok().body(BodyInserters.fromValue(new AccessToken(token.getAccessToken()))));
+                }));
     }
 
     @Override
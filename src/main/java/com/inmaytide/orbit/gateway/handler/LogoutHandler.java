@@ -5,6 +5,12 @@ import com.inmaytide.exception.web.translator.HttpExceptionTranslatorDelegator;
 import com.inmaytide.orbit.commons.log.OperationLogMessageProducer;
 import com.inmaytide.orbit.commons.service.uaa.UserService;
 import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.AccessTokenExpiryCache;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,8 +28,11 @@ public class LogoutHandler extends AbstractAuthorizeHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogoutHandler.class);
 
-    protected LogoutHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication) {
-        super(producer, properties, throwableTranslator, userService, captchaApplication);
+    private final AccessTokenExpiryCache expiryCache;
+
+    protected LogoutHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication, LoginFailureCounter failureCounter, AccessSourcePolicy accessSources, BlockingOperations blockingOperations, MeterRegistry meterRegistry, LoginFailureAudit failureAudit, AccessTokenExpiryCache expiryCache) {
+        super(producer, properties, throwableTranslator, userService, captchaApplication, failureCounter, accessSources, blockingOperations, meterRegistry, failureAudit);
+        this.expiryCache = expiryCache;
     }
 
     @Override
@@ -34,7 +43,9 @@ public class LogoutHandler extends AbstractAuthorizeHandler {
     public Mono<ServerResponse> logout(ServerRequest request) {
         String token = getAccessToken(request.exchange());
         if (StringUtils.isNotBlank(token)) {
-            authorizationService.revokeToken(token);
+            return blockingOperations.run(BlockingOperations.LOGOUT, () -> authorizationService.revokeToken(token))
+                    .then(expiryCache.invalidate(token))
+                    .then(ServerResponse.noContent().build());
         }
         return ServerResponse.noContent().build();
     }
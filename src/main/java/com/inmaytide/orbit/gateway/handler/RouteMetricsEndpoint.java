@@ -0,0 +1,49 @@
+package com.inmaytide.orbit.gateway.handler;
+
+import com.inmaytide.orbit.gateway.service.RouteMetrics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 查看 {@link RouteMetrics} 统计的各路由请求情况, 耗时单位为毫秒
+ * <ul>
+ *     <li><code>GET /actuator/routemetrics</code> 所有路由</li>
+ *     <li><code>GET /actuator/routemetrics/{routeId}</code> 指定路由</li>
+ *     <li><code>DELETE /actuator/routemetrics</code> 清空统计</li>
+ * </ul>
+ * 需要在 <code>management.endpoints.web.exposure.include</code> 中开放
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+@Endpoint(id = "routemetrics")
+public class RouteMetricsEndpoint {
+
+    private final RouteMetrics routeMetrics;
+
+    public RouteMetricsEndpoint(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> routes() {
+        return routeMetrics.snapshot();
+    }
+
+    @ReadOperation
+    public Map<String, Object> route(@Selector String routeId) {
+        return routeMetrics.snapshot(routeId);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        routeMetrics.reset();
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.inmaytide.orbit.gateway.handler;
+
+import com.inmaytide.exception.web.AccessDeniedException;
+import com.inmaytide.exception.web.BadCredentialsException;
+import com.inmaytide.orbit.gateway.configuration.ErrorCode;
+
+/**
+ * 登录失败时使用的不记录调用栈的异常
+ * <p>
+ * 这些异常只用于向客户端返回确定的错误代码, 调用栈没有排查价值, 撞库等攻击时填充调用栈却是失败处理中最大的开销;
+ * 每次创建新的实例而不是复用, 因为 Reactor 和 WebFlux 会向经过的异常追加 suppressed 异常
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+final class StacklessExceptions {
+
+    private StacklessExceptions() {
+    }
+
+    static BadCredentialsException badCredentials(ErrorCode code) {
+        return new BadCredentialsException(code) {
+            @Override
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        };
+    }
+
+    static AccessDeniedException accessDenied(ErrorCode code, String... args) {
+        return new AccessDeniedException(code, args) {
+            @Override
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 登录时访问来源的黑白名单 ({@link ApplicationProperties#getDisabledAccessSources()}, {@link ApplicationProperties#getEnabledAccessSources()})
+ * <p>
+ * 名单在启动时和每次配置刷新后编译, 编译结果整体替换:
+ * <ul>
+ *     <li><code>a.b.c.d/n</code> 形式的网段编译为 {@link CidrTrie}, 按 IP 地址所属网段匹配</li>
+ *     <li>其他条目编译为 {@link AhoCorasick}, 与原来一样按子串匹配 IP 地址(仅黑名单)和归属地</li>
+ * </ul>
+ * 每次登录的检查耗时与名单长度无关
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class AccessSourcePolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessSourcePolicy.class);
+
+    private final ApplicationProperties properties;
+
+    private volatile Compiled compiled;
+
+    public AccessSourcePolicy(ApplicationProperties properties) {
+        this.properties = properties;
+        this.compiled = compile();
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void refresh() {
+        compiled = compile();
+        log.debug("Access source lists recompiled");
+    }
+
+    /**
+     * @param ipAddress   客户端 IP 地址
+     * @param geolocation 客户端 IP 地址的归属地
+     */
+    public boolean isAllowed(String ipAddress, String geolocation) {
+        Compiled current = compiled;
+        if (current.disabled.matches(ipAddress, geolocation, true)) {
+            return false;
+        }
+        return current.enabled == null || current.enabled.matches(ipAddress, geolocation, false);
+    }
+
+    private Compiled compile() {
+        List<String> disabled = properties.getDisabledAccessSources();
+        List<String> enabled = properties.getEnabledAccessSources();
+        return new Compiled(
+                disabled == null ? Sources.EMPTY : Sources.compile(disabled),
+                enabled == null ? null : Sources.compile(enabled)
+        );
+    }
+
+    /**
+     * @param enabled 未配置白名单时为空, 不限制访问来源
+     */
+    private record Compiled(Sources disabled, @Nullable Sources enabled) {
+
+    }
+
+    private record Sources(CidrTrie networks, AhoCorasick patterns) {
+
+        private static final Sources EMPTY = compile(List.of());
+
+        private static Sources compile(List<String> entries) {
+            CidrTrie networks = new CidrTrie();
+            List<String> patterns = new ArrayList<>(entries.size());
+            for (String entry : entries) {
+                if (entry != null && !networks.add(entry)) {
+                    patterns.add(entry);
+                }
+            }
+            return new Sources(networks, AhoCorasick.compile(patterns));
+        }
+
+        /**
+         * @param includeIpText 是否同时按子串匹配 IP 地址文本
+         */
+        private boolean matches(String ipAddress, String geolocation, boolean includeIpText) {
+            if (!networks.isEmpty() && networks.contains(IpAddresses.parseIpv4(ipAddress))) {
+                return true;
+            }
+            return patterns.matches(geolocation) || (includeIpText && patterns.matches(ipAddress));
+        }
+    }
+
+}
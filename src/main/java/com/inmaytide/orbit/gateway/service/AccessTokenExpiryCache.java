@@ -0,0 +1,160 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * access_token 过期时间的本地缓存
+ * <p>
+ * 首次通过 Redis <code>TTL</code> 读取后计算出过期时刻并缓存在本地, 之后只要距离过期时刻仍大于调用方给定的时间窗口,
+ * 就直接使用本地计算的结果, 不再访问 Redis; 进入时间窗口后由调用方重新读取 Redis 以获取准确的剩余时间
+ * <p>
+ * 缓存失效:
+ * <ol>
+ *     <li>网关内吊销或刷新 access_token 后通过 Redis 频道 {@value INVALIDATION_CHANNEL} 通知所有网关节点, 其他服务吊销 access_token 时也应发布到该频道</li>
+ *     <li>开启 {@link ApplicationProperties.AccessTokenCache#isKeyspaceNotifications()} 后, 通过 keyspace notifications 感知其他服务对 access_token 的修改</li>
+ *     <li>与 Redis 的订阅连接中断重连后清空本地缓存, 避免遗漏中断期间的失效通知</li>
+ * </ol>
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class AccessTokenExpiryCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenExpiryCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "orbit.gateway.access-token.invalidation";
+
+    private static final String KEYSPACE_CHANNEL_PREFIX = "__keyspace@*__:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
+
+    private final ApplicationProperties.AccessTokenCache properties;
+
+    private final Cache<String, Instant> expiries;
+
+    private Disposable subscription;
+
+    public AccessTokenExpiryCache(ReactiveStringRedisTemplate redisTemplate, ReactiveRedisMessageListenerContainer listenerContainer, ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.properties = properties.getAccessTokenCache();
+        this.expiries = Caffeine.newBuilder()
+                .maximumSize(this.properties.getMaximumSize())
+                .expireAfter(Expiry.writing((String token, Instant expiry) -> Duration.between(Instant.now(), expiry)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, expiries, "gateway.access-token.expiry");
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<Topic> topics = new ArrayList<>();
+        topics.add(ChannelTopic.of(INVALIDATION_CHANNEL));
+        if (properties.isKeyspaceNotifications()) {
+            topics.add(PatternTopic.of(KEYSPACE_CHANNEL_PREFIX + ReactiveValueCaches.getCacheKey(Constants.CacheNames.ACCESS_TOKEN_STORE, "*")));
+        }
+        subscription = listenerContainer.receive(topics.toArray(Topic[]::new))
+                .doOnSubscribe(s -> expiries.invalidateAll())
+                .doOnNext(message -> expiries.invalidate(resolveAccessToken(message.getChannel(), message.getMessage())))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1))
+                        .doBeforeRetry(signal -> log.warn("Access token invalidation subscription was interrupted, Cause by: ", signal.failure())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * 获取本地计算的 access_token 剩余有效时间(秒)
+     *
+     * @param window 本地计算的剩余时间小于该值(秒)时视为未命中, 需要调用方重新从 Redis 读取
+     */
+    public Optional<Long> getLocalExpire(String accessToken, long window) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        Instant expiry = expiries.getIfPresent(accessToken);
+        if (expiry == null) {
+            return Optional.empty();
+        }
+        long remaining = Duration.between(Instant.now(), expiry).getSeconds();
+        return remaining >= window ? Optional.of(remaining) : Optional.empty();
+    }
+
+    /**
+     * 本地缓存是否能感知所有对 access_token 的吊销, 包括其他服务直接在 Redis 中删除 access_token
+     */
+    public boolean isRevocationAware() {
+        return properties.isEnabled() && properties.isKeyspaceNotifications();
+    }
+
+    /**
+     * 记录从 Redis 读取到的 access_token 剩余有效时间(秒)
+     */
+    public void record(String accessToken, long expire) {
+        if (properties.isEnabled() && expire > 0) {
+            expiries.put(accessToken, Instant.now().plusSeconds(expire));
+        }
+    }
+
+    /**
+     * 使所有网关节点中缓存的 access_token 过期时间失效
+     */
+    public Mono<Void> invalidate(String accessToken) {
+        expiries.invalidate(accessToken);
+        if (!properties.isEnabled()) {
+            return Mono.empty();
+        }
+        return redisTemplate.convertAndSend(INVALIDATION_CHANNEL, accessToken)
+                .onErrorResume(e -> {
+                    log.warn("Failed to publish access token invalidation, Cause by: ", e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private String resolveAccessToken(String channel, String message) {
+        if (INVALIDATION_CHANNEL.equals(channel)) {
+            return message;
+        }
+        // keyspace notification 的频道格式为 "__keyspace@{db}__:{key}"
+        return StringUtils.removeStart(StringUtils.substringAfter(channel, "__:"), ReactiveValueCaches.getCacheKey(Constants.CacheNames.ACCESS_TOKEN_STORE, ""));
+    }
+
+}
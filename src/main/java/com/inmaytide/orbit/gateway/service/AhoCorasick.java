@@ -0,0 +1,129 @@
+package com.inmaytide.orbit.gateway.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * 多模式子串匹配 (Aho-Corasick 自动机), 判断文本中是否包含任意一个模式
+ * <p>
+ * 结果与对每个模式调用 {@link String#contains(CharSequence)} 一致, 但耗时只与文本长度有关, 与模式数量无关;
+ * 构建完成后不再修改, 可以被多个线程同时查询
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public final class AhoCorasick {
+
+    private static final AhoCorasick EMPTY = new AhoCorasick(List.of());
+
+    /**
+     * 每个状态的转移字符(升序)和目标状态
+     */
+    private final char[][] keys;
+
+    private final int[][] targets;
+
+    private final int[] fail;
+
+    /**
+     * 到达该状态时是否已经匹配到某个模式(包括通过失败链接可达的模式)
+     */
+    private final boolean[] output;
+
+    private AhoCorasick(Collection<String> patterns) {
+        List<TreeMap<Character, Integer>> gotos = new ArrayList<>();
+        List<Boolean> outputs = new ArrayList<>();
+        gotos.add(new TreeMap<>());
+        outputs.add(false);
+        for (String pattern : patterns) {
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = gotos.get(state).get(pattern.charAt(i));
+                if (next == null) {
+                    next = gotos.size();
+                    gotos.add(new TreeMap<>());
+                    outputs.add(false);
+                    gotos.get(state).put(pattern.charAt(i), next);
+                }
+                state = next;
+            }
+            outputs.set(state, true);
+        }
+        int size = gotos.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        fail = new int[size];
+        output = new boolean[size];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> transitions = gotos.get(state);
+            keys[state] = new char[transitions.size()];
+            targets[state] = new int[transitions.size()];
+            int i = 0;
+            for (var entry : transitions.entrySet()) {
+                keys[state][i] = entry.getKey();
+                targets[state][i++] = entry.getValue();
+            }
+            output[state] = outputs.get(state);
+        }
+        // 按广度优先计算失败链接
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                int child = targets[state][i];
+                int f = fail[state];
+                int next;
+                while ((next = transition(f, keys[state][i])) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next >= 0 ? next : 0;
+                output[child] |= output[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 空字符串模式会匹配所有文本, 与 {@link String#contains(CharSequence)} 的行为一致
+     */
+    public static AhoCorasick compile(Collection<String> patterns) {
+        return patterns.isEmpty() ? EMPTY : new AhoCorasick(patterns);
+    }
+
+    public boolean isEmpty() {
+        return keys[0].length == 0 && !output[0];
+    }
+
+    public boolean matches(CharSequence text) {
+        if (output[0]) {
+            return true;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = Math.max(next, 0);
+            if (output[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(keys[state], c);
+        return index >= 0 ? targets[state][index] : -1;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * <code>/authorize/**</code> 接口的限流, 按客户端 IP 和登录用户名分别使用 {@link TokenBucket}
+ * <p>
+ * 本地的令牌桶作为第一道过滤, 被本地拒绝的请求不会访问 Redis;
+ * 开启 {@link ApplicationProperties.AuthorizeRateLimit#isDistributed()} 后, 本地通过的请求再通过 {@code scripts/rate-limit.lua} 在所有节点间共同限流,
+ * Redis 不可用时放行
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class AuthorizeRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizeRateLimiter.class);
+
+    public static final String CACHE_NAME = "AUTHORIZE_RATE_LIMIT";
+
+    private static final RedisScript<Long> SCRIPT = RedisScript.of(new ClassPathResource("scripts/rate-limit.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final ApplicationProperties.AuthorizeRateLimit properties;
+
+    private final Limiter ipAddresses;
+
+    private final Limiter usernames;
+
+    public AuthorizeRateLimiter(ReactiveStringRedisTemplate redisTemplate, ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties.getAuthorizeRateLimit();
+        this.ipAddresses = new Limiter("ip-address", this.properties.getIpAddress(), meterRegistry);
+        this.usernames = new Limiter("username", this.properties.getUsername(), meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Mono<Boolean> tryAcquireByIpAddress(String ipAddress) {
+        return ipAddresses.tryAcquire(ipAddress);
+    }
+
+    public Mono<Boolean> tryAcquireByUsername(String username) {
+        return usernames.tryAcquire(username);
+    }
+
+    private final class Limiter {
+
+        private final String dimension;
+
+        private final ApplicationProperties.AuthorizeRateLimit.Limit limit;
+
+        private final Cache<String, TokenBucket> buckets;
+
+        private final List<String> args;
+
+        private final Counter rejected;
+
+        private Limiter(String dimension, ApplicationProperties.AuthorizeRateLimit.Limit limit, MeterRegistry meterRegistry) {
+            this.dimension = dimension;
+            this.limit = limit;
+            // 桶在一个周期内未被访问时已经补满, 可以丢弃
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaximumTracked())
+                    .expireAfterAccess(limit.getPeriod())
+                    .build();
+            long interval = Math.max(limit.getPeriod().toMillis() / Math.max(limit.getCapacity(), 1), 1);
+            this.args = List.of(String.valueOf(interval), String.valueOf(Math.max(limit.getCapacity(), 1)));
+            this.rejected = Counter.builder("gateway.authorize.rate-limited").tag("dimension", dimension).register(meterRegistry);
+        }
+
+        private Mono<Boolean> tryAcquire(String key) {
+            if (!properties.isEnabled() || StringUtils.isBlank(key)) {
+                return Mono.just(true);
+            }
+            if (!buckets.get(key, k -> new TokenBucket(limit.getCapacity(), limit.getPeriod())).tryAcquire()) {
+                rejected.increment();
+                return Mono.just(false);
+            }
+            if (!properties.isDistributed()) {
+                return Mono.just(true);
+            }
+            return redisTemplate.execute(SCRIPT, List.of(ReactiveValueCaches.getCacheKey(CACHE_NAME, dimension + ":" + key)), args)
+                    .next()
+                    .map(result -> result == 1L)
+                    .defaultIfEmpty(true)
+                    .doOnNext(allowed -> {
+                        if (!allowed) {
+                            rejected.increment();
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        log.warn("Distributed rate limit check failed, the request is allowed, Cause by: {}", e.getMessage());
+                        return Mono.just(true);
+                    });
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.exception.web.ServiceUnavailableException;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.configuration.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在 Netty 线程之外执行处理器中的阻塞调用 (认证服务接口, 同步的 Redis 和消息队列操作等), 避免登录高峰时阻塞网关的请求代理
+ * <p>
+ * 调用按操作名称分组, 每组同时执行的数量不超过 {@link ApplicationProperties.BlockingOperations#getMaxConcurrency()},
+ * 超出的调用排队等待, 排队数量超过 {@link ApplicationProperties.BlockingOperations#getMaxQueued()} 时直接以 503 拒绝;
+ * 每组的执行数, 排队数, 排队时间和拒绝次数通过 <code>gateway.blocking.*</code> 指标输出
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class BlockingOperations {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingOperations.class);
+
+    public static final String LOGIN = "login";
+
+    public static final String LOGIN_CHECK = "login-check";
+
+    public static final String LOGOUT = "logout";
+
+    public static final String SCAN_CODE = "scan-code";
+
+    /**
+     * 扫码结果消费后的免密登录
+     */
+    public static final String SCAN_CODE_LOGIN = "scan-code-login";
+
+    private final ApplicationProperties.BlockingOperations properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Scheduler scheduler;
+
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public BlockingOperations(ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getBlockingOperations();
+        this.meterRegistry = meterRegistry;
+        if (this.properties.getMode() == ApplicationProperties.BlockingOperations.Mode.VIRTUAL_THREADS) {
+            this.scheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "gateway-blocking");
+        } else {
+            this.scheduler = Schedulers.boundedElastic();
+        }
+        log.info("Blocking operations will be executed on {}", this.properties.getMode());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != Schedulers.boundedElastic()) {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * @param operation 操作名称, 同名的操作共享并发数限制
+     */
+    public <T> Mono<T> call(String operation, Callable<T> task) {
+        return bulkheads.computeIfAbsent(operation, Bulkhead::new).submit(task);
+    }
+
+    public Mono<Void> run(String operation, Runnable task) {
+        return this.<Void>call(operation, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private final class Bulkhead {
+
+        private final int maxConcurrency;
+
+        private final int maxQueued;
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final AtomicInteger queued = new AtomicInteger();
+
+        private final Queue<Call<?>> queue = new ConcurrentLinkedQueue<>();
+
+        private final Timer waitTime;
+
+        private final Counter rejected;
+
+        private Bulkhead(String operation) {
+            this.maxConcurrency = Math.max(properties.getConcurrency().getOrDefault(operation, properties.getMaxConcurrency()), 1);
+            this.maxQueued = Math.max(properties.getMaxQueued(), 0);
+            Gauge.builder("gateway.blocking.active", active, AtomicInteger::get).tag("operation", operation).register(meterRegistry);
+            Gauge.builder("gateway.blocking.queued", queued, AtomicInteger::get).tag("operation", operation).register(meterRegistry);
+            this.waitTime = Timer.builder("gateway.blocking.wait").tag("operation", operation).publishPercentileHistogram().register(meterRegistry);
+            this.rejected = Counter.builder("gateway.blocking.rejected").tag("operation", operation).register(meterRegistry);
+        }
+
+        /**
+         * 队列为空且有空闲的执行数时直接执行, 只有需要等待的调用才计入排队数量
+         */
+        private <T> Mono<T> submit(Callable<T> task) {
+            return Mono.create(sink -> {
+                Call<T> call = new Call<>(task, sink);
+                sink.onCancel(() -> call.cancelled = true);
+                if (queue.isEmpty() && tryAcquire()) {
+                    start(call);
+                    return;
+                }
+                if (queued.incrementAndGet() > maxQueued) {
+                    queued.decrementAndGet();
+                    rejected.increment();
+                    sink.error(new ServiceUnavailableException(ErrorCode.E_0x00200012));
+                    return;
+                }
+                queue.offer(call);
+                drain();
+            });
+        }
+
+        /**
+         * 先占用执行数再取出排队的调用, 释放执行数后再次检查队列, 保证入队和释放并发发生时不会有调用滞留在队列中
+         */
+        private void drain() {
+            while (!queue.isEmpty() && tryAcquire()) {
+                Call<?> next = queue.poll();
+                if (next == null) {
+                    active.decrementAndGet();
+                    continue;
+                }
+                queued.decrementAndGet();
+                start(next);
+            }
+        }
+
+        /**
+         * 调用前已占用一个执行数; 线程池拒绝任务 (如 boundedElastic 的任务数已满或已关闭) 时归还执行数并以 503 结束调用
+         */
+        private void start(Call<?> call) {
+            try {
+                scheduler.schedule(() -> {
+                    try {
+                        call.run();
+                    } finally {
+                        active.decrementAndGet();
+                        drain();
+                    }
+                });
+            } catch (RuntimeException e) {
+                active.decrementAndGet();
+                rejected.increment();
+                log.warn("Failed to schedule blocking operation, Cause by: ", e);
+                call.sink.error(new ServiceUnavailableException(ErrorCode.E_0x00200012));
+            }
+        }
+
+        private boolean tryAcquire() {
+            int current;
+            do {
+                current = active.get();
+                if (current >= maxConcurrency) {
+                    return false;
+                }
+            } while (!active.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private final class Call<T> {
+
+            private final Callable<T> task;
+
+            private final MonoSink<T> sink;
+
+            private final long submittedAt = System.nanoTime();
+
+            private volatile boolean cancelled;
+
+            private Call(Callable<T> task, MonoSink<T> sink) {
+                this.task = task;
+                this.sink = sink;
+            }
+
+            private void run() {
+                waitTime.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                if (cancelled) {
+                    return;
+                }
+                T result;
+                try {
+                    result = task.call();
+                } catch (Throwable e) {
+                    sink.error(e);
+                    return;
+                }
+                sink.success(result);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.inmaytide.orbit.gateway.service;
+
+import java.util.Arrays;
+
+/**
+ * IPv4 网段的二叉前缀树, 查询一个地址是否属于任意网段最多访问 32 个节点, 与网段数量无关
+ * <p>
+ * 构建完成后不再修改, 可以被多个线程同时查询
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public final class CidrTrie {
+
+    private static final int ROOT = 0;
+
+    private static final int NONE = 0;
+
+    /**
+     * 节点 n 的两个子节点为 <code>children[2n]</code> 和 <code>children[2n + 1]</code>, 为 {@value NONE} 时不存在
+     */
+    private int[] children = new int[64];
+
+    private boolean[] terminal = new boolean[32];
+
+    private int size = 1;
+
+    /**
+     * @return 不是合法的 <code>a.b.c.d/n</code> 时返回 <code>false</code>
+     */
+    public boolean add(String cidr) {
+        int slash = cidr.indexOf('/');
+        if (slash < 0) {
+            return false;
+        }
+        long address = IpAddresses.parseIpv4(cidr.substring(0, slash).trim());
+        int prefixLength;
+        try {
+            prefixLength = Integer.parseInt(cidr.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (address < 0 || prefixLength < 0 || prefixLength > 32) {
+            return false;
+        }
+        int node = ROOT;
+        for (int i = 0; i < prefixLength && !terminal[node]; i++) {
+            int bit = (int) (address >>> (31 - i)) & 1;
+            int child = children[node * 2 + bit];
+            if (child == NONE) {
+                child = newNode();
+                children[node * 2 + bit] = child;
+            }
+            node = child;
+        }
+        terminal[node] = true;
+        return true;
+    }
+
+    public boolean contains(long address) {
+        if (address < 0) {
+            return false;
+        }
+        int node = ROOT;
+        for (int i = 0; i < 32; i++) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = children[node * 2 + ((int) (address >>> (31 - i)) & 1)];
+            if (node == NONE) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    public boolean isEmpty() {
+        return size == 1 && !terminal[ROOT];
+    }
+
+    private int newNode() {
+        if (size == terminal.length) {
+            terminal = Arrays.copyOf(terminal, size * 2);
+            children = Arrays.copyOf(children, size * 4);
+        }
+        return size++;
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.utils.HttpUtils;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * 识别用于安全判断 (IP 黑名单, 限流) 的客户端地址
+ * <p>
+ * <code>X-Forwarded-For</code> 等请求头由客户端提供, 可以任意伪造, 只有连接来自
+ * {@link ApplicationProperties.ClientAddress#getTrustedProxies()} 中的反向代理时才读取;
+ * 请求头中的地址从右向左查找, 跳过可信的代理, 第一个不可信的地址即为客户端地址 (最左边的地址仍然可能是客户端伪造的).
+ * <p>
+ * 可信代理的范围只支持 IPv4 (及 IPv4-mapped IPv6) 地址
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class ClientAddressResolver {
+
+    private final ApplicationProperties.ClientAddress properties;
+
+    private volatile IpRangeIndex trustedProxies;
+
+    public ClientAddressResolver(ApplicationProperties properties) {
+        this.properties = properties.getClientAddress();
+        reload();
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void reload() {
+        List<String> ranges = properties.getTrustedProxies();
+        trustedProxies = ranges == null || ranges.isEmpty() ? IpRangeIndex.EMPTY : IpRangeIndex.of(ranges);
+    }
+
+    public String resolve(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        // getHostString 不会触发反向域名解析
+        String remote = remoteAddress == null ? StringUtils.EMPTY : remoteAddress.getHostString();
+        if (!isTrusted(remote)) {
+            return remote;
+        }
+        for (String name : HttpUtils.HEADER_NAMES_FOR_CLIENT_ID) {
+            String forwarded = forwarded(request.getHeaders().get(name));
+            if (forwarded != null) {
+                return forwarded;
+            }
+        }
+        return remote;
+    }
+
+    private String forwarded(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        String leftmost = null;
+        // 多个同名请求头按出现的顺序拼接, 最后一个由最近的代理添加
+        for (int i = values.size() - 1; i >= 0; i--) {
+            String[] addresses = StringUtils.split(values.get(i), ',');
+            for (int j = addresses.length - 1; j >= 0; j--) {
+                String address = addresses[j].trim();
+                if (address.isEmpty() || StringUtils.equalsIgnoreCase("unknown", address)) {
+                    continue;
+                }
+                if (!isTrusted(address)) {
+                    return address;
+                }
+                leftmost = address;
+            }
+        }
+        return leftmost;
+    }
+
+    private boolean isTrusted(String address) {
+        return !address.isEmpty() && trustedProxies.contains(IpAddresses.parseIpv4(address));
+    }
+
+}
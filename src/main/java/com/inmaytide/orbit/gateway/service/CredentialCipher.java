@@ -0,0 +1,116 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.utils.CodecUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 使用 {@link CodecUtils#RSA_PRIVATE_KEY} 解密客户端提交的凭证 (登录密码, 扫码登录的二维码内容)
+ * <p>
+ * 与 {@link CodecUtils#decrypt(String, String)} 的区别是私钥只解析一次, {@link Cipher} 实例放在对象池中复用, 不依赖线程, 虚拟线程下同样有效;
+ * 只有私钥无法解析时才退回 {@link CodecUtils#decrypt(String, String)}; 解密失败 (内容长度不正确, 填充错误等) 时直接抛出异常,
+ * 不再用同一私钥重复一次 RSA 运算.
+ * <p>
+ * RSA 解密是 CPU 密集的操作, 调用方需要在 {@link BlockingOperations} 中调用, 而不是在 Netty 线程上
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public final class CredentialCipher {
+
+    private static final Logger log = LoggerFactory.getLogger(CredentialCipher.class);
+
+    private static final String TRANSFORMATION = "RSA/ECB/PKCS1Padding";
+
+    private static final int MAXIMUM_POOLED = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final Queue<Cipher> POOL = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private static final RSAPrivateKey PRIVATE_KEY = parse(CodecUtils.RSA_PRIVATE_KEY);
+
+    private static final int BLOCK_SIZE = PRIVATE_KEY == null ? 0 : (PRIVATE_KEY.getModulus().bitLength() + 7) / 8;
+
+    private CredentialCipher() {
+    }
+
+    /**
+     * @throws IllegalArgumentException 内容不是 Base64 编码或长度不是分组长度的整数倍
+     * @throws GeneralSecurityException 解密失败, 如 {@link javax.crypto.BadPaddingException}
+     */
+    public static String decrypt(String content) throws Exception {
+        if (PRIVATE_KEY == null) {
+            return CodecUtils.decrypt(content, CodecUtils.RSA_PRIVATE_KEY);
+        }
+        return decrypt(Base64.getMimeDecoder().decode(content));
+    }
+
+    private static String decrypt(byte[] encrypted) throws GeneralSecurityException {
+        if (encrypted.length == 0 || encrypted.length % BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("Encrypted content length " + encrypted.length + " is not a multiple of " + BLOCK_SIZE);
+        }
+        Cipher cipher = borrow();
+        String result;
+        if (encrypted.length == BLOCK_SIZE) {
+            result = new String(cipher.doFinal(encrypted), StandardCharsets.UTF_8);
+        } else {
+            // 超过一个分组长度的内容按分组依次解密
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream(encrypted.length);
+            for (int offset = 0; offset < encrypted.length; offset += BLOCK_SIZE) {
+                decrypted.writeBytes(cipher.doFinal(encrypted, offset, BLOCK_SIZE));
+            }
+            result = decrypted.toString(StandardCharsets.UTF_8);
+        }
+        // 解密失败的实例直接丢弃, 不确定其状态
+        release(cipher);
+        return result;
+    }
+
+    private static Cipher borrow() throws GeneralSecurityException {
+        Cipher cipher = POOL.poll();
+        if (cipher != null) {
+            POOLED.decrementAndGet();
+            return cipher;
+        }
+        cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, PRIVATE_KEY);
+        return cipher;
+    }
+
+    /**
+     * {@link Cipher#doFinal(byte[])} 结束后实例回到初始化后的状态, 可以直接复用; 池满时丢弃
+     */
+    private static void release(Cipher cipher) {
+        if (POOLED.incrementAndGet() <= MAXIMUM_POOLED) {
+            POOL.offer(cipher);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+
+    private static RSAPrivateKey parse(String key) {
+        try {
+            String encoded = StringUtils.deleteWhitespace(key.replaceAll("-----[A-Z ]+-----", ""));
+            PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(encoded));
+            return (RSAPrivateKey) KeyFactory.getInstance("RSA").generatePrivate(spec);
+        } catch (Exception e) {
+            log.warn("Unable to parse the RSA private key, credentials will be decrypted by CodecUtils, Cause by: {}", e.getMessage());
+            return null;
+        }
+    }
+
+}
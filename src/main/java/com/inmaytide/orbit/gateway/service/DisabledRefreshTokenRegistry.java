@@ -0,0 +1,207 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 被强制下线的 refresh_token ({@link Constants.CacheNames#DISABLED_REFRESH_TOKEN}) 在网关本地的副本
+ * <p>
+ * 本地只保存 refresh_token 的 64 位指纹, 启动时及每隔 {@link ApplicationProperties.DisabledRefreshTokens#getResyncInterval()} 通过 <code>SCAN</code> 全量同步,
+ * 期间通过 keyspace notifications 增量同步. 绝大多数 refresh_token 都不在其中, 这类请求在本地即可得出结论;
+ * 只有指纹命中(可能存在)时才需要再查询 Redis 确认
+ * <p>
+ * 本地副本未完成同步, 订阅中断或 Redis 服务端没有开启所需的 keyspace notifications 时, 所有查询都视为可能存在, 退化为直接查询 Redis.
+ * 订阅本身不能说明服务端会发送通知, 因此每次全量同步前都通过 <code>CONFIG GET notify-keyspace-events</code> 检查配置;
+ * 无法执行 <code>CONFIG</code> 命令 (如托管的 Redis 禁用了该命令) 时同样退化为直接查询 Redis
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class DisabledRefreshTokenRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(DisabledRefreshTokenRegistry.class);
+
+    private static final String KEYSPACE_CHANNEL_PREFIX = "__keyspace@*__:";
+
+    static final String NOTIFY_KEYSPACE_EVENTS = "notify-keyspace-events";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
+
+    private final ApplicationProperties.DisabledRefreshTokens properties;
+
+    private final String keyPrefix = ReactiveValueCaches.getCacheKey(Constants.CacheNames.DISABLED_REFRESH_TOKEN, "");
+
+    private volatile Set<Long> fingerprints = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 全量同步过程中正在构建的副本, 同步期间的增量通知需要同时写入; 与 {@link #fingerprints} 的替换在同一个锁中进行
+     */
+    private Set<Long> rebuilding;
+
+    private final Object lock = new Object();
+
+    private volatile boolean ready = false;
+
+    private Disposable subscription;
+
+    public DisabledRefreshTokenRegistry(ReactiveStringRedisTemplate redisTemplate, ReactiveRedisMessageListenerContainer listenerContainer, ApplicationProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.properties = properties.getDisabledRefreshTokens();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!properties.isReplicated()) {
+            return;
+        }
+        subscription = listenerContainer.receiveLater(PatternTopic.of(KEYSPACE_CHANNEL_PREFIX + keyPrefix + "*"))
+                .flatMapMany(messages -> Flux.merge(
+                        messages.doOnNext(this::apply).then(),
+                        Flux.interval(Duration.ZERO, properties.getResyncInterval()).onBackpressureDrop().concatMap(i -> resync())
+                ))
+                .doOnError(e -> ready = false)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1))
+                        .doBeforeRetry(signal -> log.warn("Disabled refresh token replication was interrupted, Cause by: ", signal.failure())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        ready = false;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * @return <code>false</code> 表示该 refresh_token 一定没有被强制下线, <code>true</code> 表示可能被强制下线, 需要查询 Redis 确认
+     */
+    public boolean mightBeDisabled(String refreshToken) {
+        return !ready || fingerprints.contains(fingerprint(refreshToken));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return fingerprints.size();
+    }
+
+    void apply(ReactiveSubscription.Message<String, String> message) {
+        String refreshToken = StringUtils.removeStart(StringUtils.substringAfter(message.getChannel(), "__:"), keyPrefix);
+        switch (message.getMessage()) {
+            case "set" -> add(refreshToken);
+            case "del", "expired", "evicted" -> remove(refreshToken);
+            default -> {
+            }
+        }
+    }
+
+    private void add(String refreshToken) {
+        long fingerprint = fingerprint(refreshToken);
+        synchronized (lock) {
+            fingerprints.add(fingerprint);
+            if (rebuilding != null) {
+                rebuilding.add(fingerprint);
+            }
+        }
+    }
+
+    private void remove(String refreshToken) {
+        long fingerprint = fingerprint(refreshToken);
+        synchronized (lock) {
+            fingerprints.remove(fingerprint);
+            if (rebuilding != null) {
+                rebuilding.remove(fingerprint);
+            }
+        }
+    }
+
+    Mono<Void> resync() {
+        return isNotificationEnabled().flatMap(enabled -> {
+            if (!enabled) {
+                ready = false;
+                return Mono.empty();
+            }
+            Set<Long> building = ConcurrentHashMap.newKeySet();
+            synchronized (lock) {
+                rebuilding = building;
+            }
+            return redisTemplate.scan(ScanOptions.scanOptions().match(keyPrefix + "*").count(1000).build())
+                    .doOnNext(key -> building.add(fingerprint(StringUtils.removeStart(key, keyPrefix))))
+                    .doOnError(e -> {
+                        synchronized (lock) {
+                            rebuilding = null;
+                        }
+                    })
+                    .then(Mono.fromRunnable(() -> {
+                        synchronized (lock) {
+                            fingerprints = building;
+                            rebuilding = null;
+                        }
+                        ready = true;
+                        log.debug("Disabled refresh tokens resynchronized, {} entries", building.size());
+                    }));
+        });
+    }
+
+    /**
+     * 需要 keyspace 事件 (<code>K</code>) 以及 <code>set</code> (<code>$</code>), <code>del</code> (<code>g</code>),
+     * <code>expired</code> (<code>x</code>), <code>evicted</code> (<code>e</code>) 事件, <code>A</code> 包含后四者
+     */
+    private Mono<Boolean> isNotificationEnabled() {
+        return redisTemplate.execute(connection -> connection.serverCommands().getConfig(NOTIFY_KEYSPACE_EVENTS))
+                .next()
+                .map(config -> {
+                    String flags = StringUtils.defaultString(config.getProperty(NOTIFY_KEYSPACE_EVENTS));
+                    boolean enabled = StringUtils.contains(flags, 'K')
+                            && (StringUtils.contains(flags, 'A') || "g$xe".chars().allMatch(event -> flags.indexOf(event) >= 0));
+                    if (!enabled) {
+                        log.warn("Redis notify-keyspace-events is \"{}\", disabled refresh tokens will be checked in Redis", flags);
+                    }
+                    return enabled;
+                })
+                .defaultIfEmpty(false)
+                .onErrorResume(e -> {
+                    log.warn("Unable to read Redis notify-keyspace-events, disabled refresh tokens will be checked in Redis, Cause by: {}", e.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * 64 位 FNV-1a, 指纹冲突只会造成一次多余的 Redis 查询
+     */
+    static long fingerprint(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+}
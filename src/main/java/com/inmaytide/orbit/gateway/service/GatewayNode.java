@@ -0,0 +1,77 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * 当前网关节点的标识, 用于将扫码登录的结果直接投递到持有 WebSocket 会话的节点
+ * <p>
+ * 二维码中的会话标识为 <code>节点标识~会话标识</code>, 扫码结果的路由键为 {@link #getRoutingKey()};
+ * 每个节点声明自己的自动删除队列并只绑定自己的路由键, 集群中任意节点收到的扫码结果都不需要广播
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class GatewayNode {
+
+    private static final Logger log = LoggerFactory.getLogger(GatewayNode.class);
+
+    public static final String ROUTE_KEY_PREFIX = "orbit.queue.scan.code.login.result.";
+
+    private static final char SEPARATOR = '~';
+
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+    private final String id;
+
+    public GatewayNode(ApplicationProperties properties) {
+        String configured = properties.getScanCode().getNodeId();
+        if (StringUtils.isNotBlank(configured) && !VALID_ID.matcher(configured).matches()) {
+            throw new IllegalArgumentException("Invalid gateway node id \"" + configured + "\"");
+        }
+        this.id = StringUtils.isNotBlank(configured) ? configured : Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 16);
+        log.info("Gateway node id is \"{}\"", id);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRoutingKey() {
+        return ROUTE_KEY_PREFIX + id;
+    }
+
+    /**
+     * @return 带有当前节点标识的会话标识
+     */
+    public String qualify(String sessionId) {
+        return id + SEPARATOR + sessionId;
+    }
+
+    /**
+     * @return 持有会话的节点的路由键, 会话标识中没有节点标识 (升级前生成的二维码) 时返回 <code>null</code>
+     */
+    @Nullable
+    public static String routingKeyOf(@Nullable String qualifiedSessionId) {
+        int index = StringUtils.indexOf(qualifiedSessionId, SEPARATOR);
+        return index > 0 ? ROUTE_KEY_PREFIX + qualifiedSessionId.substring(0, index) : null;
+    }
+
+    /**
+     * @return 去掉节点标识后的会话标识
+     */
+    @Nullable
+    public static String localSessionId(@Nullable String qualifiedSessionId) {
+        int index = StringUtils.indexOf(qualifiedSessionId, SEPARATOR);
+        return index < 0 ? qualifiedSessionId : qualifiedSessionId.substring(index + 1);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.inmaytide.orbit.gateway.service;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.lang.Nullable;
+
+/**
+ * IP 地址的解析, 不抛出异常
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public final class IpAddresses {
+
+    private IpAddresses() {
+
+    }
+
+    /**
+     * 解析 IPv4 地址, 兼容 IPv4-mapped IPv6 地址
+     *
+     * @return 无法解析时返回 <code>-1</code>
+     */
+    public static long parseIpv4(String ipAddress) {
+        int start = ipAddress.startsWith("::ffff:") ? 7 : 0;
+        long ip = 0;
+        int parts = 0;
+        int value = -1;
+        for (int i = start; i <= ipAddress.length(); i++) {
+            char c = i < ipAddress.length() ? ipAddress.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || ++parts > 4) {
+                    return -1;
+                }
+                ip = ip << 8 | value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        return parts == 4 ? ip : -1;
+    }
+
+    /**
+     * 解析 IPv4 地址范围, 支持 <code>a.b.c.d</code>, <code>a.b.c.d/n</code> 和 <code>a.b.c.d-e.f.g.h</code>
+     *
+     * @return <code>{起始地址, 结束地址}</code>, 无法解析时返回 <code>null</code>
+     */
+    @Nullable
+    public static long[] parseRange(String range) {
+        String value = range.trim();
+        int slash = value.indexOf('/');
+        if (slash >= 0) {
+            long address = parseIpv4(value.substring(0, slash));
+            int prefixLength = NumberUtils.toInt(value.substring(slash + 1), -1);
+            if (address < 0 || prefixLength < 0 || prefixLength > 32) {
+                return null;
+            }
+            long mask = prefixLength == 0 ? 0 : (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
+            return new long[]{address & mask, (address & mask) | (~mask & 0xFFFFFFFFL)};
+        }
+        int dash = value.indexOf('-');
+        if (dash >= 0) {
+            long start = parseIpv4(value.substring(0, dash).trim());
+            long end = parseIpv4(value.substring(dash + 1).trim());
+            return start < 0 || end < start ? null : new long[]{start, end};
+        }
+        long address = parseIpv4(value);
+        return address < 0 ? null : new long[]{address, address};
+    }
+
+}
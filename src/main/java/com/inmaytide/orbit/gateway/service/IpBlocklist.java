@@ -0,0 +1,156 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 网关全局的 IP 黑名单
+ * <p>
+ * 由两部分组成, 都以 {@link IpRangeIndex} 保存并在修改时整体替换:
+ * <ul>
+ *     <li>配置的名单: {@link ApplicationProperties.IpBlocklist#getFile()} 和 {@link ApplicationProperties.IpBlocklist#getRanges()},
+ *     文件变化或配置刷新后重新加载</li>
+ *     <li>运行时通过 {@link #block(String)} / {@link #unblock(String)} 增量维护的名单, 仅对当前节点生效, 重新加载配置的名单时保留</li>
+ * </ul>
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class IpBlocklist {
+
+    private static final Logger log = LoggerFactory.getLogger(IpBlocklist.class);
+
+    private static final String COMMENT = "#";
+
+    private final ApplicationProperties.IpBlocklist properties;
+
+    private volatile IpRangeIndex configured = IpRangeIndex.EMPTY;
+
+    private volatile IpRangeIndex runtime = IpRangeIndex.EMPTY;
+
+    private volatile FileTime fileModified;
+
+    private Disposable reloading;
+
+    public IpBlocklist(ApplicationProperties properties) {
+        this.properties = properties.getIpBlocklist();
+    }
+
+    @PostConstruct
+    public void load() {
+        reload();
+        if (StringUtils.isNotBlank(properties.getFile())) {
+            Path path = Path.of(properties.getFile());
+            reloading = Flux.interval(properties.getReloadInterval(), Schedulers.boundedElastic())
+                    .subscribe(i -> reloadIfModified(path));
+        }
+    }
+
+    @PreDestroy
+    public void stopReloading() {
+        if (reloading != null) {
+            reloading.dispose();
+        }
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public synchronized void reload() {
+        if (!properties.isEnabled()) {
+            configured = IpRangeIndex.EMPTY;
+            return;
+        }
+        List<String> ranges = new ArrayList<>();
+        if (properties.getRanges() != null) {
+            ranges.addAll(properties.getRanges());
+        }
+        if (StringUtils.isNotBlank(properties.getFile())) {
+            Path path = Path.of(properties.getFile());
+            try (Stream<String> lines = Files.lines(path)) {
+                fileModified = Files.getLastModifiedTime(path);
+                lines.map(String::trim).filter(line -> !line.isEmpty() && !line.startsWith(COMMENT)).forEach(ranges::add);
+            } catch (IOException e) {
+                log.error("Failed to read ip blocklist file \"{}\", keep using the previous blocklist, Cause by: ", path, e);
+                return;
+            }
+        }
+        configured = IpRangeIndex.of(ranges);
+        log.info("Ip blocklist loaded, {} ranges after merging", configured.size());
+    }
+
+    private void reloadIfModified(Path path) {
+        try {
+            if (!Files.getLastModifiedTime(path).equals(fileModified)) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to check ip blocklist file \"{}\", Cause by: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * @param address {@link IpAddresses#parseIpv4(String)} 的结果
+     */
+    public boolean isBlocked(long address) {
+        return properties.isEnabled() && (configured.contains(address) || runtime.contains(address));
+    }
+
+    /**
+     * 在当前节点运行时增加黑名单
+     *
+     * @return 无法解析时返回 <code>false</code>
+     */
+    public synchronized boolean block(String range) {
+        long[] parsed = IpAddresses.parseRange(range);
+        if (parsed == null) {
+            return false;
+        }
+        runtime = runtime.with(parsed[0], parsed[1]);
+        return true;
+    }
+
+    /**
+     * 移除运行时增加的黑名单, 配置的名单需要修改配置
+     *
+     * @return 无法解析时返回 <code>false</code>
+     */
+    public synchronized boolean unblock(String range) {
+        long[] parsed = IpAddresses.parseRange(range);
+        if (parsed == null) {
+            return false;
+        }
+        runtime = runtime.without(parsed[0], parsed[1]);
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int configuredSize() {
+        return configured.size();
+    }
+
+    public int runtimeSize() {
+        return runtime.size();
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.lionsoul.ip2region.xdb.Searcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * 基于 ip2region xdb 的 IP 地址归属地查询
+ * <ul>
+ *     <li>xdb 文件通过内存映射读取, 不占用堆内存</li>
+ *     <li>配置了 {@link ApplicationProperties.Geolocation#getDatabase()} 时定期检查文件, 文件变化后加载新文件并原子替换, 无需重启</li>
+ *     <li>每个 IP 地址解析后的归属地缓存在本地, 重复查询不再访问 xdb</li>
+ *     <li>IPv6 或格式错误的 IP 地址直接返回 {@link Constants.Markers#NOT_APPLICABLE}, 不抛出异常</li>
+ * </ul>
+ * 查询过程与 {@link Searcher#search(long)} 一致, 仅支持 IPv4 的 xdb 文件
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class IpGeolocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(IpGeolocationService.class);
+
+    private static final String CLASSPATH_DATABASE = "ip2region.xdb";
+
+    private static final String LAN = "内网IP";
+
+    private static final String EMPTY_FIELD = "0";
+
+    private static final int MIN_DATABASE_SIZE = Searcher.HeaderInfoLength + Searcher.VectorIndexRows * Searcher.VectorIndexCols * Searcher.VectorIndexSize;
+
+    private final ApplicationProperties.Geolocation properties;
+
+    private volatile Database database;
+
+    private Disposable reloading;
+
+    public IpGeolocationService(ApplicationProperties properties) {
+        this.properties = properties.getGeolocation();
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (StringUtils.isBlank(properties.getDatabase())) {
+            try (InputStream in = new ClassPathResource(CLASSPATH_DATABASE).getInputStream()) {
+                database = map(in, FileTime.fromMillis(0));
+            }
+            return;
+        }
+        Path path = Path.of(properties.getDatabase());
+        database = open(path);
+        reloading = Flux.interval(properties.getReloadInterval(), Schedulers.boundedElastic())
+                .subscribe(i -> reloadIfModified(path));
+    }
+
+    @PreDestroy
+    public void stopReloading() {
+        if (reloading != null) {
+            reloading.dispose();
+        }
+    }
+
+    /**
+     * @return 国家-省份/城市, 内网地址返回 {@link Constants.Markers#LAN}, 无法查询时返回 {@link Constants.Markers#NOT_APPLICABLE}
+     */
+    public String search(@Nullable String ipAddress) {
+        if (StringUtils.isBlank(ipAddress)) {
+            return Constants.Markers.NOT_APPLICABLE;
+        }
+        Database current = database;
+        return current.cache.get(ipAddress, current::lookup);
+    }
+
+    /**
+     * 重新加载 {@link ApplicationProperties.Geolocation#getDatabase()}, 新文件无效时继续使用原来的文件
+     */
+    public synchronized void reload() {
+        if (StringUtils.isBlank(properties.getDatabase())) {
+            return;
+        }
+        Path path = Path.of(properties.getDatabase());
+        try {
+            database = open(path);
+            log.info("ip2region database \"{}\" reloaded", path);
+        } catch (Exception e) {
+            log.error("Failed to reload ip2region database \"{}\", keep using the previous one, Cause by: ", path, e);
+        }
+    }
+
+    private void reloadIfModified(Path path) {
+        try {
+            Database current = database;
+            if (!Files.getLastModifiedTime(path).equals(current.modified) || Files.size(path) != current.buffer.capacity()) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to check ip2region database \"{}\", Cause by: {}", path, e.getMessage());
+        }
+    }
+
+    private Database open(Path path) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        try (InputStream in = Files.newInputStream(path)) {
+            return map(in, modified);
+        }
+    }
+
+    /**
+     * 映射的是数据库文件的私有副本, 原文件被原地覆盖或截断时不会影响正在使用的映射
+     */
+    private Database map(InputStream in, FileTime modified) throws IOException {
+        Path copy = Files.createTempFile("ip2region", ".xdb");
+        try {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.READ)) {
+                if (channel.size() < MIN_DATABASE_SIZE || channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Invalid ip2region database size " + channel.size());
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                return new Database(buffer, modified, Caffeine.newBuilder().maximumSize(properties.getCacheSize()).build());
+            }
+        } finally {
+            // 已经建立的映射在文件删除后仍然有效, 不支持删除已映射文件的系统在退出时删除
+            try {
+                Files.deleteIfExists(copy);
+            } catch (IOException e) {
+                copy.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * 将 ip2region 的查询结果 (国家|区域|省份|城市|ISP) 转换为 国家-最小的行政区划
+     */
+    static String toGeolocation(String region) {
+        int end = region.lastIndexOf('|');
+        while (end > 0) {
+            int start = region.lastIndexOf('|', end - 1) + 1;
+            String field = region.substring(start, end);
+            if (LAN.equalsIgnoreCase(field)) {
+                return Constants.Markers.LAN;
+            }
+            if (!EMPTY_FIELD.equals(field)) {
+                return start == 0 ? field : region.substring(0, region.indexOf('|')) + "-" + field;
+            }
+            end = start - 1;
+        }
+        return Constants.Markers.NOT_APPLICABLE;
+    }
+
+    private static final class Database {
+
+        private final MappedByteBuffer buffer;
+
+        private final FileTime modified;
+
+        private final Cache<String, String> cache;
+
+        private Database(MappedByteBuffer buffer, FileTime modified, Cache<String, String> cache) {
+            this.buffer = buffer;
+            this.modified = modified;
+            this.cache = cache;
+        }
+
+        private String lookup(String ipAddress) {
+            long ip = IpAddresses.parseIpv4(ipAddress);
+            if (ip < 0) {
+                return Constants.Markers.NOT_APPLICABLE;
+            }
+            try {
+                String region = search(ip);
+                return region == null || region.isEmpty() ? Constants.Markers.NOT_APPLICABLE : toGeolocation(region);
+            } catch (IndexOutOfBoundsException e) {
+                log.warn("Corrupted ip2region database, failed to search ip address \"{}\"", ipAddress);
+                return Constants.Markers.NOT_APPLICABLE;
+            }
+        }
+
+        @Nullable
+        private String search(long ip) {
+            int il0 = (int) (ip >> 24 & 0xFF);
+            int il1 = (int) (ip >> 16 & 0xFF);
+            int index = Searcher.HeaderInfoLength + il0 * Searcher.VectorIndexCols * Searcher.VectorIndexSize + il1 * Searcher.VectorIndexSize;
+            int startPtr = buffer.getInt(index);
+            int endPtr = buffer.getInt(index + 4);
+            int low = 0;
+            int high = (endPtr - startPtr) / Searcher.SegmentIndexSize;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int pointer = startPtr + middle * Searcher.SegmentIndexSize;
+                long startIp = Integer.toUnsignedLong(buffer.getInt(pointer));
+                if (ip < startIp) {
+                    high = middle - 1;
+                    continue;
+                }
+                long endIp = Integer.toUnsignedLong(buffer.getInt(pointer + 4));
+                if (ip > endIp) {
+                    low = middle + 1;
+                    continue;
+                }
+                int dataLength = Short.toUnsignedInt(buffer.getShort(pointer + 8));
+                int dataPtr = buffer.getInt(pointer + 10);
+                byte[] data = new byte[dataLength];
+                buffer.get(dataPtr, data);
+                return new String(data, StandardCharsets.UTF_8);
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.inmaytide.orbit.gateway.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 不可变的 IPv4 地址范围集合, 查询一个地址是否属于其中任意范围
+ * <p>
+ * 范围在构建时排序并合并重叠/相邻的部分, 以两个 <code>int[]</code> (无符号) 保存起止地址, 每个范围占 8 字节;
+ * {@link #contains(long)} 为二分查找, 不分配对象. 修改 ({@link #with(long, long)}, {@link #without(long, long)}) 返回新的集合
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public final class IpRangeIndex {
+
+    public static final IpRangeIndex EMPTY = new IpRangeIndex(new int[0], new int[0]);
+
+    private static final long MAX_ADDRESS = 0xFFFFFFFFL;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private IpRangeIndex(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * 无法解析的范围被忽略, 支持的格式见 {@link IpAddresses#parseRange(String)}
+     */
+    public static IpRangeIndex of(Collection<String> ranges) {
+        long[] packed = new long[ranges.size()];
+        int count = 0;
+        for (String range : ranges) {
+            long[] parsed = range == null ? null : IpAddresses.parseRange(range);
+            if (parsed != null) {
+                packed[count++] = pack(parsed[0], parsed[1]);
+            }
+        }
+        return build(packed, count);
+    }
+
+    public boolean contains(long address) {
+        if (address < 0 || address > MAX_ADDRESS) {
+            return false;
+        }
+        int key = (int) address;
+        int low = 0;
+        int high = starts.length - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (Integer.compareUnsigned(starts[middle], key) <= 0) {
+                candidate = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return candidate >= 0 && Integer.compareUnsigned(key, ends[candidate]) <= 0;
+    }
+
+    /**
+     * @return 增加了 <code>[start, end]</code> 的新集合
+     */
+    public IpRangeIndex with(long start, long end) {
+        long[] packed = new long[starts.length + 1];
+        for (int i = 0; i < starts.length; i++) {
+            packed[i] = pack(Integer.toUnsignedLong(starts[i]), Integer.toUnsignedLong(ends[i]));
+        }
+        packed[starts.length] = pack(start, end);
+        return build(packed, packed.length);
+    }
+
+    /**
+     * @return 移除了 <code>[start, end]</code> 的新集合, 部分重叠的范围被截断
+     */
+    public IpRangeIndex without(long start, long end) {
+        int[] newStarts = new int[starts.length + 1];
+        int[] newEnds = new int[starts.length + 1];
+        int count = 0;
+        for (int i = 0; i < starts.length; i++) {
+            long s = Integer.toUnsignedLong(starts[i]);
+            long e = Integer.toUnsignedLong(ends[i]);
+            if (e < start || s > end) {
+                newStarts[count] = starts[i];
+                newEnds[count++] = ends[i];
+                continue;
+            }
+            if (s < start) {
+                newStarts[count] = (int) s;
+                newEnds[count++] = (int) (start - 1);
+            }
+            if (e > end) {
+                newStarts[count] = (int) (end + 1);
+                newEnds[count++] = (int) e;
+            }
+        }
+        return new IpRangeIndex(Arrays.copyOf(newStarts, count), Arrays.copyOf(newEnds, count));
+    }
+
+    /**
+     * @return 合并后的范围数量
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * 起始地址在高 32 位, 翻转符号位后按有符号数排序即为按起始地址排序
+     */
+    private static long pack(long start, long end) {
+        return (start << 32 | end) ^ Long.MIN_VALUE;
+    }
+
+    private static IpRangeIndex build(long[] packed, int count) {
+        Arrays.sort(packed, 0, count);
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            long value = packed[i] ^ Long.MIN_VALUE;
+            long start = value >>> 32;
+            long end = value & MAX_ADDRESS;
+            if (size > 0 && start <= Integer.toUnsignedLong(ends[size - 1]) + 1) {
+                if (end > Integer.toUnsignedLong(ends[size - 1])) {
+                    ends[size - 1] = (int) end;
+                }
+                continue;
+            }
+            starts[size] = (int) start;
+            ends[size++] = (int) end;
+        }
+        return new IpRangeIndex(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size));
+    }
+
+}
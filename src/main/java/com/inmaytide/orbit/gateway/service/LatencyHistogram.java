@@ -0,0 +1,119 @@
+package com.inmaytide.orbit.gateway.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时直方图, 以微秒为单位记录
+ * <p>
+ * 桶按 2 的幂分段, 每段再等分为 {@value SUB_BUCKETS} 个子桶, 相对误差不超过 12.5%;
+ * {@link #record(long)} 只做原子累加, 不加锁也不分配对象
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 可记录的最大值约为 2^40 微秒(约 12 天), 超出的值计入最后一个桶
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9"};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_VALUE);
+        buckets.incrementAndGet(indexOf(micros));
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * 当前的统计结果, 单位为毫秒; 与并发的 {@link #record(long)} 之间不保证一致, 仅用于观测
+     */
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long maximum = max.get();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("mean", total == 0 ? 0 : toMillis(sum.sum() / (double) total));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            snapshot.put(PERCENTILE_NAMES[i], toMillis(valueAt(counts, total, PERCENTILES[i], maximum)));
+        }
+        snapshot.put("max", toMillis(maximum));
+        return snapshot;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static long valueAt(long[] counts, long total, double percentile, long maximum) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // 桶内取上界, 不超过实际记录到的最大值
+                long upper = i + 1 < counts.length ? lowerBoundOf(i + 1) - 1 : MAX_VALUE;
+                return Math.min(upper, maximum);
+            }
+        }
+        return maximum;
+    }
+
+    private static double toMillis(double micros) {
+        return Math.round(micros) / 1000.0;
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.log.OperationLogMessageProducer;
+import com.inmaytide.orbit.commons.log.domain.OperationLog;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 记录登录失败的操作日志, 合并短时间内重复的失败
+ * <p>
+ * 同一用户名, 同一 IP, 相同错误的失败在 {@link ApplicationProperties.LoginAudit#getAggregationWindow()} 内只立即记录第一次,
+ * 之后的失败只计数, 不再构建操作日志; 时间结束时若有重复的失败, 以第一次的日志为模板发送一条汇总记录.
+ * 撞库等攻击时每次失败的开销只有一次计数.
+ * <p>
+ * 合并中的记录数达到 {@link ApplicationProperties.LoginAudit#getMaximumAggregated()} 后, 所有用户名和 IP 的失败按错误代码合并,
+ * 其汇总记录不包含用户名, 请求参数和 IP, 避免把其他账号和来源的失败记在第一个用户名和 IP 上
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class LoginFailureAudit {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginFailureAudit.class);
+
+    private static final String OVERFLOW = "*";
+
+    private final Consumer<OperationLog> publisher;
+
+    private final ApplicationProperties.LoginAudit properties;
+
+    private final ConcurrentMap<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+
+    private Disposable flushing;
+
+    @Autowired
+    public LoginFailureAudit(OperationLogMessageProducer producer, ApplicationProperties properties) {
+        this(producer::produce, properties);
+    }
+
+    public LoginFailureAudit(Consumer<OperationLog> publisher, ApplicationProperties properties) {
+        this.publisher = publisher;
+        this.properties = properties.getLoginAudit();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (isAggregating()) {
+            flushing = Flux.interval(properties.getAggregationWindow(), Schedulers.boundedElastic())
+                    .subscribe(i -> flush());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushing != null) {
+            flushing.dispose();
+        }
+        flush();
+    }
+
+    /**
+     * @param code 错误代码, 与用户名和 IP 一起决定哪些失败可以合并
+     * @param log  只在需要立即记录时调用
+     */
+    public void failed(String username, String ipAddress, String code, Supplier<OperationLog> log) {
+        if (!isAggregating()) {
+            publisher.accept(log.get());
+            return;
+        }
+        boolean overflow = aggregates.size() >= properties.getMaximumAggregated();
+        String key = overflow ? OVERFLOW + '\u0000' + code : username + '\u0000' + ipAddress + '\u0000' + code;
+        while (true) {
+            Aggregate aggregate = aggregates.get(key);
+            if (aggregate == null) {
+                // 先构建模板再放入, 汇总时不会遇到还没有模板的记录
+                OperationLog first = log.get();
+                Aggregate created = new Aggregate(overflow ? neutralize(first) : first, overflow);
+                aggregate = aggregates.putIfAbsent(key, created);
+                if (aggregate == null) {
+                    publisher.accept(first);
+                    return;
+                }
+            }
+            if (aggregate.increment()) {
+                return;
+            }
+            // 该时间段已经汇总, 计入新的时间段
+            aggregates.remove(key, aggregate);
+        }
+    }
+
+    /**
+     * 发送合并的记录并开始新的时间段
+     * <p>
+     * 先关闭计数再移除, 关闭之后到达的重复失败计入新的时间段, 不会丢失
+     */
+    public void flush() {
+        for (Map.Entry<String, Aggregate> entry : aggregates.entrySet()) {
+            Aggregate aggregate = entry.getValue();
+            long repeated = aggregate.close();
+            aggregates.remove(entry.getKey(), aggregate);
+            // 没有重复的失败, 或已经被并发的汇总关闭
+            if (repeated <= 0) {
+                continue;
+            }
+            try {
+                publisher.accept(summarize(aggregate, repeated));
+            } catch (Exception e) {
+                log.warn("Failed to publish aggregated login failures, Cause by: ", e);
+            }
+        }
+    }
+
+    private OperationLog summarize(Aggregate aggregate, long repeated) {
+        OperationLog template = aggregate.template;
+        OperationLog summary = new OperationLog();
+        summary.setOperationTime(Instant.now());
+        summary.setDescription(template.getDescription());
+        summary.setBusiness(template.getBusiness());
+        summary.setChain(template.getChain());
+        summary.setPlatform(template.getPlatform());
+        summary.setPath(template.getPath());
+        summary.setHttpMethod(template.getHttpMethod());
+        summary.setClientDescription(template.getClientDescription());
+        summary.setIpAddress(template.getIpAddress());
+        summary.setResult(template.getResult());
+        summary.setArguments(template.getArguments());
+        if (aggregate.overflow) {
+            summary.setResponse(String.format("自 %s 起另有 %d 次来自多个用户名和 IP 的相同登录失败: %s", template.getOperationTime(), repeated, template.getResponse()));
+        } else {
+            summary.setResponse(String.format("自 %s 起另有 %d 次相同的登录失败: %s", template.getOperationTime(), repeated, template.getResponse()));
+        }
+        return summary;
+    }
+
+    /**
+     * 按错误代码合并时的模板, 只保留与具体用户名, IP 和请求无关的内容
+     */
+    private static OperationLog neutralize(OperationLog first) {
+        OperationLog template = new OperationLog();
+        template.setOperationTime(first.getOperationTime());
+        template.setDescription(first.getDescription());
+        template.setBusiness(first.getBusiness());
+        template.setPlatform(first.getPlatform());
+        template.setPath(first.getPath());
+        template.setHttpMethod(first.getHttpMethod());
+        template.setResult(first.getResult());
+        template.setResponse(first.getResponse());
+        return template;
+    }
+
+    private boolean isAggregating() {
+        return properties.getAggregationWindow() != null && properties.getAggregationWindow().isPositive();
+    }
+
+    private static final class Aggregate {
+
+        private static final long CLOSED = -1;
+
+        private final OperationLog template;
+
+        /**
+         * 是否为按错误代码合并所有用户名和 IP 的记录
+         */
+        private final boolean overflow;
+
+        private final AtomicLong repeated = new AtomicLong();
+
+        private Aggregate(OperationLog template, boolean overflow) {
+            this.template = template;
+            this.overflow = overflow;
+        }
+
+        /**
+         * @return 已经关闭时返回 <code>false</code>
+         */
+        private boolean increment() {
+            long current;
+            do {
+                current = repeated.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+            } while (!repeated.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        /**
+         * @return 关闭前累计的重复次数
+         */
+        private long close() {
+            return repeated.getAndSet(CLOSED);
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 按用户名统计登录失败次数, 最后一次失败 {@value LOCK_TIMES_IN_MINUTE} 分钟后清零
+ * <p>
+ * 累加通过 {@code scripts/login-failure.lua} 在 Redis 中一次完成 <code>INCR</code> 和 <code>PEXPIRE</code>, 并发的失败不会丢失;
+ * 本地保留各用户名最近一次得知的失败次数, 已达到 {@value MAXIMUM_FAILURES} 次的用户名在锁定期内直接返回本地的次数, 不再访问 Redis
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class LoginFailureCounter {
+
+    public static final String CACHE_NAME = "LOGIN_FAILURE_NUMBERS";
+
+    public static final int MAXIMUM_FAILURES = 5;
+
+    public static final int LOCK_TIMES_IN_MINUTE = 5;
+
+    private static final Duration WINDOW = Duration.ofMinutes(LOCK_TIMES_IN_MINUTE);
+
+    private static final RedisScript<Long> SCRIPT = RedisScript.of(new ClassPathResource("scripts/login-failure.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final ReactiveValueCaches caches;
+
+    private final Cache<String, Integer> locked = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(WINDOW)
+            .build();
+
+    public LoginFailureCounter(ReactiveStringRedisTemplate redisTemplate, ReactiveValueCaches caches) {
+        this.redisTemplate = redisTemplate;
+        this.caches = caches;
+    }
+
+    public Mono<Integer> get(String username) {
+        Integer known = locked.getIfPresent(username);
+        if (known != null) {
+            return Mono.just(known);
+        }
+        return caches.get(CACHE_NAME, username)
+                .map(NumberUtils::toInt)
+                .defaultIfEmpty(0)
+                .doOnNext(count -> remember(username, count));
+    }
+
+    /**
+     * @return 累加后的失败次数
+     */
+    public Mono<Integer> increment(String username) {
+        return redisTemplate.execute(SCRIPT, List.of(ReactiveValueCaches.getCacheKey(CACHE_NAME, username)), List.of(String.valueOf(WINDOW.toMillis())))
+                .next()
+                .map(Long::intValue)
+                .doOnNext(count -> remember(username, count));
+    }
+
+    public Mono<Void> reset(String username) {
+        return Mono.defer(() -> {
+            locked.invalidate(username);
+            return caches.delete(CACHE_NAME, username).then();
+        });
+    }
+
+    private void remember(String username, int count) {
+        if (count >= MAXIMUM_FAILURES) {
+            locked.asMap().merge(username, count, Math::max);
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.inmaytide.orbit.gateway.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 将短时间内到达的多个查询合并为一次批量查询, 再将结果分发给各个等待中的调用方
+ * <p>
+ * 查询在等待 {@code maxWait} 或累计到 {@code maxBatchSize} 个后执行, 以少量的等待时间换取更少的 Redis 命令数;
+ * 批量查询返回的结果需要与传入的键一一对应, 结果为 <code>null</code> 时对应的调用方得到一个空的 {@link Mono}
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public class MicroBatcher<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final Function<List<K>, Mono<List<V>>> loader;
+
+    private final boolean enabled;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final Queue<Pending<K, V>> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final DistributionSummary batchSize;
+
+    private final Timer waitTime;
+
+    public MicroBatcher(String name, Function<List<K>, Mono<List<V>>> loader, boolean enabled, int maxBatchSize, Duration maxWait, MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.batchSize = DistributionSummary.builder("gateway.redis.batch.size")
+                .tag("name", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.waitTime = Timer.builder("gateway.redis.batch.wait")
+                .tag("name", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Mono<V> load(K key) {
+        if (!enabled) {
+            return loader.apply(List.of(key)).flatMap(values -> Mono.justOrEmpty(values.get(0)));
+        }
+        return Mono.defer(() -> {
+            Pending<K, V> pending = new Pending<>(key);
+            queue.offer(pending);
+            if (queued.incrementAndGet() >= maxBatchSize) {
+                flush();
+            } else if (scheduled.compareAndSet(false, true)) {
+                Schedulers.parallel().schedule(this::flush, maxWaitNanos, TimeUnit.NANOSECONDS);
+            }
+            return pending.result.asMono();
+        });
+    }
+
+    private void flush() {
+        scheduled.set(false);
+        List<Pending<K, V>> batch;
+        while (!(batch = drain()).isEmpty()) {
+            execute(batch);
+        }
+    }
+
+    private List<Pending<K, V>> drain() {
+        List<Pending<K, V>> batch = new ArrayList<>(Math.min(queued.get(), maxBatchSize));
+        Pending<K, V> pending;
+        while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(pending);
+        }
+        return batch;
+    }
+
+    private void execute(List<Pending<K, V>> batch) {
+        long now = System.nanoTime();
+        List<K> keys = new ArrayList<>(batch.size());
+        for (Pending<K, V> pending : batch) {
+            keys.add(pending.key);
+            waitTime.record(now - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(batch.size());
+        loader.apply(keys).subscribe(values -> {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).complete(i < values.size() ? values.get(i) : null);
+            }
+        }, e -> {
+            log.warn("Batched lookup of {} keys failed, Cause by: ", batch.size(), e);
+            batch.forEach(pending -> pending.result.tryEmitError(e));
+        }, () -> batch.forEach(pending -> pending.result.tryEmitEmpty()));
+    }
+
+    private static class Pending<K, V> {
+
+        private final K key;
+
+        private final long enqueuedAt = System.nanoTime();
+
+        private final Sinks.One<V> result = Sinks.one();
+
+        private Pending(K key) {
+            this.key = key;
+        }
+
+        private void complete(@Nullable V value) {
+            if (value == null) {
+                result.tryEmitEmpty();
+            } else {
+                result.tryEmitValue(value);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 在后台提前刷新最近活跃的 access_token
+ * <p>
+ * 请求经过网关时记录其 access_token/refresh_token, 在 access_token 剩余有效时间小于 {@link ApplicationProperties.Proactive#getAhead()}
+ * (再随机提前不超过 {@link ApplicationProperties.Proactive#getJitter()}) 时通过 {@link TokenRenewalCoordinator} 刷新,
+ * 刷新结果写入 {@link com.inmaytide.orbit.commons.constants.Constants.CacheNames#TOKEN_TEMPORARY_STORE}, 之后的请求直接使用刷新后的 access_token
+ * <p>
+ * 只刷新最近 {@link ApplicationProperties.Proactive#getActivityWindow()} (不超过 {@value TokenRenewalCoordinator#TOKEN_TEMPORARY_STORE_MILLISECONDS}ms)
+ * 内有请求的 access_token, 刷新结果保留到旧 access_token 过期之后 {@value TokenRenewalCoordinator#TOKEN_TEMPORARY_STORE_MILLISECONDS}ms,
+ * 客户端在此之前携带旧 access_token 到达时都能拿到刷新结果, 不会使用已经被使用过的 refresh_token 再次刷新
+ * <p>
+ * 跟踪的 access_token 按刷新时间放入以 {@link ApplicationProperties.Proactive#getInterval()} 为粒度的时间桶,
+ * 每次只取出已经到期的时间桶, 每秒最多刷新 {@link ApplicationProperties.Proactive#getRate()} 个, 来不及在后台刷新的 access_token 留到下一次或由请求触发刷新.
+ * 已经在后台刷新过的 access_token 在过期前不再跟踪, 客户端继续携带旧 access_token 时不会重复刷新
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class ProactiveTokenRenewalScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ProactiveTokenRenewalScheduler.class);
+
+    private final TokenRenewalCoordinator renewalCoordinator;
+
+    private final ApplicationProperties.Proactive properties;
+
+    private final Cache<String, Tracked> tracked;
+
+    /**
+     * 已经在后台刷新过的 access_token -> 旧 access_token 的过期时刻, 保留到旧 access_token 过期
+     */
+    private final Cache<String, Long> renewedTokens;
+
+    /**
+     * 刷新时间所在时间桶 -> 该时间桶中的 access_token, 由自身加锁保护, 只有新跟踪 access_token 和取出到期 access_token 时需要加锁
+     */
+    private final TreeMap<Long, Set<String>> buckets = new TreeMap<>();
+
+    private final long bucketMillis;
+
+    private final Counter renewed;
+
+    private final Counter failed;
+
+    private Disposable subscription;
+
+    public ProactiveTokenRenewalScheduler(TokenRenewalCoordinator renewalCoordinator, ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.renewalCoordinator = renewalCoordinator;
+        this.properties = properties.getTokenRenewal().getProactive();
+        this.bucketMillis = Math.max(1, this.properties.getInterval().toMillis());
+        Duration activityWindow = this.properties.getActivityWindow();
+        Duration retention = Duration.ofMillis(TokenRenewalCoordinator.TOKEN_TEMPORARY_STORE_MILLISECONDS);
+        if (activityWindow.compareTo(retention) > 0) {
+            log.warn("Proactive token renewal activity window {} is longer than the renewal result retention {}, use {} instead", activityWindow, retention, retention);
+            activityWindow = retention;
+        }
+        this.tracked = Caffeine.newBuilder()
+                .maximumSize(this.properties.getMaximumTracked())
+                .expireAfterAccess(activityWindow)
+                .evictionListener((String accessToken, Tracked value, RemovalCause cause) -> {
+                    if (accessToken != null && value != null) {
+                        unschedule(accessToken, value.renewAt);
+                    }
+                })
+                .build();
+        this.renewedTokens = Caffeine.newBuilder()
+                .maximumSize(this.properties.getMaximumTracked())
+                .expireAfter(Expiry.writing((String accessToken, Long expiresAt) -> Duration.ofMillis(Math.max(0, expiresAt - System.currentTimeMillis()))))
+                .build();
+        Gauge.builder("gateway.token-renewal.proactive.tracked", tracked, Cache::estimatedSize).register(meterRegistry);
+        this.renewed = Counter.builder("gateway.token-renewal.proactive").tag("result", "renewed").register(meterRegistry);
+        this.failed = Counter.builder("gateway.token-renewal.proactive").tag("result", "failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        subscription = Flux.interval(properties.getInterval())
+                .onBackpressureDrop()
+                .concatMap(i -> renewDue())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * 记录一次携带 access_token 的请求
+     *
+     * @param expire access_token 剩余有效时间(秒)
+     */
+    public void track(String accessToken, String refreshToken, long expire) {
+        if (!properties.isEnabled() || expire <= 0 || renewedTokens.getIfPresent(accessToken) != null) {
+            return;
+        }
+        // 已跟踪的 access_token 只需要刷新访问时间
+        if (tracked.getIfPresent(accessToken) == null) {
+            long now = System.currentTimeMillis();
+            long jitter = ThreadLocalRandom.current().nextLong(properties.getJitter().toMillis() + 1);
+            long expiresAt = now + expire * 1000;
+            long renewAt = expiresAt - properties.getAhead().toMillis() - jitter;
+            tracked.put(accessToken, new Tracked(refreshToken, renewAt, expiresAt));
+            synchronized (buckets) {
+                buckets.computeIfAbsent(bucketOf(renewAt), k -> new HashSet<>()).add(accessToken);
+            }
+        }
+    }
+
+    Mono<Void> renewDue() {
+        long now = System.currentTimeMillis();
+        long budget = Math.max(1, properties.getRate() * properties.getInterval().toMillis() / 1000);
+        List<Map.Entry<String, Tracked>> due = takeDue(now, budget);
+        if (due.isEmpty()) {
+            return Mono.empty();
+        }
+        log.debug("Renewing {} access tokens in background", due.size());
+        return Flux.fromIterable(due)
+                .flatMap(entry -> {
+                    // 保留到旧 access_token 过期之后, 客户端空闲一段时间后携带旧 access_token 到达时仍能拿到刷新结果
+                    Duration retention = Duration.ofMillis(Math.max(0, entry.getValue().expiresAt - now) + TokenRenewalCoordinator.TOKEN_TEMPORARY_STORE_MILLISECONDS);
+                    return renewalCoordinator.renew(entry.getKey(), entry.getValue().refreshToken, retention)
+                            .doOnNext(token -> renewed.increment())
+                            .onErrorResume(e -> {
+                                failed.increment();
+                                log.warn("Failed to renew access token \"{}\" in background, Cause by: {}", entry.getKey(), e.getMessage());
+                                return Mono.empty();
+                            });
+                })
+                .then();
+    }
+
+    /**
+     * 按刷新时间先后取出最多 <code>budget</code> 个已经到期且仍在跟踪的 access_token, 取出后不再跟踪, 并在旧 access_token 过期前不再重新跟踪
+     */
+    private List<Map.Entry<String, Tracked>> takeDue(long now, long budget) {
+        List<Map.Entry<String, Tracked>> due = new ArrayList<>();
+        synchronized (buckets) {
+            Iterator<Set<String>> iterator = buckets.headMap(bucketOf(now), true).values().iterator();
+            while (iterator.hasNext() && due.size() < budget) {
+                Set<String> bucket = iterator.next();
+                Iterator<String> tokens = bucket.iterator();
+                while (tokens.hasNext() && due.size() < budget) {
+                    String accessToken = tokens.next();
+                    Tracked value = tracked.policy().getIfPresentQuietly(accessToken);
+                    // 已经不再活跃, 或者重新跟踪后位于更晚的时间桶中
+                    if (value == null || value.renewAt > now) {
+                        if (value == null) {
+                            tokens.remove();
+                        }
+                        continue;
+                    }
+                    tokens.remove();
+                    due.add(Map.entry(accessToken, value));
+                }
+                if (bucket.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+        // 不在持有 buckets 锁时操作缓存, 缓存的淘汰回调同样需要获取 buckets 锁
+        due.forEach(entry -> {
+            renewedTokens.put(entry.getKey(), entry.getValue().expiresAt);
+            tracked.invalidate(entry.getKey());
+        });
+        return due;
+    }
+
+    private void unschedule(String accessToken, long renewAt) {
+        synchronized (buckets) {
+            long bucket = bucketOf(renewAt);
+            Set<String> tokens = buckets.get(bucket);
+            if (tokens != null && tokens.remove(accessToken) && tokens.isEmpty()) {
+                buckets.remove(bucket);
+            }
+        }
+    }
+
+    private long bucketOf(long timestamp) {
+        return timestamp / bucketMillis;
+    }
+
+    private record Tracked(String refreshToken, long renewAt, long expiresAt) {
+
+    }
+
+}
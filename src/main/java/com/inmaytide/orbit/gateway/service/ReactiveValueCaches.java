@@ -0,0 +1,59 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link com.inmaytide.orbit.commons.utils.ValueCaches} 的非阻塞版本, 供运行在 Netty 事件循环线程上的过滤器使用
+ * <p>
+ * 缓存键的组织方式与 {@link com.inmaytide.orbit.commons.utils.ValueCaches} 保持一致, 两者读写的是同一份数据;
+ * 开启 {@link ApplicationProperties.RedisBatching#isEnabled()} 后, 并发的 {@link #get(String, String)} 会被合并为 <code>MGET</code>
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class ReactiveValueCaches {
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final MicroBatcher<String, String> lookups;
+
+    public ReactiveValueCaches(ReactiveStringRedisTemplate redisTemplate, ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        ApplicationProperties.RedisBatching batching = properties.getRedisBatching();
+        this.lookups = new MicroBatcher<>("value-caches", keys -> redisTemplate.opsForValue().multiGet(keys), batching.isEnabled(), batching.getMaxBatchSize(), batching.getMaxWait(), meterRegistry);
+    }
+
+    public static String getCacheKey(String cacheName, String key) {
+        return cacheName + "::" + key;
+    }
+
+    public Mono<String> get(String cacheName, String key) {
+        return lookups.load(getCacheKey(cacheName, key));
+    }
+
+    /**
+     * 获取缓存剩余的有效时间(秒), 缓存不存在或未设置有效时间时返回 <code>0</code>
+     */
+    public Mono<Long> getExpire(String cacheName, String key) {
+        return redisTemplate.getExpire(getCacheKey(cacheName, key))
+                .map(Duration::getSeconds)
+                .defaultIfEmpty(0L);
+    }
+
+    public Mono<Boolean> put(String cacheName, String key, String value, long timeout, TimeUnit unit) {
+        return redisTemplate.opsForValue().set(getCacheKey(cacheName, key), value, Duration.ofMillis(unit.toMillis(timeout)));
+    }
+
+    public Mono<Boolean> delete(String cacheName, String key) {
+        return redisTemplate.delete(getCacheKey(cacheName, key)).map(count -> count > 0);
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.inmaytide.orbit.gateway.service;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按路由统计经过网关的请求, 以路由标识和 <code>lb://</code> 服务名区分
+ * <p>
+ * 每个路由的 {@link Stats} 在第一次请求时创建, 之后的记录只做原子累加, 不加锁也不分配对象
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class RouteMetrics {
+
+    private static final String NO_SERVICE = "-";
+
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public Stats get(Route route) {
+        String service = getService(route.getUri());
+        Stats current = stats.get(route.getId());
+        if (current != null && current.service.equals(service)) {
+            return current;
+        }
+        // 首次请求或路由刷新后指向了其他服务
+        return stats.compute(route.getId(), (id, existing) -> existing != null && existing.service.equals(service) ? existing : new Stats(id, service));
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        stats.forEach((id, value) -> snapshot.put(id, value.snapshot()));
+        return snapshot;
+    }
+
+    public Map<String, Object> snapshot(String routeId) {
+        Stats value = stats.get(routeId);
+        return value == null ? Map.of() : value.snapshot();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private static String getService(URI uri) {
+        return Objects.equals(uri.getScheme(), "lb") && uri.getHost() != null ? uri.getHost() : NO_SERVICE;
+    }
+
+    public static class Stats {
+
+        private static final int MAX_STATUS = 600;
+
+        private final String routeId;
+
+        private final String service;
+
+        private final LongAdder requests = new LongAdder();
+
+        private final LongAdder inFlight = new LongAdder();
+
+        /**
+         * 在网关过滤器链中抛出的异常, 其响应状态由异常处理器决定, 不计入 {@link #statuses}
+         */
+        private final LongAdder errors = new LongAdder();
+
+        private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+
+        private final LongAdder requestBytes = new LongAdder();
+
+        private final LongAdder responseBytes = new LongAdder();
+
+        /**
+         * 网关收到请求到处理结束的总耗时
+         */
+        private final LatencyHistogram total = new LatencyHistogram();
+
+        /**
+         * 总耗时中网关自身的部分(过滤器、写回响应等)
+         */
+        private final LatencyHistogram gateway = new LatencyHistogram();
+
+        /**
+         * 总耗时中等待下游服务响应的部分
+         */
+        private final LatencyHistogram upstream = new LatencyHistogram();
+
+        Stats(String routeId, String service) {
+            this.routeId = routeId;
+            this.service = service;
+        }
+
+        /**
+         * @param requestBytes 请求体长度, 未知时为负数
+         */
+        public void begin(long requestBytes) {
+            requests.increment();
+            inFlight.increment();
+            if (requestBytes > 0) {
+                this.requestBytes.add(requestBytes);
+            }
+        }
+
+        /**
+         * @param status        响应状态码, 请求以异常结束时为 <code>0</code>
+         * @param responseBytes 响应体长度, 未知时为负数
+         * @param upstreamNanos 等待下游服务响应的时间, 没有转发到下游服务时为负数
+         */
+        public void end(int status, long responseBytes, long totalNanos, long upstreamNanos) {
+            inFlight.decrement();
+            if (status > 0 && status < MAX_STATUS) {
+                statuses.incrementAndGet(status);
+            } else {
+                errors.increment();
+            }
+            if (responseBytes > 0) {
+                this.responseBytes.add(responseBytes);
+            }
+            total.record(totalNanos);
+            if (upstreamNanos >= 0) {
+                upstream.record(upstreamNanos);
+                gateway.record(Math.max(totalNanos - upstreamNanos, 0));
+            } else {
+                gateway.record(totalNanos);
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> statusCounts = new TreeMap<>();
+            for (int i = 0; i < MAX_STATUS; i++) {
+                long count = statuses.get(i);
+                if (count > 0) {
+                    statusCounts.put(String.valueOf(i), count);
+                }
+            }
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("route", routeId);
+            snapshot.put("service", service);
+            snapshot.put("requests", requests.sum());
+            snapshot.put("inFlight", inFlight.sum());
+            snapshot.put("statuses", statusCounts);
+            snapshot.put("errors", errors.sum());
+            snapshot.put("requestBytes", requestBytes.sum());
+            snapshot.put("responseBytes", responseBytes.sum());
+            snapshot.put("total", total.snapshot());
+            snapshot.put("gateway", gateway.snapshot());
+            snapshot.put("upstream", upstream.snapshot());
+            return snapshot;
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.domain.RoutePolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Map;
+
+/**
+ * 每个路由的 {@link RoutePolicy}, 在路由刷新时根据路由元数据一次性计算, 请求处理时只需要按路由标识读取
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class RoutePolicies implements ApplicationListener<RefreshRoutesResultEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutePolicies.class);
+
+    private volatile Map<String, RoutePolicy> policies = Map.of();
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (!event.isSuccess() || !(event.getSource() instanceof RouteLocator routeLocator)) {
+            return;
+        }
+        routeLocator.getRoutes()
+                .collectMap(Route::getId, route -> RoutePolicy.of(route.getMetadata()))
+                .subscribe(computed -> {
+                    policies = Map.copyOf(computed);
+                    log.debug("Route policies refreshed: {}", policies);
+                });
+    }
+
+    /**
+     * 获取本次请求匹配到的路由的策略, 没有匹配到路由时返回 {@link RoutePolicy#DEFAULT}
+     */
+    public RoutePolicy get(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return RoutePolicy.DEFAULT;
+        }
+        RoutePolicy policy = policies.get(route.getId());
+        // 路由刷新完成前匹配到的新路由
+        return policy != null ? policy : RoutePolicy.of(route.getMetadata());
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.domain.ScanCodeCredentials;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 使用 HMAC-SHA256 签名扫码登录的二维码内容, 代替每个二维码一次 RSA 加密, 每次验证一次 RSA 解密
+ * <p>
+ * 签名的内容为 <code>S1.密钥标识.会话标识.验证码.过期时间.签名</code>, 签名是前面内容的 HMAC-SHA256 的前 16 个字节 (Base64 URL 编码).
+ * 二维码内容本来就不需要保密 (原来的 RSA 加密使用私钥, 持有公钥即可解密), 只需要防止伪造和篡改;
+ * RSA 加密的内容是标准 Base64, 不包含 <code>.</code>, 两种格式可以直接区分, 升级前生成的二维码仍然有效
+ * <p>
+ * 密钥在启动时和每次配置刷新后重新加载, 加载结果整体替换, 轮换密钥不需要重启: 先增加新密钥并设为当前使用的密钥,
+ * 已发出的二维码过期 (见 {@link com.inmaytide.orbit.gateway.handler.LoginWithScanCodeHandler#CODE_VALID_TIME_IN_SECONDS}) 后再删除旧密钥.
+ * 刷新后的配置不正确时继续使用原来的密钥
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class ScanCodeSigner {
+
+    public static final String VERSION = "S1";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int SIGNATURE_BYTES = 16;
+
+    private static final int MINIMUM_KEY_BYTES = 32;
+
+    private static final Pattern VALID_KEY_ID = Pattern.compile("[A-Za-z0-9_-]{1,16}");
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final Logger log = LoggerFactory.getLogger(ScanCodeSigner.class);
+
+    private final ApplicationProperties properties;
+
+    private volatile Keys keys;
+
+    public ScanCodeSigner(ApplicationProperties properties) {
+        this.properties = properties;
+        this.keys = load();
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void refresh() {
+        try {
+            keys = load();
+            log.debug("Scan code signing keys reloaded, signing with \"{}\"", keys.keyId);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid scan code signing keys, keep using the previous keys, Cause by: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return 是否签名新的二维码, 没有配置密钥时二维码内容仍使用 RSA 加密
+     */
+    public boolean isEnabled() {
+        return keys.keyId != null;
+    }
+
+    public String sign(String sessionId, String code, Instant expiry) {
+        Keys current = keys;
+        if (current.keyId == null) {
+            throw new IllegalStateException("No signing key is configured");
+        }
+        String content = VERSION + '.' + current.keyId + '.' + sessionId + '.' + code + '.' + expiry.toEpochMilli();
+        return content + '.' + ENCODER.encodeToString(signature(current.prototypes.get(current.keyId), content));
+    }
+
+    public static boolean isSigned(String content) {
+        return StringUtils.startsWith(content, VERSION + '.');
+    }
+
+    /**
+     * 验证签名的二维码内容并写入凭证, 不是签名格式的内容不处理, 由 {@link ScanCodeCredentials} 使用 RSA 解密
+     *
+     * @throws IllegalArgumentException 内容格式不正确, 密钥不存在或签名不正确
+     */
+    public void verify(ScanCodeCredentials credentials) {
+        String content = credentials.getContent();
+        if (!isSigned(content)) {
+            return;
+        }
+        String[] values = StringUtils.split(content, '.');
+        int signed = content.lastIndexOf('.');
+        Mac prototype = values.length == 6 ? keys.prototypes.get(values[1]) : null;
+        if (prototype == null || !NumberUtils.isDigits(values[4])) {
+            throw new IllegalArgumentException(content);
+        }
+        byte[] actual;
+        try {
+            actual = DECODER.decode(values[5]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(content);
+        }
+        if (!MessageDigest.isEqual(signature(prototype, content.substring(0, signed)), actual)) {
+            throw new IllegalArgumentException(content);
+        }
+        credentials.verified(values[2], values[3], Instant.ofEpochMilli(Long.parseLong(values[4])));
+    }
+
+    private Keys load() {
+        ApplicationProperties.ScanCode scanCode = properties.getScanCode();
+        Map<String, Mac> prototypes = new HashMap<>();
+        scanCode.getSigningKeys().forEach((id, secret) -> prototypes.put(id, prototype(id, secret)));
+        if (prototypes.isEmpty()) {
+            return new Keys(prototypes, null);
+        }
+        if (StringUtils.isNotBlank(scanCode.getSigningKeyId())) {
+            if (!prototypes.containsKey(scanCode.getSigningKeyId())) {
+                throw new IllegalArgumentException("Signing key \"" + scanCode.getSigningKeyId() + "\" is not configured");
+            }
+            return new Keys(prototypes, scanCode.getSigningKeyId());
+        }
+        if (prototypes.size() == 1) {
+            return new Keys(prototypes, prototypes.keySet().iterator().next());
+        }
+        throw new IllegalArgumentException("Signing key id is required when more than one signing key is configured");
+    }
+
+    private static byte[] signature(Mac prototype, String content) {
+        try {
+            Mac mac = (Mac) prototype.clone();
+            byte[] digest = mac.doFinal(content.getBytes(StandardCharsets.US_ASCII));
+            byte[] signature = new byte[SIGNATURE_BYTES];
+            System.arraycopy(digest, 0, signature, 0, SIGNATURE_BYTES);
+            return signature;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Mac prototype(String id, String secret) {
+        if (!VALID_KEY_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid signing key id \"" + id + "\"");
+        }
+        byte[] key = StringUtils.defaultString(secret).getBytes(StandardCharsets.UTF_8);
+        if (key.length < MINIMUM_KEY_BYTES) {
+            throw new IllegalArgumentException("Signing key \"" + id + "\" must be at least " + MINIMUM_KEY_BYTES + " bytes");
+        }
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param prototypes 按密钥标识保存初始化后的 {@link Mac}, 每次使用时复制, 不重复查找算法实现和初始化密钥
+     * @param keyId      签名新二维码使用的密钥, 没有配置密钥时为空
+     */
+    private record Keys(Map<String, Mac> prototypes, @Nullable String keyId) {
+
+    }
+
+}
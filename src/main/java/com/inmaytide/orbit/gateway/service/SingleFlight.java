@@ -0,0 +1,41 @@
+package com.inmaytide.orbit.gateway.service;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 合并相同键的并发调用, 同一时刻每个键只会有一次真实的调用在执行, 其余调用者共享该次调用的结果
+ * <p>
+ * 调用结束(成功、失败或结果为空)后立即释放, 之后的调用会重新执行;
+ * 订阅者取消订阅不会中断正在执行的调用, 以免影响其他等待结果的订阅者
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Sinks.One<V>> calls = new ConcurrentHashMap<>();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> supplier) {
+        return Mono.defer(() -> {
+            Sinks.One<V> created = Sinks.one();
+            Sinks.One<V> existing = calls.putIfAbsent(key, created);
+            if (existing != null) {
+                return existing.asMono();
+            }
+            Mono.defer(supplier)
+                    .doFinally(signal -> calls.remove(key, created))
+                    .subscribe(created::tryEmitValue, created::tryEmitError, created::tryEmitEmpty);
+            return created.asMono();
+        });
+    }
+
+    public int inFlight() {
+        return calls.size();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.inmaytide.orbit.gateway.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以 GCRA (generic cell rate algorithm) 实现的令牌桶
+ * <p>
+ * 只保存下一个令牌理论上的可用时间, 每次获取令牌是一次 CAS, 不加锁也不分配对象, 与 {@code scripts/rate-limit.lua} 的算法一致
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+
+    private final long toleranceNanos;
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param capacity 每 <code>period</code> 内最多获取的令牌数
+     */
+    public TokenBucket(int capacity, Duration period) {
+        int normalized = Math.max(capacity, 1);
+        this.intervalNanos = Math.max(period.toNanos() / normalized, 1);
+        this.toleranceNanos = intervalNanos * (normalized - 1);
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long now) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long base = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            if (base - now > toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(current, base + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,305 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.inmaytide.exception.web.BadCredentialsException;
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.commons.domain.Oauth2Token;
+import com.inmaytide.orbit.commons.service.uaa.AuthorizationService;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 在所有网关节点间协调 access_token 的刷新, 同一个 access_token 在整个集群中同时只会有一个节点调用刷新接口
+ * <p>
+ * 节点内的并发刷新通过 {@link SingleFlight} 合并, 阻塞的远程刷新接口调用被调度到 {@link Schedulers#boundedElastic()} 上执行;
+ * 节点间:
+ * <ol>
+ *     <li>节点通过 <code>SET NX PX</code> 抢占 {@value CACHE_NAME} 中该 access_token 的刷新权, 持有时间为 {@link ApplicationProperties.TokenRenewal#getLease()}</li>
+ *     <li>抢占成功的节点执行刷新, 将结果写入 {@link Constants.CacheNames#TOKEN_TEMPORARY_STORE} 和 {@value CACHE_NAME}, 并通过频道 {@value CHANNEL} 通知刷新完成</li>
+ *     <li>抢占失败的节点直接读取已有的结果, 或等待频道上的通知后再读取 {@value CACHE_NAME}, 不会轮询 Redis</li>
+ * </ol>
+ * 频道上只发布旧 access_token, 不发布刷新结果; {@value CACHE_NAME} 中保存的结果在 refresh_token 没有变化时不包含 refresh_token,
+ * 读取时使用调用方持有的 refresh_token 补全. 结果中同时保存刷新时所用 refresh_token 的摘要, 只有调用方持有同一个 refresh_token 时才能读取,
+ * 只持有旧 access_token 的请求无法读取到 (可能被轮换的) refresh_token
+ * <p>
+ * 刷新失败时释放刷新权并发布失败通知, 等待中的节点立即结束等待
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class TokenRenewalCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRenewalCoordinator.class);
+
+    /**
+     * 刷新后的 {@link Oauth2Token} 在临时存储容器中保留时间
+     */
+    public static final long TOKEN_TEMPORARY_STORE_MILLISECONDS = 60 * 1000;
+
+    public static final String CACHE_NAME = "TOKEN_RENEWAL";
+
+    public static final String CHANNEL = "orbit.gateway.token-renewal";
+
+    private static final String PENDING = "PENDING";
+
+    private static final String FIELD_PREVIOUS = "previous";
+
+    private static final String FIELD_FAILED = "failed";
+
+    /**
+     * 保存的结果中省略了 refresh_token 时, 记录其字段名
+     */
+    private static final String FIELD_OMITTED = "@omitted";
+
+    /**
+     * 刷新时所用 refresh_token 的 SHA-256 摘要
+     */
+    private static final String FIELD_ISSUED_FOR = "@issuedFor";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final ReactiveValueCaches caches;
+
+    private final AccessTokenExpiryCache expiryCache;
+
+    private final ReactiveRedisMessageListenerContainer listenerContainer;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties.TokenRenewal properties;
+
+    private final AuthorizationService authorizationService;
+
+    private final SingleFlight<String, Oauth2Token> renewals = new SingleFlight<>();
+
+    private final ConcurrentMap<String, Sinks.Empty<Void>> waiters = new ConcurrentHashMap<>();
+
+    private Disposable subscription;
+
+    public TokenRenewalCoordinator(ReactiveStringRedisTemplate redisTemplate, ReactiveValueCaches caches, AccessTokenExpiryCache expiryCache, ReactiveRedisMessageListenerContainer listenerContainer, ObjectMapper objectMapper, ApplicationProperties properties, @Lazy AuthorizationService authorizationService) {
+        this.redisTemplate = redisTemplate;
+        this.caches = caches;
+        this.expiryCache = expiryCache;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.properties = properties.getTokenRenewal();
+        this.authorizationService = authorizationService;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!properties.isDistributed()) {
+            return;
+        }
+        subscription = listenerContainer.receive(ChannelTopic.of(CHANNEL))
+                .doOnNext(message -> onPublished(message.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1))
+                        .doBeforeRetry(signal -> log.warn("Token renewal subscription was interrupted, Cause by: ", signal.failure())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * 使用 refresh_token 刷新 access_token, 同一个 access_token 同时只会有一次远程调用, 其他并发调用等待并共享该次调用的结果
+     *
+     * @return 刷新后的 token, 等待其他节点的结果超时时为空
+     */
+    public Mono<Oauth2Token> renew(String accessToken, String refreshToken) {
+        return renew(accessToken, refreshToken, Duration.ofMillis(TOKEN_TEMPORARY_STORE_MILLISECONDS));
+    }
+
+    /**
+     * 同 {@link #renew(String, String)}, 刷新结果保留 <code>retention</code>, 不少于 {@value TOKEN_TEMPORARY_STORE_MILLISECONDS}ms
+     * <p>
+     * 后台提前刷新时客户端可能在较长时间后才携带旧 access_token 到达, 需要保留到旧 access_token 过期之后,
+     * 否则客户端会使用已经被使用过的 refresh_token 再次刷新
+     */
+    public Mono<Oauth2Token> renew(String accessToken, String refreshToken, Duration retention) {
+        Duration keep = retention.toMillis() > TOKEN_TEMPORARY_STORE_MILLISECONDS ? retention : Duration.ofMillis(TOKEN_TEMPORARY_STORE_MILLISECONDS);
+        return renewals.execute(accessToken, () -> renew(accessToken, refreshToken, keep, () -> {
+            log.debug("No new access token is read from the cache, request the remote api to refresh the access token");
+            log.debug("Refresh Token value is \"{}\"", refreshToken);
+            return Mono.fromCallable(() -> refreshToken(refreshToken))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnNext(token -> log.debug("The refresh result is {}", token));
+        }));
+    }
+
+    /**
+     * 读取最近 {@value TOKEN_TEMPORARY_STORE_MILLISECONDS}ms (后台提前刷新时为旧 access_token 过期之后 {@value TOKEN_TEMPORARY_STORE_MILLISECONDS}ms) 内刷新 access_token 得到的完整 token
+     *
+     * @param refreshToken 客户端持有的 refresh_token, 与刷新时所用的 refresh_token 不一致或为空时返回空, 调用方只能使用 {@link Constants.CacheNames#TOKEN_TEMPORARY_STORE} 中的 access_token
+     */
+    public Mono<Oauth2Token> lookup(String accessToken, @Nullable String refreshToken) {
+        if (!properties.isDistributed()) {
+            return Mono.empty();
+        }
+        return redisTemplate.opsForValue().get(ReactiveValueCaches.getCacheKey(CACHE_NAME, accessToken))
+                .filter(value -> !PENDING.equals(value))
+                .flatMap(json -> deserialize(json, refreshToken));
+    }
+
+    private Oauth2Token refreshToken(@Nullable String refreshToken) {
+        if (StringUtils.isBlank(refreshToken)) {
+            throw new BadCredentialsException();
+        }
+        return authorizationService.refreshToken(refreshToken);
+    }
+
+    /**
+     * @param refresher 实际调用刷新接口, 只有抢占到刷新权的节点才会执行
+     */
+    private Mono<Oauth2Token> renew(String accessToken, String refreshToken, Duration retention, Supplier<Mono<Oauth2Token>> refresher) {
+        if (!properties.isDistributed()) {
+            return refresher.get().flatMap(token -> store(accessToken, token, retention).thenReturn(token));
+        }
+        String key = ReactiveValueCaches.getCacheKey(CACHE_NAME, accessToken);
+        return Mono.defer(() -> {
+            // 先登记再抢占, 避免错过抢占失败到开始等待之间发布的结果
+            Sinks.Empty<Void> waiter = Sinks.empty();
+            waiters.put(accessToken, waiter);
+            return redisTemplate.opsForValue().setIfAbsent(key, PENDING, properties.getLease())
+                    .flatMap(claimed -> claimed ? lead(accessToken, refreshToken, key, retention, refresher) : follow(key, refreshToken, waiter))
+                    .doFinally(signal -> waiters.remove(accessToken, waiter));
+        });
+    }
+
+    private Mono<Oauth2Token> lead(String accessToken, String refreshToken, String key, Duration retention, Supplier<Mono<Oauth2Token>> refresher) {
+        log.debug("Claimed the renewal of access token \"{}\"", accessToken);
+        return refresher.get()
+                .flatMap(token -> serialize(token, refreshToken)
+                        .flatMap(json -> store(accessToken, token, retention)
+                                .then(redisTemplate.opsForValue().set(key, json, retention))
+                                .then(publish(accessToken, false)))
+                        .thenReturn(token))
+                .onErrorResume(e -> redisTemplate.delete(key)
+                        .then(publish(accessToken, true))
+                        .onErrorResume(ex -> Mono.empty())
+                        .then(Mono.error(e)));
+    }
+
+    private Mono<Oauth2Token> follow(String key, String refreshToken, Sinks.Empty<Void> waiter) {
+        Mono<String> stored = redisTemplate.opsForValue().get(key).filter(value -> !PENDING.equals(value));
+        return stored
+                .switchIfEmpty(waiter.asMono().timeout(properties.getLease(), Mono.empty()).then(stored))
+                .flatMap(json -> deserialize(json, refreshToken));
+    }
+
+    private Mono<Void> store(String accessToken, Oauth2Token token, Duration retention) {
+        // 将新token与旧token放入缓存绑定
+        return caches.put(Constants.CacheNames.TOKEN_TEMPORARY_STORE, accessToken, token.getAccessToken(), retention.toMillis(), TimeUnit.MILLISECONDS)
+                .then(expiryCache.invalidate(accessToken));
+    }
+
+    /**
+     * 只通知刷新已经结束, 刷新结果由等待的节点从 {@value CACHE_NAME} 中读取, 不在频道上传递
+     */
+    private Mono<Void> publish(String accessToken, boolean failed) {
+        ObjectNode message = objectMapper.createObjectNode().put(FIELD_PREVIOUS, accessToken);
+        if (failed) {
+            message.put(FIELD_FAILED, true);
+        }
+        return redisTemplate.convertAndSend(CHANNEL, message.toString()).then();
+    }
+
+    private void onPublished(String message) {
+        try {
+            JsonNode node = objectMapper.readTree(message);
+            Sinks.Empty<Void> waiter = waiters.get(node.path(FIELD_PREVIOUS).asText());
+            if (waiter == null) {
+                return;
+            }
+            if (node.path(FIELD_FAILED).asBoolean()) {
+                waiter.tryEmitError(new IllegalStateException("Access token renewal failed on another gateway node"));
+            } else {
+                waiter.tryEmitEmpty();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to handle token renewal message \"{}\", Cause by: ", message, e);
+        }
+    }
+
+    /**
+     * refresh_token 没有变化时省略, 只记录其字段名; 同时记录刷新时所用 refresh_token 的摘要
+     */
+    private Mono<String> serialize(Oauth2Token token, @Nullable String refreshToken) {
+        return Mono.fromCallable(() -> {
+            ObjectNode node = objectMapper.valueToTree(token);
+            if (StringUtils.isNotBlank(refreshToken)) {
+                node.put(FIELD_ISSUED_FOR, digest(refreshToken));
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    if (field.getValue().isTextual() && refreshToken.equals(field.getValue().asText())) {
+                        fields.remove();
+                        node.put(FIELD_OMITTED, field.getKey());
+                        break;
+                    }
+                }
+            }
+            return node.toString();
+        });
+    }
+
+    private Mono<Oauth2Token> deserialize(String json, @Nullable String refreshToken) {
+        return Mono.fromCallable(() -> {
+            ObjectNode node = (ObjectNode) objectMapper.readTree(json);
+            JsonNode issuedFor = node.remove(FIELD_ISSUED_FOR);
+            if (StringUtils.isBlank(refreshToken) || issuedFor == null
+                    || !MessageDigest.isEqual(issuedFor.asText().getBytes(StandardCharsets.US_ASCII), digest(refreshToken).getBytes(StandardCharsets.US_ASCII))) {
+                return null;
+            }
+            JsonNode omitted = node.remove(FIELD_OMITTED);
+            if (omitted != null) {
+                node.put(omitted.asText(), refreshToken);
+            }
+            return objectMapper.treeToValue(node, Oauth2Token.class);
+        });
+    }
+
+    private static String digest(String refreshToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.domain.TokenState;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 查询请求所携带 token 的状态, 所有需要访问 Redis 的检查合并为一次 Lua 脚本调用 ({@code scripts/token-state.lua}):
+ * <ol>
+ *     <li>refresh_token 是否已被强制下线 ({@link Constants.CacheNames#DISABLED_REFRESH_TOKEN})</li>
+ *     <li>access_token 剩余有效时间 ({@link Constants.CacheNames#ACCESS_TOKEN_STORE})</li>
+ *     <li>即将过期的 access_token 是否已经被刷新过 ({@link Constants.CacheNames#TOKEN_TEMPORARY_STORE})</li>
+ * </ol>
+ * 能够通过 {@link DisabledRefreshTokenRegistry} 和 {@link AccessTokenExpiryCache} 在本地得出结论的检查不会访问 Redis,
+ * 全部检查都能在本地得出结论时不产生任何 Redis 调用
+ * <p>
+ * 开启 {@link ApplicationProperties.RedisBatching#isEnabled()} 后, 并发请求的查询会被合并到同一次脚本调用中
+ * <p>
+ * 脚本同时操作多个键, 仅适用于单节点/主从/哨兵模式的 Redis
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class TokenStateService {
+
+    private static final RedisScript<List> SCRIPT = RedisScript.of(new ClassPathResource("scripts/token-state.lua"), List.class);
+
+    private static final String FLAG_TRUE = "1";
+
+    private static final String FLAG_FALSE = "0";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    private final AccessTokenExpiryCache expiryCache;
+
+    private final DisabledRefreshTokenRegistry disabledRefreshTokens;
+
+    private final MicroBatcher<Query, TokenState> queries;
+
+    public TokenStateService(ReactiveStringRedisTemplate redisTemplate, AccessTokenExpiryCache expiryCache, DisabledRefreshTokenRegistry disabledRefreshTokens, ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.expiryCache = expiryCache;
+        this.disabledRefreshTokens = disabledRefreshTokens;
+        ApplicationProperties.RedisBatching batching = properties.getRedisBatching();
+        this.queries = new MicroBatcher<>("token-state", this::execute, batching.isEnabled(), batching.getMaxBatchSize(), batching.getMaxWait(), meterRegistry);
+    }
+
+    /**
+     * @param window access_token 剩余有效时间(秒)小于该值时, 需要同时查询其是否已经被刷新过
+     */
+    public Mono<TokenState> resolve(@Nullable String accessToken, @Nullable String refreshToken, long window) {
+        return resolve(accessToken, refreshToken, window, true);
+    }
+
+    /**
+     * 查询 access_token 是否仍然有效, 用于拒绝未登录的请求
+     * <p>
+     * 本地缓存的过期时间只能感知网关发布的失效通知, 其他服务直接在 Redis 中吊销的 access_token 仍会命中本地缓存,
+     * 因此只有开启 {@link ApplicationProperties.AccessTokenCache#isKeyspaceNotifications()} 时才使用本地缓存, 否则总是查询 Redis
+     */
+    public Mono<TokenState> resolveAccessToken(String accessToken) {
+        return resolve(accessToken, null, 0, expiryCache.isRevocationAware());
+    }
+
+    private Mono<TokenState> resolve(@Nullable String accessToken, @Nullable String refreshToken, long window, boolean useLocalExpire) {
+        boolean checkDisabled = refreshToken != null && disabledRefreshTokens.mightBeDisabled(refreshToken);
+        Optional<Long> localExpire = accessToken == null || !useLocalExpire ? Optional.empty() : expiryCache.getLocalExpire(accessToken, window);
+        boolean checkExpire = accessToken != null && localExpire.isEmpty();
+        if (!checkDisabled && !checkExpire) {
+            return Mono.just(localExpire.map(expire -> new TokenState(false, expire, null)).orElse(TokenState.NONE));
+        }
+        return queries.load(new Query(accessToken, refreshToken, checkDisabled, checkExpire, window))
+                .map(state -> {
+                    if (checkExpire) {
+                        expiryCache.record(accessToken, state.getExpire());
+                        return state;
+                    }
+                    return new TokenState(state.isDisabled(), localExpire.orElse(0L), null);
+                });
+    }
+
+    private Mono<List<TokenState>> execute(List<Query> batch) {
+        List<String> keys = new ArrayList<>(batch.size() * 3);
+        List<String> args = new ArrayList<>(batch.size() * 3);
+        for (Query query : batch) {
+            keys.add(ReactiveValueCaches.getCacheKey(Constants.CacheNames.DISABLED_REFRESH_TOKEN, Objects.toString(query.refreshToken, "")));
+            keys.add(ReactiveValueCaches.getCacheKey(Constants.CacheNames.ACCESS_TOKEN_STORE, Objects.toString(query.accessToken, "")));
+            keys.add(ReactiveValueCaches.getCacheKey(Constants.CacheNames.TOKEN_TEMPORARY_STORE, Objects.toString(query.accessToken, "")));
+            args.add(query.checkDisabled ? FLAG_TRUE : FLAG_FALSE);
+            args.add(query.checkExpire ? FLAG_TRUE : FLAG_FALSE);
+            args.add(String.valueOf(query.window));
+        }
+        return redisTemplate.execute(SCRIPT, keys, args)
+                .next()
+                .map(result -> {
+                    List<TokenState> states = new ArrayList<>(batch.size());
+                    for (int i = 0; i < batch.size(); i++) {
+                        Object renewed = result.size() > i * 3 + 2 ? result.get(i * 3 + 2) : null;
+                        states.add(new TokenState(toLong(result.get(i * 3)) > 0, toExpire(toLong(result.get(i * 3 + 1))), renewed == null ? null : renewed.toString()));
+                    }
+                    return states;
+                });
+    }
+
+    /**
+     * Redis <code>TTL</code> 对不存在的键返回 <code>-2</code>, 对没有设置过期时间的键返回 <code>-1</code>
+     */
+    private static long toExpire(long ttl) {
+        return ttl == TokenState.NEVER_EXPIRES ? TokenState.NEVER_EXPIRES : Math.max(ttl, 0);
+    }
+
+    private static long toLong(@Nullable Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    private record Query(@Nullable String accessToken, @Nullable String refreshToken, boolean checkDisabled, boolean checkExpire, long window) {
+
+    }
+
+}
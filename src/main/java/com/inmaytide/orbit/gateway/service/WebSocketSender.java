@@ -0,0 +1,157 @@
+package com.inmaytide.orbit.gateway.service;
+
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 向一个 WebSocket 会话发送消息, 由 {@link WebSocketSessionRegistry#register(WebSocketSession)} 创建
+ * <p>
+ * 等待发送的消息放在有界的缓冲区中, 缓冲区满时 (客户端不读取) 交给 {@link WebSocketSessionRegistry} 按溢出策略处理;
+ * 发送消息的线程可能是 WebSocket 的 Netty 线程, 消息队列的监听线程或心跳任务, 写入缓冲区时互斥.
+ * <p>
+ * 每个节点可能同时保持十万以上的会话, 而绝大多数会话在等待扫码, 缓冲区是空的: 缓冲区使用按需增长的链表队列,
+ * 由 {@link #pending} 限制长度, 不预先分配数组; 计数使用字段更新器而不是额外的原子对象
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+public class WebSocketSender {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final AtomicIntegerFieldUpdater<WebSocketSender> PENDING = AtomicIntegerFieldUpdater.newUpdater(WebSocketSender.class, "pending");
+
+    private static final AtomicLongFieldUpdater<WebSocketSender> BUFFERED = AtomicLongFieldUpdater.newUpdater(WebSocketSender.class, "buffered");
+
+    private final WebSocketSession session;
+
+    private final WebSocketSessionRegistry registry;
+
+    private final Sinks.Many<WebSocketMessage> sink;
+
+    private final int bufferSize;
+
+    private volatile int pending;
+
+    private volatile long buffered;
+
+    private volatile long lastReceived;
+
+    private volatile long lastActive;
+
+    private long lastIssued;
+
+    WebSocketSender(WebSocketSession session, WebSocketSessionRegistry registry, int bufferSize, long now) {
+        this.session = session;
+        this.registry = registry;
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<WebSocketMessage>unboundedMultiproducer().get());
+        this.bufferSize = bufferSize;
+        this.lastReceived = now;
+        this.lastActive = now;
+    }
+
+    /**
+     * @return 是否放入了发送缓冲区, 会话已关闭或缓冲区已满时返回 <code>false</code>
+     */
+    public boolean send(String message) {
+        return emit(session.textMessage(message));
+    }
+
+    /**
+     * 作为 {@link WebSocketSession#send(org.reactivestreams.Publisher)} 的参数, 只能订阅一次
+     */
+    public Flux<WebSocketMessage> outbound() {
+        return sink.asFlux()
+                .doOnNext(this::written)
+                .doOnDiscard(WebSocketMessage.class, message -> DataBufferUtils.release(message.getPayload()));
+    }
+
+    /**
+     * 收到客户端的任意帧 (包括 pong) 时调用
+     */
+    public void received() {
+        lastReceived = System.nanoTime();
+    }
+
+    /**
+     * 客户端请求新的二维码时调用
+     */
+    public void active() {
+        lastActive = System.nanoTime();
+    }
+
+    /**
+     * 只在会话的接收线程上调用
+     *
+     * @return 距离上次生成二维码是否已经超过 <code>interval</code> 纳秒
+     */
+    boolean tryIssueCode(long now, long interval) {
+        if (lastIssued != 0 && now - lastIssued < interval) {
+            return false;
+        }
+        lastIssued = now;
+        return true;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * @return 已放入缓冲区但还没有写出的字节数
+     */
+    public long getBuffered() {
+        return buffered;
+    }
+
+    long getLastReceived() {
+        return lastReceived;
+    }
+
+    long getLastActive() {
+        return lastActive;
+    }
+
+    boolean ping() {
+        return emit(session.pingMessage(factory -> factory.wrap(EMPTY)));
+    }
+
+    void close(CloseStatus status) {
+        synchronized (this) {
+            sink.tryEmitComplete();
+        }
+        session.close(status).subscribe();
+    }
+
+    private synchronized boolean emit(WebSocketMessage message) {
+        if (PENDING.incrementAndGet(this) > bufferSize) {
+            PENDING.decrementAndGet(this);
+            DataBufferUtils.release(message.getPayload());
+            registry.overflow(this);
+            return false;
+        }
+        int bytes = message.getPayload().readableByteCount();
+        BUFFERED.addAndGet(this, bytes);
+        if (sink.tryEmitNext(message).isSuccess()) {
+            return true;
+        }
+        PENDING.decrementAndGet(this);
+        BUFFERED.addAndGet(this, -bytes);
+        DataBufferUtils.release(message.getPayload());
+        return false;
+    }
+
+    private void written(WebSocketMessage message) {
+        PENDING.decrementAndGet(this);
+        BUFFERED.addAndGet(this, -message.getPayload().readableByteCount());
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.handler.LoginWithScanCodeHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 当前节点上扫码登录的 WebSocket 会话
+ * <p>
+ * 会话数量和每个会话等待发送的消息都有上限; 一个定时任务每隔 {@link ApplicationProperties.ScanCode#getHeartbeatInterval()}
+ * 向所有会话发送 ping, 同时关闭超过两个间隔没有收到任何帧的会话 (半开连接) 和超过空闲时间没有请求新二维码的会话,
+ * 长时间打开的登录页面不会一直占用内存
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@Component
+public class WebSocketSessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    public static final String CLOSED_METER = "gateway.websocket.closed";
+
+    private final ConcurrentMap<String, WebSocketSender> senders = new ConcurrentHashMap<>();
+
+    private final ApplicationProperties.ScanCode properties;
+
+    private final long heartbeatTimeout;
+
+    private final long idleTimeout;
+
+    private final long codeInterval;
+
+    private final Counter rejected;
+
+    private final Counter overflowed;
+
+    private final Counter idle;
+
+    private final Counter unresponsive;
+
+    private final Counter dropped;
+
+    private final Counter throttled;
+
+    private Disposable sweeping;
+
+    public WebSocketSessionRegistry(ApplicationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getScanCode();
+        this.heartbeatTimeout = this.properties.getHeartbeatInterval().multipliedBy(2).toNanos();
+        Duration idleTimeout = this.properties.getIdleTimeout();
+        this.idleTimeout = (idleTimeout == null ? Duration.ofSeconds(LoginWithScanCodeHandler.CODE_VALID_TIME_IN_SECONDS) : idleTimeout).toNanos();
+        this.rejected = meterRegistry.counter(CLOSED_METER, "reason", "rejected");
+        this.overflowed = meterRegistry.counter(CLOSED_METER, "reason", "overflow");
+        this.idle = meterRegistry.counter(CLOSED_METER, "reason", "idle");
+        this.unresponsive = meterRegistry.counter(CLOSED_METER, "reason", "heartbeat");
+        this.codeInterval = this.properties.getCodeInterval().toNanos();
+        this.dropped = meterRegistry.counter("gateway.websocket.dropped");
+        this.throttled = meterRegistry.counter("gateway.websocket.code.throttled");
+        Gauge.builder("gateway.websocket.sessions", senders, ConcurrentMap::size).register(meterRegistry);
+        Gauge.builder("gateway.websocket.buffered", this, WebSocketSessionRegistry::getBuffered).baseUnit("bytes").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeping = Flux.interval(properties.getHeartbeatInterval(), Schedulers.parallel())
+                .subscribe(i -> sweep(System.nanoTime()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeping != null) {
+            sweeping.dispose();
+        }
+    }
+
+    /**
+     * @return 会话数量已达上限时返回 <code>null</code>, 由调用方关闭连接
+     */
+    @Nullable
+    public WebSocketSender register(WebSocketSession session) {
+        if (senders.size() >= properties.getMaximumSessions()) {
+            rejected.increment();
+            return null;
+        }
+        WebSocketSender sender = new WebSocketSender(session, this, properties.getOutboundBuffer(), System.nanoTime());
+        senders.put(session.getId(), sender);
+        return sender;
+    }
+
+    @Nullable
+    public WebSocketSender get(@Nullable String sessionId) {
+        return sessionId == null ? null : senders.get(sessionId);
+    }
+
+    public void remove(String sessionId) {
+        senders.remove(sessionId);
+    }
+
+    /**
+     * 限制每个会话请求新二维码的频率, 见 {@link ApplicationProperties.ScanCode#getCodeInterval()}
+     */
+    public boolean tryIssueCode(WebSocketSender sender) {
+        if (sender.tryIssueCode(System.nanoTime(), codeInterval)) {
+            sender.active();
+            return true;
+        }
+        throttled.increment();
+        return false;
+    }
+
+    public int size() {
+        return senders.size();
+    }
+
+    void overflow(WebSocketSender sender) {
+        if (properties.getOverflowPolicy() == ApplicationProperties.ScanCode.OverflowPolicy.DROP) {
+            dropped.increment();
+            return;
+        }
+        log.debug("Outbound buffer of WebSocket session [{}] is full, closing", sender.getSession().getId());
+        close(sender, overflowed, CloseStatus.POLICY_VIOLATION);
+    }
+
+    void sweep(long now) {
+        for (WebSocketSender sender : senders.values()) {
+            if (now - sender.getLastReceived() > heartbeatTimeout) {
+                close(sender, unresponsive, CloseStatus.GOING_AWAY);
+            } else if (now - sender.getLastActive() > idleTimeout) {
+                close(sender, idle, CloseStatus.NORMAL);
+            } else {
+                sender.ping();
+            }
+        }
+    }
+
+    private void close(WebSocketSender sender, Counter reason, CloseStatus status) {
+        if (senders.remove(sender.getSession().getId(), sender)) {
+            reason.increment();
+            sender.close(status);
+        }
+    }
+
+    private double getBuffered() {
+        long buffered = 0;
+        for (WebSocketSender sender : senders.values()) {
+            buffered += sender.getBuffered();
+        }
+        return buffered;
+    }
+
+}
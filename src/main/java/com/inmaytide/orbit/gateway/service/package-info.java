@@ -0,0 +1,4 @@
+@NonNullApi
+package com.inmaytide.orbit.gateway.service;
+
+import org.springframework.lang.NonNullApi;
@@ -0,0 +1,7 @@
+-- 累加登录失败次数并重新计时, 替代先读取再写入, 并发的失败不会相互覆盖
+-- KEYS[1]: LOGIN_FAILURE_NUMBERS 中的用户名
+-- ARGV[1]: 失败次数的有效时间(毫秒)
+-- 返回累加后的失败次数
+local count = redis.call('INCR', KEYS[1])
+redis.call('PEXPIRE', KEYS[1], ARGV[1])
+return count
@@ -0,0 +1,19 @@
+-- 以 GCRA 实现的令牌桶, 只保存下一个令牌理论上的可用时间, 每次调用一个命令往返
+-- KEYS[1]: 限流键
+-- ARGV[1]: 补充一个令牌的间隔(毫秒)
+-- ARGV[2]: 桶的容量
+-- 返回 1 表示通过, 0 表示被限流
+local interval = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local tat = tonumber(redis.call('GET', KEYS[1])) or now
+if tat < now then
+    tat = now
+end
+if tat - now > (capacity - 1) * interval then
+    return 0
+end
+tat = tat + interval
+redis.call('SET', KEYS[1], tat, 'PX', tat - now)
+return 1
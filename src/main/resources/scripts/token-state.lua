@@ -0,0 +1,27 @@
+-- 一次调用可以同时查询多组 token 的状态, 每组占用 3 个 KEYS 和 3 个 ARGV:
+-- KEYS[n + 1]: DISABLED_REFRESH_TOKEN 中的 refresh_token
+-- KEYS[n + 2]: ACCESS_TOKEN_STORE 中的 access_token
+-- KEYS[n + 3]: TOKEN_TEMPORARY_STORE 中的 access_token
+-- ARGV[n + 1]: 是否检查 refresh_token 被强制下线 (1/0)
+-- ARGV[n + 2]: 是否读取 access_token 的剩余有效时间 (1/0)
+-- ARGV[n + 3]: 剩余有效时间(秒)小于该值时同时读取 TOKEN_TEMPORARY_STORE
+-- 每组依次返回: 是否被强制下线, 剩余有效时间, 刷新后的 access_token
+local result = {}
+for n = 0, #KEYS - 3, 3 do
+    local disabled = 0
+    if ARGV[n + 1] == '1' then
+        disabled = redis.call('EXISTS', KEYS[n + 1])
+    end
+    local ttl = -2
+    local renewed = false
+    if ARGV[n + 2] == '1' then
+        ttl = redis.call('TTL', KEYS[n + 2])
+        if ttl < tonumber(ARGV[n + 3]) then
+            renewed = redis.call('GET', KEYS[n + 3])
+        end
+    end
+    result[n + 1] = disabled
+    result[n + 2] = ttl
+    result[n + 3] = renewed
+end
+return result
@@ -0,0 +1,100 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import com.inmaytide.exception.web.UnauthorizedException;
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.domain.RoutePolicy;
+import com.inmaytide.orbit.gateway.domain.TokenState;
+import com.inmaytide.orbit.gateway.service.RoutePolicies;
+import com.inmaytide.orbit.gateway.service.TokenStateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthenticationRequiredFilterTests {
+
+    private static final String ACCESS_TOKEN = "access-token";
+
+    private final AtomicInteger forwarded = new AtomicInteger();
+
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private TokenStateService tokenStates;
+
+    private AuthenticationRequiredFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        tokenStates = mock(TokenStateService.class);
+        filter = new AuthenticationRequiredFilter(tokenStates, new RoutePolicies());
+    }
+
+    @Test
+    void unprotectedRouteIsForwardedWithoutLookup() {
+        filter.filter(exchange(false, ACCESS_TOKEN), chain).block(Duration.ofSeconds(5));
+        assertEquals(1, forwarded.get());
+        verify(tokenStates, never()).resolveAccessToken(anyString());
+    }
+
+    @Test
+    void missingAccessTokenIsRejected() {
+        assertThrows(UnauthorizedException.class, () -> filter.filter(exchange(true, null), chain).block(Duration.ofSeconds(5)));
+        assertEquals(0, forwarded.get());
+    }
+
+    @Test
+    void expiredAccessTokenIsRejected() {
+        when(tokenStates.resolveAccessToken(ACCESS_TOKEN)).thenReturn(Mono.just(TokenState.NONE));
+        assertThrows(UnauthorizedException.class, () -> filter.filter(exchange(true, ACCESS_TOKEN), chain).block(Duration.ofSeconds(5)));
+        assertEquals(0, forwarded.get());
+    }
+
+    @Test
+    void validAccessTokenIsForwarded() {
+        when(tokenStates.resolveAccessToken(ACCESS_TOKEN)).thenReturn(Mono.just(new TokenState(false, 600, null)));
+        filter.filter(exchange(true, ACCESS_TOKEN), chain).block(Duration.ofSeconds(5));
+        assertEquals(1, forwarded.get());
+    }
+
+    @Test
+    void accessTokenWithoutExpiryIsForwarded() {
+        when(tokenStates.resolveAccessToken(ACCESS_TOKEN)).thenReturn(Mono.just(new TokenState(false, TokenState.NEVER_EXPIRES, null)));
+        filter.filter(exchange(true, ACCESS_TOKEN), chain).block(Duration.ofSeconds(5));
+        assertEquals(1, forwarded.get());
+    }
+
+    private static MockServerWebExchange exchange(boolean protectedRoute, String accessToken) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/system/users");
+        if (accessToken != null) {
+            request.header(Constants.HttpHeaderNames.AUTHORIZATION, Constants.HttpHeaderNames.AUTHORIZATION_PREFIX + accessToken);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        Route route = Route.async()
+                .id("system")
+                .uri("lb://system")
+                .predicate(e -> true)
+                .metadata(RoutePolicy.AUTHENTICATION_REQUIRED, protectedRoute)
+                .build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import com.inmaytide.exception.web.UnauthorizedException;
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.commons.domain.Oauth2Token;
+import com.inmaytide.orbit.gateway.domain.RoutePolicy;
+import com.inmaytide.orbit.gateway.domain.TokenState;
+import com.inmaytide.orbit.gateway.service.ProactiveTokenRenewalScheduler;
+import com.inmaytide.orbit.gateway.service.RoutePolicies;
+import com.inmaytide.orbit.gateway.service.TokenRenewalCoordinator;
+import com.inmaytide.orbit.gateway.service.TokenStateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RenewAccessTokenHandlerTests {
+
+    private static final String ACCESS_TOKEN = "expiring-access-token";
+
+    private static final String REFRESH_TOKEN = "refresh-token";
+
+    private static final String RENEWED_ACCESS_TOKEN = "renewed-access-token";
+
+    private final Queue<ServerWebExchange> forwarded = new ConcurrentLinkedQueue<>();
+
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.add(exchange);
+        return Mono.empty();
+    };
+
+    private TokenStateService tokenStates;
+
+    private TokenRenewalCoordinator renewalCoordinator;
+
+    private ProactiveTokenRenewalScheduler proactiveRenewals;
+
+    private RenewAccessTokenHandler handler;
+
+    private Oauth2Token renewed;
+
+    @BeforeEach
+    void setUp() {
+        tokenStates = mock(TokenStateService.class);
+        renewalCoordinator = mock(TokenRenewalCoordinator.class);
+        proactiveRenewals = mock(ProactiveTokenRenewalScheduler.class);
+        handler = new RenewAccessTokenHandler(tokenStates, renewalCoordinator, proactiveRenewals, new RoutePolicies());
+
+        renewed = mock(Oauth2Token.class);
+        when(renewed.getAccessToken()).thenReturn(RENEWED_ACCESS_TOKEN);
+        when(renewed.getRefreshToken()).thenReturn(REFRESH_TOKEN);
+
+        givenState(new TokenState(false, 5, null));
+        when(renewalCoordinator.renew(ACCESS_TOKEN, REFRESH_TOKEN)).thenReturn(Mono.just(renewed));
+        when(renewalCoordinator.lookup(eq(ACCESS_TOKEN), any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void forciblyCancelledRefreshTokenIsRejected() {
+        givenState(new TokenState(true, 600, null));
+        assertThrows(UnauthorizedException.class, () -> handler.filter(exchange(), chain).block(Duration.ofSeconds(5)));
+        assertTrue(forwarded.isEmpty());
+    }
+
+    @Test
+    void tokenFarFromExpiryIsForwardedUntouched() {
+        givenState(new TokenState(false, 600, null));
+        ServerWebExchange exchange = exchange();
+        handler.filter(exchange, chain).block(Duration.ofSeconds(5));
+        assertEquals(exchange, forwarded.poll());
+        verify(renewalCoordinator, never()).renew(anyString(), anyString());
+        verify(proactiveRenewals).track(ACCESS_TOKEN, REFRESH_TOKEN, 600);
+    }
+
+    @Test
+    void tokenWithoutExpiryIsNotRenewed() {
+        givenState(new TokenState(false, TokenState.NEVER_EXPIRES, null));
+        ServerWebExchange exchange = exchange();
+        handler.filter(exchange, chain).block(Duration.ofSeconds(5));
+        assertEquals(exchange, forwarded.poll());
+        verify(renewalCoordinator, never()).renew(anyString(), anyString());
+    }
+
+    @Test
+    void recentlyRenewedTokenIsTakenFromTokenState() {
+        givenState(new TokenState(false, 5, RENEWED_ACCESS_TOKEN));
+        handler.filter(exchange(), chain).block(Duration.ofSeconds(5));
+        assertRenewed(forwarded.poll());
+        verify(renewalCoordinator, never()).renew(anyString(), anyString());
+    }
+
+    @Test
+    void tokenRenewedInBackgroundIsWrittenBackToClient() {
+        givenState(new TokenState(false, 5, RENEWED_ACCESS_TOKEN));
+        when(renewalCoordinator.lookup(ACCESS_TOKEN, REFRESH_TOKEN)).thenReturn(Mono.just(renewed));
+        MockServerWebExchange exchange = exchange();
+        handler.filter(exchange, chain).block(Duration.ofSeconds(5));
+        assertRenewed(forwarded.poll());
+        assertNotNull(exchange.getResponse().getCookies().getFirst(Constants.RequestParameters.ACCESS_TOKEN));
+    }
+
+    @Test
+    void expiringTokenIsRenewedThroughCoordinator() {
+        handler.filter(exchange(), chain).block(Duration.ofSeconds(5));
+        assertRenewed(forwarded.poll());
+        verify(renewalCoordinator).renew(ACCESS_TOKEN, REFRESH_TOKEN);
+    }
+
+    @Test
+    void failedRenewalForwardsOriginalRequest() {
+        when(renewalCoordinator.renew(ACCESS_TOKEN, REFRESH_TOKEN)).thenReturn(Mono.error(new IllegalStateException()));
+        ServerWebExchange exchange = exchange();
+        handler.filter(exchange, chain).block(Duration.ofSeconds(5));
+        assertEquals(exchange, forwarded.poll());
+        assertTrue(forwarded.isEmpty());
+    }
+
+    @Test
+    void routeSkippingAllTokenChecksIsForwardedWithoutLookup() {
+        MockServerWebExchange exchange = exchange();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route(RoutePolicy.SKIP_TOKEN_RENEWAL, RoutePolicy.SKIP_FORCED_LOGOUT_CHECK));
+        handler.filter(exchange, chain).block(Duration.ofSeconds(5));
+        assertEquals(exchange, forwarded.poll());
+        verify(tokenStates, never()).resolve(any(), any(), anyLong());
+    }
+
+    @Test
+    void routeSkippingTokenRenewalOnlyChecksForcedLogout() {
+        when(tokenStates.resolve(null, REFRESH_TOKEN, 30)).thenReturn(Mono.just(new TokenState(true, 0, null)));
+        MockServerWebExchange exchange = exchange();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route(RoutePolicy.SKIP_TOKEN_RENEWAL));
+        assertThrows(UnauthorizedException.class, () -> handler.filter(exchange, chain).block(Duration.ofSeconds(5)));
+        verify(renewalCoordinator, never()).renew(anyString(), anyString());
+    }
+
+    private static Route route(String... skipped) {
+        Route.AsyncBuilder builder = Route.async().id("public").uri("lb://public").predicate(e -> true);
+        for (String key : skipped) {
+            builder.metadata(key, true);
+        }
+        return builder.build();
+    }
+
+    private void givenState(TokenState state) {
+        when(tokenStates.resolve(eq(ACCESS_TOKEN), eq(REFRESH_TOKEN), anyLong())).thenReturn(Mono.just(state));
+    }
+
+    private void assertRenewed(ServerWebExchange exchange) {
+        assertEquals(Constants.HttpHeaderNames.AUTHORIZATION_PREFIX + RENEWED_ACCESS_TOKEN, exchange.getRequest().getHeaders().getFirst(Constants.HttpHeaderNames.AUTHORIZATION));
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/service/resources")
+                .header(Constants.HttpHeaderNames.AUTHORIZATION, Constants.HttpHeaderNames.AUTHORIZATION_PREFIX + ACCESS_TOKEN)
+                .cookie(new HttpCookie(Constants.RequestParameters.REFRESH_TOKEN, REFRESH_TOKEN)));
+    }
+
+}
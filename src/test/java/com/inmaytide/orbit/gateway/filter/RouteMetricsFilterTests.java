@@ -0,0 +1,65 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import com.inmaytide.orbit.gateway.service.RouteMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteMetricsFilterTests {
+
+    private final RouteMetrics routeMetrics = new RouteMetrics();
+
+    private final RouteMetricsFilter metricsFilter = new RouteMetricsFilter(routeMetrics);
+
+    private final UpstreamTimingFilter upstreamFilter = new UpstreamTimingFilter();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void requestIsRecordedUnderRouteAndService() {
+        GatewayFilterChain upstream = exchange -> Mono.delay(Duration.ofMillis(20)).then(Mono.fromRunnable(() -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setContentLength(128);
+        }));
+        MockServerWebExchange exchange = exchange();
+        metricsFilter.filter(exchange, e -> upstreamFilter.filter(e, upstream)).block(Duration.ofSeconds(5));
+
+        Map<String, Object> snapshot = routeMetrics.snapshot("system");
+        assertEquals("system", snapshot.get("service"));
+        assertEquals(1L, snapshot.get("requests"));
+        assertEquals(0L, snapshot.get("inFlight"));
+        assertEquals(1L, ((Map<String, Object>) snapshot.get("statuses")).get("200"));
+        assertEquals(64L, snapshot.get("requestBytes"));
+        assertEquals(128L, snapshot.get("responseBytes"));
+        assertTrue((double) ((Map<String, Object>) snapshot.get("upstream")).get("max") >= 20);
+        assertEquals(1L, ((Map<String, Object>) snapshot.get("gateway")).get("count"));
+    }
+
+    @Test
+    void failedRequestIsCountedAsError() {
+        MockServerWebExchange exchange = exchange();
+        assertThrows(IllegalStateException.class, () -> metricsFilter.filter(exchange, e -> Mono.error(new IllegalStateException())).block(Duration.ofSeconds(5)));
+        Map<String, Object> snapshot = routeMetrics.snapshot("system");
+        assertEquals(1L, snapshot.get("errors"));
+        assertEquals(0L, snapshot.get("inFlight"));
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/system/users").contentLength(64));
+        Route route = Route.async().id("system").uri("lb://system").predicate(e -> true).build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.inmaytide.orbit.gateway.filter;
+
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.domain.CallChainSpan;
+import com.inmaytide.orbit.gateway.service.RoutePolicies;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimpleCallChainTrackerTests {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private static final String PARENT_ID = "00f067aa0ba902b7";
+
+    private final AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.set(exchange);
+        return Mono.empty();
+    };
+
+    private final SimpleCallChainTracker tracker = new SimpleCallChainTracker(new RoutePolicies());
+
+    @Test
+    void callChainIsGeneratedWhenAbsent() {
+        filter(MockServerHttpRequest.get("/system/users"));
+        String callChain = forwardedHeader(Constants.HttpHeaderNames.CALL_CHAIN);
+        assertNotNull(callChain);
+        assertEquals(32, callChain.length());
+        assertNull(forwardedHeader(TraceIds.TRACEPARENT));
+    }
+
+    @Test
+    void incomingCallChainIsKept() {
+        filter(MockServerHttpRequest.get("/system/users").header(Constants.HttpHeaderNames.CALL_CHAIN, "caller-chain-1"));
+        assertEquals("caller-chain-1", forwardedHeader(Constants.HttpHeaderNames.CALL_CHAIN));
+    }
+
+    @Test
+    void malformedCallChainIsReplaced() {
+        filter(MockServerHttpRequest.get("/system/users").header(Constants.HttpHeaderNames.CALL_CHAIN, "bad\tvalue"));
+        assertNotEquals("bad\tvalue", forwardedHeader(Constants.HttpHeaderNames.CALL_CHAIN));
+    }
+
+    @Test
+    void incomingTraceparentIsExtendedWithNewSpan() {
+        filter(MockServerHttpRequest.get("/system/users").header(TraceIds.TRACEPARENT, "00-" + TRACE_ID + "-" + PARENT_ID + "-01"));
+        String traceparent = forwardedHeader(TraceIds.TRACEPARENT);
+        String[] parsed = TraceIds.parseTraceparent(traceparent);
+        assertNotNull(parsed);
+        assertEquals(TRACE_ID, parsed[0]);
+        assertNotEquals(PARENT_ID, parsed[1]);
+        assertEquals("01", parsed[2]);
+        assertEquals(TRACE_ID, forwardedHeader(Constants.HttpHeaderNames.CALL_CHAIN));
+
+        CallChainSpan span = forwarded.get().getAttribute(CallChainSpan.ATTRIBUTE);
+        assertNotNull(span);
+        assertEquals(PARENT_ID, span.getParentSpanId());
+        assertEquals(parsed[1], span.getSpanId());
+    }
+
+    @Test
+    void generatedIdsAreWellFormed() {
+        for (int i = 0; i < 1000; i++) {
+            String traceparent = TraceIds.traceparent(TraceIds.newTraceId(), TraceIds.newSpanId(), "00");
+            assertNotNull(TraceIds.parseTraceparent(traceparent), traceparent);
+        }
+        assertNull(TraceIds.parseTraceparent("00-" + "0".repeat(32) + "-" + PARENT_ID + "-01"));
+        assertNull(TraceIds.parseTraceparent("ff-" + TRACE_ID + "-" + PARENT_ID + "-01"));
+        assertNull(TraceIds.parseTraceparent("00-" + TRACE_ID + "-" + PARENT_ID + "-01-extra"));
+        assertTrue(TraceIds.isValidCallChain(TraceIds.newTraceId()));
+    }
+
+    private void filter(MockServerHttpRequest.BaseBuilder<?> request) {
+        tracker.filter(MockServerWebExchange.from(request), chain).block(Duration.ofSeconds(5));
+    }
+
+    private String forwardedHeader(String name) {
+        return forwarded.get().getRequest().getHeaders().getFirst(name);
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.inmaytide.orbit.gateway.handler;
+
+import cloud.tianai.captcha.application.ImageCaptchaApplication;
+import com.inmaytide.exception.web.AccessDeniedException;
+import com.inmaytide.exception.web.BadCredentialsException;
+import com.inmaytide.exception.web.HttpResponseException;
+import com.inmaytide.exception.web.translator.HttpExceptionTranslatorDelegator;
+import com.inmaytide.orbit.commons.constants.Platforms;
+import com.inmaytide.orbit.commons.domain.Oauth2Token;
+import com.inmaytide.orbit.commons.domain.dto.params.LoginParameters;
+import com.inmaytide.orbit.commons.log.OperationLogMessageProducer;
+import com.inmaytide.orbit.commons.service.uaa.AuthorizationService;
+import com.inmaytide.orbit.commons.service.uaa.UserService;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.domain.Credentials;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.IpGeolocationService;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AbstractAuthorizeHandlerTests {
+
+    private static final String USERNAME = "admin";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LoginFailureCounter failureCounter;
+
+    private AccessSourcePolicy accessSources;
+
+    private LoginFailureAudit failureAudit;
+
+    private AuthorizationService authorizationService;
+
+    private TestHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        failureCounter = mock(LoginFailureCounter.class);
+        when(failureCounter.get(USERNAME)).thenReturn(Mono.just(0));
+        when(failureCounter.increment(USERNAME)).thenReturn(Mono.just(1));
+        when(failureCounter.reset(USERNAME)).thenReturn(Mono.empty());
+        accessSources = mock(AccessSourcePolicy.class);
+        when(accessSources.isAllowed(anyString(), any())).thenReturn(true);
+        failureAudit = mock(LoginFailureAudit.class);
+        authorizationService = mock(AuthorizationService.class);
+        HttpExceptionTranslatorDelegator translator = mock(HttpExceptionTranslatorDelegator.class);
+        when(translator.translate(any())).thenAnswer(invocation -> invocation.getArgument(0) instanceof HttpResponseException e ? Optional.of(e) : Optional.empty());
+        IpGeolocationService geolocations = mock(IpGeolocationService.class);
+        when(geolocations.search(anyString())).thenReturn("内网IP");
+
+        ApplicationProperties properties = new ApplicationProperties();
+        handler = new TestHandler(mock(OperationLogMessageProducer.class), properties, translator, mock(UserService.class), mock(ImageCaptchaApplication.class),
+                failureCounter, accessSources, new BlockingOperations(properties, meterRegistry), meterRegistry, failureAudit);
+        ReflectionTestUtils.setField(handler, "authorizationService", authorizationService);
+        ReflectionTestUtils.setField(handler, "geolocations", geolocations);
+    }
+
+    @Test
+    void accessSourceRejectionSkipsCaptchaCheck() {
+        when(accessSources.isAllowed(anyString(), any())).thenReturn(false);
+        assertThrows(AccessDeniedException.class, () -> handler.login(request(), credentials()).block(Duration.ofSeconds(5)));
+        verify(failureCounter, never()).get(anyString());
+        verify(authorizationService, never()).getToken(any());
+        verify(failureAudit).failed(eq(USERNAME), eq("10.0.0.1"), eq("access-source-denied"), any());
+        verify(failureCounter).increment(USERNAME);
+        assertStage("access-source", "ON_ERROR");
+    }
+
+    @Test
+    void failedCheckIsAuditedAndCounted() {
+        when(failureCounter.get(USERNAME)).thenReturn(Mono.just(1));
+        assertThrows(BadCredentialsException.class, () -> handler.login(request(), credentials()).block(Duration.ofSeconds(5)));
+        verify(authorizationService, never()).getToken(any());
+        verify(failureAudit).failed(eq(USERNAME), eq("10.0.0.1"), eq("0x00200007"), any());
+        verify(failureCounter).increment(USERNAME);
+        assertStage("access-source", "ON_COMPLETE");
+        assertStage("failures-number", "ON_COMPLETE");
+        assertStage("captcha", "ON_ERROR");
+    }
+
+    @Test
+    void passedChecksReachTokenCall() {
+        Oauth2Token token = mock(Oauth2Token.class);
+        when(token.getAccessToken()).thenReturn("access-token");
+        when(token.getRefreshToken()).thenReturn("refresh-token");
+        when(authorizationService.getToken(any(LoginParameters.class))).thenReturn(token);
+
+        assertEquals(token, handler.login(request(), credentials()).block(Duration.ofSeconds(5)));
+        verify(failureCounter).reset(USERNAME);
+        verify(failureCounter, never()).increment(anyString());
+        verify(failureAudit, never()).failed(anyString(), anyString(), anyString(), any());
+        assertStage("access-source", "ON_COMPLETE");
+        assertStage("failures-number", "ON_COMPLETE");
+        assertStage("captcha", "ON_COMPLETE");
+        assertStage("token", "ON_COMPLETE");
+    }
+
+    private void assertStage(String stage, String signal) {
+        assertNotNull(meterRegistry.find(AbstractAuthorizeHandler.STAGE_TIMER).tag("stage", stage).tag("signal", signal).timer(), stage + " " + signal);
+    }
+
+    private static ServerRequest request() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/login").remoteAddress(new InetSocketAddress("10.0.0.1", 52000)));
+        return MockServerRequest.builder()
+                .method(HttpMethod.POST)
+                .uri(URI.create("/login"))
+                .exchange(exchange)
+                .build();
+    }
+
+    private static Credentials credentials() {
+        Credentials credentials = new Credentials();
+        credentials.setUsername(USERNAME);
+        credentials.setPassword("password");
+        credentials.setPlatform(Platforms.WEB);
+        return credentials;
+    }
+
+    private static class TestHandler extends AbstractAuthorizeHandler {
+
+        private static final Logger log = LoggerFactory.getLogger(TestHandler.class);
+
+        TestHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication, LoginFailureCounter failureCounter, AccessSourcePolicy accessSources, BlockingOperations blockingOperations, MeterRegistry meterRegistry, LoginFailureAudit failureAudit) {
+            super(producer, properties, throwableTranslator, userService, captchaApplication, failureCounter, accessSources, blockingOperations, meterRegistry, failureAudit);
+        }
+
+        @Override
+        protected Logger getLogger() {
+            return log;
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.inmaytide.orbit.gateway.handler;
+
+import cloud.tianai.captcha.application.ImageCaptchaApplication;
+import com.inmaytide.exception.web.BadCredentialsException;
+import com.inmaytide.exception.web.HttpResponseException;
+import com.inmaytide.exception.web.ServiceUnavailableException;
+import com.inmaytide.exception.web.domain.DefaultResponse;
+import com.inmaytide.exception.web.translator.HttpExceptionTranslatorDelegator;
+import com.inmaytide.orbit.commons.constants.Bool;
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.commons.constants.Platforms;
+import com.inmaytide.orbit.commons.log.OperationLogMessageProducer;
+import com.inmaytide.orbit.commons.log.domain.OperationLog;
+import com.inmaytide.orbit.commons.service.uaa.UserService;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.configuration.ErrorCode;
+import com.inmaytide.orbit.gateway.domain.Credentials;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 撞库时 (每次失败的用户名都不同) 单线程下每秒可以处理的登录失败次数 (即每核吞吐量), 对比失败处理修改前后的写法:
+ * <ul>
+ *     <li>before: 修改前的失败处理, 异常转换两次, 每次失败都构建 {@link DefaultResponse} 和操作日志并发送, 使用带调用栈的异常</li>
+ *     <li>after: {@link AbstractAuthorizeHandler#handleFailure}, 异常只转换一次, 由 {@link LoginFailureAudit} 合并重复的失败</li>
+ * </ul>
+ * 认证服务返回的异常在两种写法中相同, 不计入测量; 失败次数累加和操作日志发送替换为空操作, 只衡量网关自身在失败处理上的开销.
+ * 每轮测量开始时汇总一次, 模拟合并时间段的切换. 运行: 执行 {@link #main(String[])}
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class LoginFailureBenchmark {
+
+    /**
+     * 模拟 WebFlux 处理器中抛出异常时的调用栈深度
+     */
+    private static final int STACK_DEPTH = 120;
+
+    /**
+     * 撞库时尝试的不同用户名数量
+     */
+    private static final int USERNAMES = 100_000;
+
+    private BenchmarkHandler handler;
+
+    private LoginFailureAudit audit;
+
+    private ServerRequest request;
+
+    private Credentials[] credentials;
+
+    private Exception remoteFailure;
+
+    private int next;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        ApplicationProperties properties = new ApplicationProperties();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // 不启动定时汇总, 由每轮测量开始时汇总
+        audit = new LoginFailureAudit(blackhole::consume, properties);
+        LoginFailureCounter failureCounter = mock(LoginFailureCounter.class);
+        when(failureCounter.increment(anyString())).thenReturn(Mono.just(1));
+        OperationLogMessageProducer producer = mock(OperationLogMessageProducer.class);
+        HttpExceptionTranslatorDelegator translator = mock(HttpExceptionTranslatorDelegator.class);
+        // 与全局异常转换一致, 每次转换都创建新的异常
+        when(translator.translate(any())).thenAnswer(invocation -> Optional.of(new BadCredentialsException(UaaErrorCode.WRONG_PASSWORD)));
+        handler = new BenchmarkHandler(producer, properties, translator, mock(UserService.class), mock(ImageCaptchaApplication.class),
+                failureCounter, mock(AccessSourcePolicy.class), new BlockingOperations(properties, meterRegistry), meterRegistry, audit, blackhole);
+
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/authorize/login")
+                .header(Constants.HttpHeaderNames.USER_AGENT, "Mozilla/5.0")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 52000)));
+        request = MockServerRequest.builder()
+                .method(HttpMethod.POST)
+                .uri(URI.create("/authorize/login"))
+                .exchange(exchange)
+                .build();
+        credentials = new Credentials[USERNAMES];
+        for (int i = 0; i < USERNAMES; i++) {
+            Credentials c = new Credentials();
+            c.setUsername("user" + i);
+            c.setPassword("password");
+            c.setPlatform(Platforms.WEB);
+            credentials[i] = c;
+        }
+        remoteFailure = new IllegalStateException("[401] during [POST] to [http://uaa/oauth2/token]");
+    }
+
+    @Setup(Level.Iteration)
+    public void newAggregationWindow() {
+        audit.flush();
+    }
+
+    @Benchmark
+    public Object before() {
+        Credentials c = nextCredentials();
+        return atDepth(STACK_DEPTH, () -> handler.legacyHandleFailure(request, c, remoteFailure));
+    }
+
+    @Benchmark
+    public Object after() {
+        Credentials c = nextCredentials();
+        return atDepth(STACK_DEPTH, () -> handler.handleFailure(request, c, remoteFailure));
+    }
+
+    private Credentials nextCredentials() {
+        Credentials c = credentials[next];
+        next = (next + 1) % USERNAMES;
+        return c;
+    }
+
+    private Object atDepth(int depth, Supplier<Object> failure) {
+        if (depth == 0) {
+            return failure.get();
+        }
+        return atDepth(depth - 1, failure);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LoginFailureBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 认证服务返回的错误代码
+     */
+    private enum UaaErrorCode implements com.inmaytide.exception.web.domain.ErrorCode {
+
+        WRONG_PASSWORD("0x00100003", "用户名或密码错误");
+
+        private final String value;
+
+        private final String description;
+
+        UaaErrorCode(String value, String description) {
+            this.value = value;
+            this.description = description;
+        }
+
+        @Override
+        public String value() {
+            return value;
+        }
+
+        @Override
+        public String description() {
+            return description;
+        }
+    }
+
+    private static class BenchmarkHandler extends AbstractAuthorizeHandler {
+
+        private static final Logger log = LoggerFactory.getLogger(BenchmarkHandler.class);
+
+        private final Blackhole blackhole;
+
+        BenchmarkHandler(OperationLogMessageProducer producer, ApplicationProperties properties, HttpExceptionTranslatorDelegator throwableTranslator, UserService userService, ImageCaptchaApplication captchaApplication, LoginFailureCounter failureCounter, AccessSourcePolicy accessSources, BlockingOperations blockingOperations, MeterRegistry meterRegistry, LoginFailureAudit failureAudit, Blackhole blackhole) {
+            super(producer, properties, throwableTranslator, userService, captchaApplication, failureCounter, accessSources, blockingOperations, meterRegistry, failureAudit);
+            this.blackhole = blackhole;
+        }
+
+        /**
+         * 修改前的失败处理, 除操作日志发送到 {@link Blackhole} 外与原来的写法一致
+         */
+        HttpResponseException legacyHandleFailure(ServerRequest request, Credentials credentials, Exception e) {
+            OperationLog failed = buildOperationLog(request, credentials);
+            failed.setResult(Bool.N);
+            failed.setArguments(credentials.toString());
+            throwableTranslator
+                    .translate(e)
+                    .ifPresent(ex -> failed.setResponse(DefaultResponse.withException(ex).URL(request.path()).build().toString()));
+            blackhole.consume(failed);
+            HttpResponseException ex = new HttpResponseException(e);
+            Optional<HttpResponseException> translated = throwableTranslator.translate(e);
+            if (translated.isPresent()) {
+                ex = translated.get();
+                if (Objects.equals(ex.getCode(), "0x00100001") || ex instanceof ServiceUnavailableException) {
+                    return ex;
+                }
+                if (Objects.equals(ex.getCode(), "0x00100002") || Objects.equals(ex.getCode(), "0x00100003")) {
+                    ex = new BadCredentialsException(ErrorCode.E_0x00200010);
+                }
+            }
+            accumulateFailuresNumber(credentials.getUsername());
+            return ex;
+        }
+
+        private OperationLog buildOperationLog(ServerRequest request, Credentials credentials) {
+            OperationLog operationLog = new OperationLog();
+            operationLog.setOperationTime(Instant.now());
+            operationLog.setDescription("用户名密码登录");
+            operationLog.setBusiness("用户登录");
+            operationLog.setChain(request.headers().firstHeader(Constants.HttpHeaderNames.CALL_CHAIN));
+            operationLog.setPlatform(credentials.getPlatform().name());
+            operationLog.setPath(request.path());
+            operationLog.setHttpMethod(request.method().name());
+            operationLog.setClientDescription(request.headers().firstHeader(Constants.HttpHeaderNames.USER_AGENT));
+            operationLog.setIpAddress(getClientIpAddress(request.exchange()));
+            return operationLog;
+        }
+
+        @Override
+        protected Logger getLogger() {
+            return log;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.inmaytide.orbit.gateway.handler;
+
+import cloud.tianai.captcha.application.ImageCaptchaApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inmaytide.exception.web.translator.HttpExceptionTranslatorDelegator;
+import com.inmaytide.orbit.commons.log.OperationLogMessageProducer;
+import com.inmaytide.orbit.commons.service.uaa.UserService;
+import com.inmaytide.orbit.commons.utils.producer.RabbitProducer;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.domain.ScanCodeCredentials;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.GatewayNode;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import com.inmaytide.orbit.gateway.service.ScanCodeSigner;
+import com.inmaytide.orbit.gateway.service.WebSocketSessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class LoginWithScanCodeHandlerTests {
+
+    private static final String SIGNING_KEY = "0123456789abcdef0123456789abcdef";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ScanCodeSigner signer;
+
+    private BlockingOperations blockingOperations;
+
+    private RabbitProducer rabbitProducer;
+
+    private LoginWithScanCodeHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getScanCode().setSigningKeys(Map.of("k1", SIGNING_KEY));
+        signer = new ScanCodeSigner(properties);
+        blockingOperations = spy(new BlockingOperations(properties, meterRegistry));
+        rabbitProducer = mock(RabbitProducer.class);
+        handler = new LoginWithScanCodeHandler(mock(OperationLogMessageProducer.class), properties, mock(HttpExceptionTranslatorDelegator.class), mock(UserService.class), mock(ImageCaptchaApplication.class),
+                mock(LoginFailureCounter.class), mock(AccessSourcePolicy.class), blockingOperations, meterRegistry, mock(LoginFailureAudit.class),
+                rabbitProducer, new ObjectMapper(), mock(GatewayNode.class), mock(WebSocketSessionRegistry.class), signer);
+    }
+
+    @Test
+    void forgedContentIsRejectedWithoutBlockingCall() {
+        String content = signer.sign("gateway-1~8f2a1c", "AB12CD34", Instant.now().plusSeconds(600));
+        ServerResponse response = validate(content.replace("AB12CD34", "AB12CD35"));
+        assertEquals(HttpStatus.BAD_REQUEST, response.statusCode());
+        verify(blockingOperations, never()).call(anyString(), any());
+        verify(rabbitProducer, never()).sendMessage(any(), anyString());
+    }
+
+    @Test
+    void expiredContentIsRejectedWithoutBlockingCall() {
+        ServerResponse response = validate(signer.sign("gateway-1~8f2a1c", "AB12CD34", Instant.now().minusSeconds(1)));
+        assertEquals(HttpStatus.OK, response.statusCode());
+        verify(blockingOperations, never()).call(anyString(), any());
+        verify(rabbitProducer, never()).sendMessage(any(), anyString());
+    }
+
+    @Test
+    void undecryptableLegacyContentIsBadRequest() {
+        ServerResponse response = validate("aGVsbG8gd29ybGQ=");
+        assertEquals(HttpStatus.BAD_REQUEST, response.statusCode());
+        verify(rabbitProducer, never()).sendMessage(any(), anyString());
+    }
+
+    private ServerResponse validate(String content) {
+        ScanCodeCredentials credentials = new ScanCodeCredentials();
+        credentials.setContent(content);
+        credentials.setUsername("admin");
+        MockServerRequest request = MockServerRequest.builder()
+                .method(HttpMethod.POST)
+                .uri(URI.create("/authorize/scan-code"))
+                .body(Mono.just(credentials));
+        return handler.validateScanCode(request).block(Duration.ofSeconds(5));
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.inmaytide.orbit.gateway.handler;
+
+import cloud.tianai.captcha.application.ImageCaptchaApplication;
+import com.inmaytide.exception.web.ServiceUnavailableException;
+import com.inmaytide.exception.web.translator.HttpExceptionTranslatorDelegator;
+import com.inmaytide.orbit.commons.domain.Oauth2Token;
+import com.inmaytide.orbit.commons.domain.dto.params.LoginParameters;
+import com.inmaytide.orbit.commons.log.OperationLogMessageProducer;
+import com.inmaytide.orbit.commons.service.uaa.AuthorizationService;
+import com.inmaytide.orbit.commons.service.uaa.UserService;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.configuration.ErrorCode;
+import com.inmaytide.orbit.gateway.domain.ScanCodeResult;
+import com.inmaytide.orbit.gateway.service.AccessSourcePolicy;
+import com.inmaytide.orbit.gateway.service.BlockingOperations;
+import com.inmaytide.orbit.gateway.service.LoginFailureAudit;
+import com.inmaytide.orbit.gateway.service.LoginFailureCounter;
+import com.inmaytide.orbit.gateway.service.WebSocketSender;
+import com.inmaytide.orbit.gateway.service.WebSocketSessionRegistry;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoginWithScanCodeResultConsumerTests {
+
+    private static final long DELIVERY_TAG = 7;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ApplicationProperties properties = new ApplicationProperties();
+
+    private WebSocketSessionRegistry sessions;
+
+    private WebSocketSender sender;
+
+    private AuthorizationService authorizationService;
+
+    private Channel channel;
+
+    private LoginWithScanCodeResultConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        properties.getScanCode().setRequeueDelay(Duration.ofMillis(50));
+        sessions = mock(WebSocketSessionRegistry.class);
+        sender = mock(WebSocketSender.class);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getHandshakeInfo()).thenReturn(new HandshakeInfo(URI.create("ws://localhost/ws/scan-code"), new HttpHeaders(), Mono.empty(), null));
+        when(sender.getSession()).thenReturn(session);
+        when(sender.send(anyString())).thenReturn(true);
+        when(sessions.get("session")).thenReturn(sender);
+        authorizationService = mock(AuthorizationService.class);
+        channel = mock(Channel.class);
+        consumer = consumer(new BlockingOperations(properties, meterRegistry));
+    }
+
+    @Test
+    void resultWithoutSessionIsAcknowledged() throws Exception {
+        consumer.deliver(result("unknown", "success"), channel, DELIVERY_TAG);
+        verify(channel).basicAck(DELIVERY_TAG, false);
+        verify(sender, never()).send(anyString());
+    }
+
+    @Test
+    void failedResultIsSentAndAcknowledged() throws Exception {
+        consumer.deliver(result("session", "failure"), channel, DELIVERY_TAG);
+        verify(sender).send(anyString());
+        verify(channel).basicAck(DELIVERY_TAG, false);
+    }
+
+    @Test
+    void successfulResultIsAcknowledgedAfterTokenIsSent() throws Exception {
+        Oauth2Token token = mock(Oauth2Token.class);
+        when(token.getAccessToken()).thenReturn("access-token");
+        when(authorizationService.getToken(any(LoginParameters.class))).thenReturn(token);
+
+        consumer.deliver(result("session", "success"), channel, DELIVERY_TAG);
+
+        verify(channel, timeout(5000)).basicAck(DELIVERY_TAG, false);
+        verify(sender).send("{\"result\": \"success\", \"accessToken\": \"access-token\"}");
+        assertEquals(1, meterRegistry.get("gateway.scan-code.result.lag").timer().count());
+        assertEquals(1, meterRegistry.get("gateway.scan-code.token").timer().count());
+    }
+
+    @Test
+    void unexpectedErrorRejectsWithoutRequeue() throws Exception {
+        doThrow(new IllegalStateException("session is broken")).when(sender).send(anyString());
+        consumer.deliver(result("session", "failure"), channel, DELIVERY_TAG);
+        verify(channel).basicNack(DELIVERY_TAG, false, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void unexpectedErrorInLoginRejectsWithoutRequeue() throws Exception {
+        when(authorizationService.getToken(any(LoginParameters.class))).thenReturn(mock(Oauth2Token.class));
+        doThrow(new IllegalStateException("session is broken")).when(sender).send(anyString());
+        consumer.deliver(result("session", "success"), channel, DELIVERY_TAG);
+        verify(channel, timeout(5000)).basicNack(DELIVERY_TAG, false, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void rejectedLoginIsRequeuedAfterDelay() throws Exception {
+        BlockingOperations blockingOperations = mock(BlockingOperations.class);
+        when(blockingOperations.run(eq(BlockingOperations.SCAN_CODE_LOGIN), any())).thenReturn(Mono.error(new ServiceUnavailableException(ErrorCode.E_0x00200012)));
+        consumer(blockingOperations).deliver(result("session", "success"), channel, DELIVERY_TAG);
+
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verify(channel, timeout(5000)).basicNack(DELIVERY_TAG, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    private LoginWithScanCodeResultConsumer consumer(BlockingOperations blockingOperations) {
+        LoginWithScanCodeResultConsumer consumer = new LoginWithScanCodeResultConsumer(mock(OperationLogMessageProducer.class), properties, mock(HttpExceptionTranslatorDelegator.class), mock(UserService.class), mock(ImageCaptchaApplication.class),
+                mock(LoginFailureCounter.class), mock(AccessSourcePolicy.class), blockingOperations, meterRegistry, mock(LoginFailureAudit.class), sessions);
+        ReflectionTestUtils.setField(consumer, "authorizationService", authorizationService);
+        return consumer;
+    }
+
+    private static ScanCodeResult result(String sessionId, String result) {
+        ScanCodeResult res = new ScanCodeResult();
+        res.setSessionId(sessionId);
+        res.setUsername("admin");
+        res.setResult(result);
+        res.setMessage("message");
+        res.setScannedAt(System.currentTimeMillis());
+        return res;
+    }
+
+}
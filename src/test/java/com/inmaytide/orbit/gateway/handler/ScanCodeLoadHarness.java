@@ -0,0 +1,194 @@
+package com.inmaytide.orbit.gateway.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.inmaytide.orbit.gateway.service.LatencyHistogram;
+import com.inmaytide.orbit.gateway.service.WebSocketSender;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 扫码登录 WebSocket 的负载测试: 在本机打开大量客户端连接 <code>/scan-code</code>, 每个客户端请求 {@link LoginWithScanCodeHandler#REQ_NEW_CODE},
+ * 保持连接期间按间隔重新请求二维码, 统计:
+ * <ul>
+ *     <li>请求二维码到收到二维码内容的耗时</li>
+ *     <li>网关的堆内存, 每个会话平均占用的堆内存 (近似值, 建议固定网关的堆大小并在测试前后执行一次 GC)</li>
+ *     <li>网关在测试期间分配的内存 (每个会话, 每条消息) 和 GC 暂停, 即 GC 压力</li>
+ * </ul>
+ * 网关的指标通过 actuator 的 <code>/metrics</code> 读取, 需要开放该端点. 参数以系统属性传入:
+ * <ul>
+ *     <li><code>urls</code>: 逗号分隔的 WebSocket 地址, 默认 <code>ws://127.0.0.1:8080/scan-code</code>;
+ *     同一个目标地址最多约 28000 个本机端口, 十万以上的连接使用多个回环地址, 如 <code>ws://127.0.0.1:8080/scan-code,ws://127.0.0.2:8080/scan-code</code></li>
+ *     <li><code>actuator</code>: 默认 <code>http://127.0.0.1:8080/actuator</code></li>
+ *     <li><code>sessions</code>: 客户端数量, 默认 10000</li>
+ *     <li><code>connectConcurrency</code>: 同时建立中的连接数量, 默认 200</li>
+ *     <li><code>hold</code>: 全部连接建立后保持的时间, 默认 <code>PT1M</code></li>
+ *     <li><code>refresh</code>: 保持期间重新请求二维码的间隔, 默认 <code>PT10S</code>, <code>PT0S</code> 表示不重新请求</li>
+ * </ul>
+ * 客户端进程需要足够的文件描述符 (<code>ulimit -n</code>). 运行: 执行 {@link #main(String[])}
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ * @see WebSocketSender
+ */
+public class ScanCodeLoadHarness {
+
+    private final List<URI> urls;
+
+    private final WebClient actuator;
+
+    private final int sessions;
+
+    private final int connectConcurrency;
+
+    private final Duration hold;
+
+    private final Duration refresh;
+
+    private final ReactorNettyWebSocketClient client = new ReactorNettyWebSocketClient(HttpClient.create(ConnectionProvider.newConnection()));
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder messages = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final Queue<Disposable> clients = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLongArray requestedAt;
+
+    public ScanCodeLoadHarness() {
+        this.urls = Arrays.stream(System.getProperty("urls", "ws://127.0.0.1:8080/scan-code").split(",")).map(String::trim).map(URI::create).toList();
+        this.actuator = WebClient.create(System.getProperty("actuator", "http://127.0.0.1:8080/actuator"));
+        this.sessions = Integer.getInteger("sessions", 10000);
+        this.connectConcurrency = Integer.getInteger("connectConcurrency", 200);
+        this.hold = Duration.parse(System.getProperty("hold", "PT1M"));
+        this.refresh = Duration.parse(System.getProperty("refresh", "PT10S"));
+        this.requestedAt = new AtomicLongArray(sessions);
+    }
+
+    public void run() {
+        Metrics before = Metrics.read(actuator);
+        long started = System.nanoTime();
+        Flux.range(0, sessions)
+                .flatMap(this::open, connectConcurrency)
+                .blockLast();
+        Duration connecting = Duration.ofNanos(System.nanoTime() - started);
+        long connected = sessions - failures.sum();
+        System.out.printf("Opened %d sessions (%d failed) in %s, first codes: %s%n", connected, failures.sum(), connecting, latency.snapshot());
+
+        latency.reset();
+        sleep(hold);
+        Metrics after = Metrics.read(actuator);
+        System.out.printf("Codes while holding %s: %s%n", hold, latency.snapshot());
+        System.out.printf("Gateway sessions: %.0f -> %.0f%n", before.sessions, after.sessions);
+        System.out.printf("Heap used: %.1f MiB -> %.1f MiB, %.0f bytes per session%n", mib(before.heapUsed), mib(after.heapUsed), (after.heapUsed - before.heapUsed) / connected);
+        System.out.printf("Live data after last major GC: %.1f MiB -> %.1f MiB%n", mib(before.liveData), mib(after.liveData));
+        double allocated = after.allocated - before.allocated;
+        System.out.printf("Allocated: %.1f MiB, %.0f bytes per session, %.0f bytes per message%n", mib(allocated), allocated / connected, allocated / Math.max(messages.sum(), 1));
+        System.out.printf("GC pauses: %.0f, %.1f ms in total%n", after.gcPauses - before.gcPauses, (after.gcPauseSeconds - before.gcPauseSeconds) * 1000);
+
+        clients.forEach(Disposable::dispose);
+    }
+
+    /**
+     * @return 收到第一个二维码或连接失败时结束, 连接本身一直保持到 {@link #run()} 结束
+     */
+    private Mono<Void> open(int index) {
+        Sinks.Empty<Void> ready = Sinks.empty();
+        URI url = urls.get(index % urls.size());
+        Disposable session = client.execute(url, s -> {
+                    Flux<Long> ticks = refresh.isZero() ? Flux.just(0L) : Flux.interval(Duration.ZERO, refresh);
+                    return s.send(ticks.map(i -> {
+                                requestedAt.set(index, System.nanoTime());
+                                return s.textMessage(LoginWithScanCodeHandler.REQ_NEW_CODE);
+                            }))
+                            .and(s.receive().doOnNext(message -> {
+                                latency.record(System.nanoTime() - requestedAt.get(index));
+                                messages.increment();
+                                ready.tryEmitEmpty();
+                            }));
+                })
+                .subscribe(null, e -> {
+                    failures.increment();
+                    ready.tryEmitEmpty();
+                });
+        clients.add(session);
+        return ready.asMono();
+    }
+
+    private static double mib(double bytes) {
+        return bytes / 1024 / 1024;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Metrics(double sessions, double heapUsed, double liveData, double allocated, double gcPauses, double gcPauseSeconds) {
+
+        static Metrics read(WebClient actuator) {
+            return new Metrics(
+                    value(actuator, "gateway.websocket.sessions", "VALUE", null),
+                    value(actuator, "jvm.memory.used", "VALUE", "area:heap"),
+                    value(actuator, "jvm.gc.live.data.size", "VALUE", null),
+                    value(actuator, "jvm.gc.memory.allocated", "COUNT", null),
+                    value(actuator, "jvm.gc.pause", "COUNT", null),
+                    value(actuator, "jvm.gc.pause", "TOTAL_TIME", null)
+            );
+        }
+
+        /**
+         * @return 读取失败时返回 {@link Double#NaN}
+         */
+        private static double value(WebClient actuator, String name, String statistic, String tag) {
+            try {
+                JsonNode metric = actuator.get()
+                        .uri(builder -> {
+                            builder.path("/metrics/{name}");
+                            if (tag != null) {
+                                builder.queryParam("tag", tag);
+                            }
+                            return builder.build(name);
+                        })
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .block(Duration.ofSeconds(5));
+                List<JsonNode> measurements = new ArrayList<>();
+                metric.path("measurements").forEach(measurements::add);
+                return measurements.stream()
+                        .filter(m -> statistic.equals(m.path("statistic").asText()))
+                        .mapToDouble(m -> m.path("value").asDouble())
+                        .findFirst()
+                        .orElse(Double.NaN);
+            } catch (Exception e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        new ScanCodeLoadHarness().run();
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessSourcePolicyTests {
+
+    @Test
+    void noListsAllowEverything() {
+        assertTrue(policy(null, null).isAllowed("1.2.3.4", "中国-杭州市"));
+    }
+
+    @Test
+    void disabledEntriesMatchIpAndGeolocationAsSubstrings() {
+        AccessSourcePolicy policy = policy(List.of("192.168.1.", "美国"), null);
+        assertFalse(policy.isAllowed("192.168.1.20", "内网"));
+        assertFalse(policy.isAllowed("8.8.8.8", "美国"));
+        assertTrue(policy.isAllowed("192.168.2.20", "内网"));
+    }
+
+    @Test
+    void disabledNetworksMatchByRange() {
+        AccessSourcePolicy policy = policy(List.of("10.0.0.0/8", "172.16.5.7/32"), null);
+        assertFalse(policy.isAllowed("10.200.3.4", "内网"));
+        assertFalse(policy.isAllowed("172.16.5.7", "内网"));
+        assertTrue(policy.isAllowed("172.16.5.8", "内网"));
+        assertTrue(policy.isAllowed("11.0.0.1", "美国"));
+    }
+
+    @Test
+    void enabledEntriesRestrictGeolocation() {
+        AccessSourcePolicy policy = policy(null, List.of("中国", "192.168.0.0/16"));
+        assertTrue(policy.isAllowed("1.2.3.4", "中国-杭州市"));
+        assertTrue(policy.isAllowed("192.168.3.3", "内网"));
+        assertFalse(policy.isAllowed("8.8.8.8", "美国"));
+        assertFalse(policy(null, List.of()).isAllowed("1.2.3.4", "中国-杭州市"));
+    }
+
+    @Test
+    void refreshPicksUpChangedLists() {
+        ApplicationProperties properties = new ApplicationProperties();
+        AccessSourcePolicy policy = new AccessSourcePolicy(properties);
+        assertTrue(policy.isAllowed("1.2.3.4", "美国"));
+        properties.setDisabledAccessSources(List.of("美国"));
+        policy.refresh();
+        assertFalse(policy.isAllowed("1.2.3.4", "美国"));
+    }
+
+    @Test
+    void automatonAgreesWithContains() {
+        Random random = new Random(42);
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            patterns.add(randomText(random, 1 + random.nextInt(4)));
+        }
+        AhoCorasick automaton = AhoCorasick.compile(patterns);
+        for (int i = 0; i < 2000; i++) {
+            String text = randomText(random, random.nextInt(12));
+            assertEquals(patterns.stream().anyMatch(text::contains), automaton.matches(text), text);
+        }
+    }
+
+    private static AccessSourcePolicy policy(List<String> disabled, List<String> enabled) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setDisabledAccessSources(disabled);
+        properties.setEnabledAccessSources(enabled);
+        return new AccessSourcePolicy(properties);
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccessTokenExpiryCacheTests {
+
+    private static final String ACCESS_TOKEN = "access-token";
+
+    private final ApplicationProperties properties = new ApplicationProperties();
+
+    private final Sinks.Many<ReactiveSubscription.Message<String, String>> messages = Sinks.many().multicast().directBestEffort();
+
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    private ReactiveRedisMessageListenerContainer listenerContainer;
+
+    private AccessTokenExpiryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        when(redisTemplate.convertAndSend(anyString(), anyString())).thenReturn(Mono.just(1L));
+        listenerContainer = mock(ReactiveRedisMessageListenerContainer.class);
+        when(listenerContainer.receive(any(Topic[].class))).thenReturn(messages.asFlux());
+        cache = cache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.unsubscribe();
+    }
+
+    @Test
+    void unknownTokenIsMissed() {
+        assertEquals(Optional.empty(), cache.getLocalExpire(ACCESS_TOKEN, 0));
+    }
+
+    @Test
+    void recordedTokenIsAnsweredLocally() {
+        cache.record(ACCESS_TOKEN, 600);
+        long remaining = cache.getLocalExpire(ACCESS_TOKEN, 30).orElseThrow();
+        assertTrue(remaining > 590 && remaining <= 600, String.valueOf(remaining));
+    }
+
+    @Test
+    void tokenWithinWindowIsMissed() {
+        cache.record(ACCESS_TOKEN, 20);
+        assertEquals(Optional.empty(), cache.getLocalExpire(ACCESS_TOKEN, 30));
+        assertTrue(cache.getLocalExpire(ACCESS_TOKEN, 10).isPresent());
+    }
+
+    @Test
+    void expiredOrMissingTokenIsNotRecorded() {
+        cache.record(ACCESS_TOKEN, 0);
+        cache.record("missing", -2);
+        assertEquals(Optional.empty(), cache.getLocalExpire(ACCESS_TOKEN, 0));
+        assertEquals(Optional.empty(), cache.getLocalExpire("missing", 0));
+    }
+
+    @Test
+    void invalidationIsPublishedToOtherNodes() {
+        cache.record(ACCESS_TOKEN, 600);
+        cache.invalidate(ACCESS_TOKEN).block(Duration.ofSeconds(1));
+        assertEquals(Optional.empty(), cache.getLocalExpire(ACCESS_TOKEN, 0));
+        verify(redisTemplate).convertAndSend(AccessTokenExpiryCache.INVALIDATION_CHANNEL, ACCESS_TOKEN);
+    }
+
+    @Test
+    void publishFailureDoesNotFailInvalidation() {
+        when(redisTemplate.convertAndSend(anyString(), anyString())).thenReturn(Mono.error(new IllegalStateException("redis is down")));
+        cache.record(ACCESS_TOKEN, 600);
+        cache.invalidate(ACCESS_TOKEN).block(Duration.ofSeconds(1));
+        assertEquals(Optional.empty(), cache.getLocalExpire(ACCESS_TOKEN, 0));
+    }
+
+    @Test
+    void invalidationFromOtherNodeIsApplied() {
+        cache.subscribe();
+        cache.record(ACCESS_TOKEN, 600);
+        cache.record("other", 600);
+        messages.tryEmitNext(new ReactiveSubscription.ChannelMessage<>(AccessTokenExpiryCache.INVALIDATION_CHANNEL, ACCESS_TOKEN));
+        assertEquals(Optional.empty(), cache.getLocalExpire(ACCESS_TOKEN, 0));
+        assertTrue(cache.getLocalExpire("other", 0).isPresent());
+    }
+
+    @Test
+    void keyspaceNotificationInvalidatesToken() {
+        assertFalse(cache.isRevocationAware());
+        properties.getAccessTokenCache().setKeyspaceNotifications(true);
+        cache = cache();
+        assertTrue(cache.isRevocationAware());
+        cache.subscribe();
+        cache.record(ACCESS_TOKEN, 600);
+        String key = ReactiveValueCaches.getCacheKey(Constants.CacheNames.ACCESS_TOKEN_STORE, ACCESS_TOKEN);
+        messages.tryEmitNext(new ReactiveSubscription.PatternMessage<>("__keyspace@*__:*", "__keyspace@0__:" + key, "del"));
+        assertEquals(Optional.empty(), cache.getLocalExpire(ACCESS_TOKEN, 0));
+    }
+
+    @Test
+    void disabledCacheNeverAnswersLocally() {
+        properties.getAccessTokenCache().setEnabled(false);
+        cache = cache();
+        cache.record(ACCESS_TOKEN, 600);
+        assertEquals(Optional.empty(), cache.getLocalExpire(ACCESS_TOKEN, 0));
+        cache.invalidate(ACCESS_TOKEN).block(Duration.ofSeconds(1));
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    private AccessTokenExpiryCache cache() {
+        return new AccessTokenExpiryCache(redisTemplate, listenerContainer, properties, new SimpleMeterRegistry());
+    }
+
+}
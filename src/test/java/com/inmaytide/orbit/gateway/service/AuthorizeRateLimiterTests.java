@@ -0,0 +1,101 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthorizeRateLimiterTests {
+
+    @Test
+    void bucketAllowsBurstThenRefillsAtConstantRate() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(3));
+        long now = 1_000;
+        assertTrue(bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now));
+        assertFalse(bucket.tryAcquire(now));
+        assertFalse(bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(999)));
+        assertTrue(bucket.tryAcquire(now + TimeUnit.SECONDS.toNanos(1)));
+        assertFalse(bucket.tryAcquire(now + TimeUnit.SECONDS.toNanos(1)));
+        // 长时间未使用后最多恢复到容量
+        long later = now + TimeUnit.MINUTES.toNanos(1);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire(later));
+        }
+        assertFalse(bucket.tryAcquire(later));
+    }
+
+    @Test
+    void ipAddressesAreLimitedIndependently() {
+        AuthorizeRateLimiter limiter = limiter(false, mock(ReactiveStringRedisTemplate.class), new SimpleMeterRegistry());
+        assertTrue(limiter.tryAcquireByIpAddress("10.0.0.1").block());
+        assertTrue(limiter.tryAcquireByIpAddress("10.0.0.1").block());
+        assertFalse(limiter.tryAcquireByIpAddress("10.0.0.1").block());
+        assertTrue(limiter.tryAcquireByIpAddress("10.0.0.2").block());
+        assertTrue(limiter.tryAcquireByUsername("admin").block());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void locallyRejectedRequestsDoNotReachRedis() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(1L));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthorizeRateLimiter limiter = limiter(true, redisTemplate, meterRegistry);
+        assertTrue(limiter.tryAcquireByUsername("admin").block());
+        assertTrue(limiter.tryAcquireByUsername("admin").block());
+        assertFalse(limiter.tryAcquireByUsername("admin").block());
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), anyList());
+        assertEquals(1, meterRegistry.get("gateway.authorize.rate-limited").tag("dimension", "username").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void redisRejectionAndFailure() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just(0L))
+                .thenReturn(Flux.error(new IllegalStateException("connection refused")));
+        AuthorizeRateLimiter limiter = limiter(true, redisTemplate, new SimpleMeterRegistry());
+        assertFalse(limiter.tryAcquireByIpAddress("10.0.0.1").block());
+        assertTrue(limiter.tryAcquireByIpAddress("10.0.0.1").block());
+    }
+
+    @Test
+    void disabledLimiterAllowsEverything() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        ApplicationProperties properties = new ApplicationProperties();
+        AuthorizeRateLimiter limiter = new AuthorizeRateLimiter(redisTemplate, properties, new SimpleMeterRegistry());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquireByIpAddress("10.0.0.1").block());
+        }
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    private static AuthorizeRateLimiter limiter(boolean distributed, ReactiveStringRedisTemplate redisTemplate, SimpleMeterRegistry meterRegistry) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getAuthorizeRateLimit().setEnabled(true);
+        properties.getAuthorizeRateLimit().setDistributed(distributed);
+        properties.getAuthorizeRateLimit().setIpAddress(new ApplicationProperties.AuthorizeRateLimit.Limit(2, Duration.ofMinutes(1)));
+        properties.getAuthorizeRateLimit().setUsername(new ApplicationProperties.AuthorizeRateLimit.Limit(2, Duration.ofMinutes(1)));
+        return new AuthorizeRateLimiter(redisTemplate, properties, meterRegistry);
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.exception.web.ServiceUnavailableException;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockingOperationsTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void callsRunOffTheCallingThread() {
+        BlockingOperations operations = operations(ApplicationProperties.BlockingOperations.Mode.BOUNDED_ELASTIC, 4, 10);
+        Thread caller = Thread.currentThread();
+        Thread executed = operations.call(BlockingOperations.LOGIN, Thread::currentThread).block(Duration.ofSeconds(1));
+        assertNotEquals(caller, executed);
+    }
+
+    @Test
+    void virtualThreadsModeUsesVirtualThreads() {
+        BlockingOperations operations = operations(ApplicationProperties.BlockingOperations.Mode.VIRTUAL_THREADS, 4, 10);
+        assertEquals(Boolean.TRUE, operations.call(BlockingOperations.LOGIN, () -> Thread.currentThread().isVirtual()).block(Duration.ofSeconds(1)));
+        operations.shutdown();
+    }
+
+    @Test
+    void concurrencyIsLimitedPerOperation() {
+        BlockingOperations operations = operations(ApplicationProperties.BlockingOperations.Mode.BOUNDED_ELASTIC, 2, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Integer> results = Flux.range(0, 20)
+                .flatMap(i -> operations.call(BlockingOperations.LOGIN, () -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    TimeUnit.MILLISECONDS.sleep(5);
+                    running.decrementAndGet();
+                    return i;
+                }))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        assertEquals(20, results.size());
+        assertTrue(peak.get() <= 2);
+        assertEquals(0, meterRegistry.get("gateway.blocking.queued").tag("operation", BlockingOperations.LOGIN).gauge().value());
+    }
+
+    @Test
+    void callsBeyondQueueLimitAreRejected() throws InterruptedException {
+        BlockingOperations operations = operations(ApplicationProperties.BlockingOperations.Mode.BOUNDED_ELASTIC, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        operations.run(BlockingOperations.LOGOUT, () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }).subscribe();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        Mono<Integer> queued = operations.call(BlockingOperations.LOGOUT, () -> 1).cache();
+        queued.subscribe();
+        assertThrows(ServiceUnavailableException.class, () -> operations.call(BlockingOperations.LOGOUT, () -> 2).block(Duration.ofSeconds(1)));
+        assertEquals(1, meterRegistry.get("gateway.blocking.rejected").tag("operation", BlockingOperations.LOGOUT).counter().count());
+        // 其他操作不受影响
+        assertEquals(3, operations.call(BlockingOperations.LOGIN, () -> 3).block(Duration.ofSeconds(1)));
+        release.countDown();
+        assertEquals(1, queued.block(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void callsWithIdleCapacityAreNotCountedAsQueued() throws InterruptedException {
+        BlockingOperations operations = operations(ApplicationProperties.BlockingOperations.Mode.BOUNDED_ELASTIC, 1, 0);
+        assertEquals(1, operations.call(BlockingOperations.LOGIN, () -> 1).block(Duration.ofSeconds(1)));
+        assertEquals(2, operations.call(BlockingOperations.LOGIN, () -> 2).block(Duration.ofSeconds(1)));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        operations.run(BlockingOperations.LOGIN, () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }).subscribe();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        assertThrows(ServiceUnavailableException.class, () -> operations.call(BlockingOperations.LOGIN, () -> 3).block(Duration.ofSeconds(1)));
+        release.countDown();
+        assertEquals(1, meterRegistry.get("gateway.blocking.rejected").tag("operation", BlockingOperations.LOGIN).counter().count());
+    }
+
+    @Test
+    void schedulingFailureReleasesPermit() {
+        BlockingOperations operations = operations(ApplicationProperties.BlockingOperations.Mode.VIRTUAL_THREADS, 1, 10);
+        operations.shutdown();
+        assertThrows(ServiceUnavailableException.class, () -> operations.call(BlockingOperations.LOGIN, () -> 1).block(Duration.ofSeconds(1)));
+        assertThrows(ServiceUnavailableException.class, () -> operations.call(BlockingOperations.LOGIN, () -> 2).block(Duration.ofSeconds(1)));
+        assertEquals(0, meterRegistry.get("gateway.blocking.active").tag("operation", BlockingOperations.LOGIN).gauge().value());
+        assertEquals(0, meterRegistry.get("gateway.blocking.queued").tag("operation", BlockingOperations.LOGIN).gauge().value());
+    }
+
+    @Test
+    void failuresArePropagated() {
+        BlockingOperations operations = operations(ApplicationProperties.BlockingOperations.Mode.BOUNDED_ELASTIC, 1, 10);
+        assertThrows(IllegalStateException.class, () -> operations.call(BlockingOperations.LOGIN, () -> {
+            throw new IllegalStateException();
+        }).block(Duration.ofSeconds(1)));
+        assertEquals(1, operations.call(BlockingOperations.LOGIN, () -> 1).block(Duration.ofSeconds(1)));
+    }
+
+    private BlockingOperations operations(ApplicationProperties.BlockingOperations.Mode mode, int maxConcurrency, int maxQueued) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getBlockingOperations().setMode(mode);
+        properties.getBlockingOperations().setMaxConcurrency(maxConcurrency);
+        properties.getBlockingOperations().setMaxQueued(maxQueued);
+        return new BlockingOperations(properties, meterRegistry);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClientAddressResolverTests {
+
+    @Test
+    void forwardedHeadersFromUntrustedClientsAreIgnored() {
+        ClientAddressResolver resolver = resolver();
+        assertEquals("203.0.113.7", resolver.resolve(request("203.0.113.7", "1.1.1.1")));
+    }
+
+    @Test
+    void forwardedHeadersFromTrustedProxiesAreUsed() {
+        ClientAddressResolver resolver = resolver("10.0.0.0/8");
+        assertEquals("203.0.113.7", resolver.resolve(request("10.0.0.2", "203.0.113.7")));
+    }
+
+    @Test
+    void addressesPrependedByTheClientAreIgnored() {
+        ClientAddressResolver resolver = resolver("10.0.0.0/8");
+        // 客户端伪造了 1.1.1.1, 可信代理追加了真实地址和上一级代理的地址
+        assertEquals("203.0.113.7", resolver.resolve(request("10.0.0.2", "1.1.1.1, 203.0.113.7, 10.0.0.9")));
+    }
+
+    @Test
+    void remoteAddressIsUsedWithoutForwardedHeaders() {
+        ClientAddressResolver resolver = resolver("10.0.0.0/8");
+        assertEquals("10.0.0.2", resolver.resolve(request("10.0.0.2", null)));
+    }
+
+    private static ClientAddressResolver resolver(String... trustedProxies) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getClientAddress().setTrustedProxies(List.of(trustedProxies));
+        return new ClientAddressResolver(properties);
+    }
+
+    private static MockServerHttpRequest request(String remoteAddress, String forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> builder = MockServerHttpRequest.get("/authorize/login")
+                .remoteAddress(new InetSocketAddress(remoteAddress, 40000));
+        if (forwardedFor != null) {
+            builder.header("X-Forwarded-For", forwardedFor);
+        }
+        return builder.build();
+    }
+
+}
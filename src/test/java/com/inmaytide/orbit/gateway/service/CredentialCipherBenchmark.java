@@ -0,0 +1,94 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.utils.CodecUtils;
+import com.inmaytide.orbit.gateway.domain.Credentials;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比解密登录密码的几种方式:
+ * <ul>
+ *     <li>codecUtils: 原来的 {@link CodecUtils#decrypt(String, String)}, 每次解析私钥并创建 {@link Cipher}</li>
+ *     <li>credentialCipher: {@link CredentialCipher}, 私钥只解析一次, 复用 {@link Cipher}</li>
+ *     <li>credentialsReadTwice: 处理一次登录请求时 {@link Credentials#getPassword()} 被多次调用, 只解密一次</li>
+ * </ul>
+ * 密文使用由 {@link CodecUtils#RSA_PRIVATE_KEY} 推导出的公钥生成, 与前端加密密码的方式一致. 运行: 执行 {@link #main(String[])}
+ *
+ * @author inmaytide
+ * @since 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CredentialCipherBenchmark {
+
+    private String encrypted;
+
+    @Setup
+    public void setUp() throws Exception {
+        String encoded = CodecUtils.RSA_PRIVATE_KEY.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+        KeyFactory factory = KeyFactory.getInstance("RSA");
+        RSAPrivateCrtKey privateKey = (RSAPrivateCrtKey) factory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(encoded)));
+        PublicKey publicKey = factory.generatePublic(new RSAPublicKeySpec(privateKey.getModulus(), privateKey.getPublicExponent()));
+        Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+        encrypted = Base64.getEncoder().encodeToString(cipher.doFinal("P@ssw0rd-2026".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String codecUtils() throws Exception {
+        return CodecUtils.decrypt(encrypted, CodecUtils.RSA_PRIVATE_KEY);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String credentialCipher() throws Exception {
+        return CredentialCipher.decrypt(encrypted);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String credentialCipherContended() throws Exception {
+        return CredentialCipher.decrypt(encrypted);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String credentialsReadTwice() {
+        Credentials credentials = new Credentials();
+        credentials.setPassword(encrypted);
+        credentials.getPassword();
+        return credentials.getPassword();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CredentialCipherBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.utils.CodecUtils;
+import com.inmaytide.orbit.gateway.domain.Credentials;
+import com.inmaytide.orbit.gateway.domain.ScanCodeCredentials;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import javax.crypto.BadPaddingException;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mockStatic;
+
+class CredentialCipherTests {
+
+    @Test
+    void decryptsContentEncryptedByCodecUtils() throws Exception {
+        long expiry = Instant.now().plusSeconds(600).toEpochMilli();
+        String content = CodecUtils.encrypt("session.code." + expiry, CodecUtils.RSA_PRIVATE_KEY);
+        ScanCodeCredentials credentials = new ScanCodeCredentials();
+        credentials.setContent(content);
+        assertEquals("session", credentials.getSessionId());
+        assertEquals("code", credentials.getCode());
+        assertEquals(expiry, credentials.getExpiry().toEpochMilli());
+    }
+
+    @Test
+    void invalidScanCodeContentFailsWhenRead() {
+        ScanCodeCredentials credentials = new ScanCodeCredentials();
+        assertDoesNotThrow(() -> credentials.setContent("not-encrypted"));
+        assertThrows(IllegalArgumentException.class, credentials::getSessionId);
+    }
+
+    @Test
+    void failedDecryptionIsNotRetriedByCodecUtils() throws Exception {
+        String content = CodecUtils.encrypt("session.code.1", CodecUtils.RSA_PRIVATE_KEY);
+        assertEquals("session.code.1", CredentialCipher.decrypt(content));
+        String zeroBlock = Base64.getEncoder().encodeToString(new byte[Base64.getMimeDecoder().decode(content).length]);
+        try (MockedStatic<CodecUtils> codecUtils = mockStatic(CodecUtils.class)) {
+            assertThrows(IllegalArgumentException.class, () -> CredentialCipher.decrypt(Base64.getEncoder().encodeToString(new byte[10])));
+            assertThrows(BadPaddingException.class, () -> CredentialCipher.decrypt(zeroBlock));
+            codecUtils.verifyNoInteractions();
+        }
+    }
+
+    @Test
+    void passwordIsDecryptedOnce() {
+        Credentials credentials = new Credentials();
+        credentials.setPassword("not-encrypted");
+        String first = credentials.getPassword();
+        assertSame(first, credentials.getPassword());
+        credentials.setPassword("changed");
+        assertEquals("changed", credentials.getPassword());
+    }
+
+}
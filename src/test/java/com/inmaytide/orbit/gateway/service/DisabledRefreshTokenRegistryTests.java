@@ -0,0 +1,113 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveRedisCallback;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DisabledRefreshTokenRegistryTests {
+
+    private final String keyPrefix = ReactiveValueCaches.getCacheKey(Constants.CacheNames.DISABLED_REFRESH_TOKEN, "");
+
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    private DisabledRefreshTokenRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getDisabledRefreshTokens().setReplicated(true);
+        registry = new DisabledRefreshTokenRegistry(redisTemplate, mock(ReactiveRedisMessageListenerContainer.class), properties);
+    }
+
+    @Test
+    void everyTokenMightBeDisabledBeforeSynchronization() {
+        assertTrue(registry.mightBeDisabled("unknown"));
+    }
+
+    @Test
+    void synchronizedRegistryAnswersLocally() {
+        notifications("KEA");
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(Flux.just(keyPrefix + "disabled"));
+        registry.resync().block(Duration.ofSeconds(1));
+        assertTrue(registry.isReady());
+        assertTrue(registry.mightBeDisabled("disabled"));
+        assertFalse(registry.mightBeDisabled("active"));
+    }
+
+    @Test
+    void registryFailsClosedWithoutNotifications() {
+        notifications("");
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(Flux.empty());
+        registry.resync().block(Duration.ofSeconds(1));
+        assertFalse(registry.isReady());
+        assertTrue(registry.mightBeDisabled("active"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void registryFailsClosedWhenConfigCannotBeRead() {
+        when(redisTemplate.execute(any(ReactiveRedisCallback.class))).thenReturn(Flux.error(new IllegalStateException("unknown command 'CONFIG'")));
+        registry.resync().block(Duration.ofSeconds(1));
+        assertFalse(registry.isReady());
+        assertTrue(registry.mightBeDisabled("active"));
+    }
+
+    @Test
+    void notificationsAreApplied() {
+        notifications("Kg$xe");
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(Flux.empty());
+        registry.resync().block(Duration.ofSeconds(1));
+        registry.apply(message("disabled", "set"));
+        assertTrue(registry.mightBeDisabled("disabled"));
+        registry.apply(message("disabled", "expired"));
+        assertFalse(registry.mightBeDisabled("disabled"));
+    }
+
+    @Test
+    void notificationsDuringResynchronizationAreKept() {
+        notifications("KEA");
+        Sinks.Many<String> keys = Sinks.many().unicast().onBackpressureBuffer();
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(keys.asFlux());
+        Mono<Void> resync = registry.resync().cache();
+        resync.subscribe();
+        keys.tryEmitNext(keyPrefix + "scanned");
+        // SCAN 已经越过了这个 key 所在的位置
+        registry.apply(message("disabled-during-scan", "set"));
+        keys.tryEmitComplete();
+        resync.block(Duration.ofSeconds(1));
+        assertTrue(registry.mightBeDisabled("scanned"));
+        assertTrue(registry.mightBeDisabled("disabled-during-scan"));
+        assertFalse(registry.mightBeDisabled("active"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifications(String flags) {
+        Properties config = new Properties();
+        config.setProperty(DisabledRefreshTokenRegistry.NOTIFY_KEYSPACE_EVENTS, flags);
+        when(redisTemplate.execute(any(ReactiveRedisCallback.class))).thenReturn(Flux.just(config));
+    }
+
+    private ReactiveSubscription.Message<String, String> message(String refreshToken, String event) {
+        return new ReactiveSubscription.PatternMessage<>("__keyspace@*__:" + keyPrefix + "*", "__keyspace@0__:" + keyPrefix + refreshToken, event);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GatewayNodeTests {
+
+    @Test
+    void qualifiedSessionIdRoutesToOwningNode() {
+        GatewayNode node = node("gateway-1");
+        String qualified = node.qualify("8f2a1c");
+        assertEquals("gateway-1~8f2a1c", qualified);
+        assertEquals(node.getRoutingKey(), GatewayNode.routingKeyOf(qualified));
+        assertEquals("orbit.queue.scan.code.login.result.gateway-1", node.getRoutingKey());
+        assertEquals("8f2a1c", GatewayNode.localSessionId(qualified));
+    }
+
+    @Test
+    void legacySessionIdHasNoNode() {
+        assertNull(GatewayNode.routingKeyOf("8f2a1c"));
+        assertEquals("8f2a1c", GatewayNode.localSessionId("8f2a1c"));
+        assertNull(GatewayNode.routingKeyOf(null));
+    }
+
+    @Test
+    void nodeIdIsGeneratedOrValidated() {
+        assertNotEquals(node(null).getId(), node(null).getId());
+        assertThrows(IllegalArgumentException.class, () -> node("gateway.1"));
+    }
+
+    private static GatewayNode node(String id) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getScanCode().setNodeId(id);
+        return new GatewayNode(properties);
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IpBlocklistTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void overlappingAndAdjacentRangesAreMerged() {
+        IpRangeIndex index = IpRangeIndex.of(List.of("10.0.0.0/24", "10.0.1.0-10.0.1.255", "10.0.0.128/25", "not-a-range", "200.1.1.1"));
+        assertEquals(2, index.size());
+        assertTrue(index.contains(ip("10.0.1.200")));
+        assertTrue(index.contains(ip("200.1.1.1")));
+        assertFalse(index.contains(ip("10.0.2.0")));
+        assertFalse(index.contains(-1));
+    }
+
+    @Test
+    void addressesAboveSignedRangeAreHandled() {
+        IpRangeIndex index = IpRangeIndex.of(List.of("192.168.0.0/16", "255.255.255.255"));
+        assertTrue(index.contains(ip("192.168.10.1")));
+        assertTrue(index.contains(ip("255.255.255.255")));
+        assertFalse(index.contains(ip("127.0.0.1")));
+        assertFalse(index.contains(ip("193.0.0.1")));
+    }
+
+    @Test
+    void lookupsAgreeWithLinearScan() {
+        Random random = new Random(7);
+        List<String> ranges = new ArrayList<>();
+        List<long[]> parsed = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            long start = random.nextLong(0xFFFFFFFFL);
+            long end = Math.min(start + random.nextInt(1 << 16), 0xFFFFFFFFL);
+            ranges.add(format(start) + "-" + format(end));
+            parsed.add(new long[]{start, end});
+        }
+        IpRangeIndex index = IpRangeIndex.of(ranges);
+        for (int i = 0; i < 20000; i++) {
+            long address = random.nextLong(0x100000000L);
+            boolean expected = parsed.stream().anyMatch(range -> range[0] <= address && address <= range[1]);
+            assertEquals(expected, index.contains(address), format(address));
+        }
+    }
+
+    @Test
+    void runtimeChangesAreIncremental() {
+        IpBlocklist blocklist = blocklist(List.of("1.1.1.1"), null);
+        assertTrue(blocklist.block("8.8.0.0/16"));
+        assertTrue(blocklist.isBlocked(ip("8.8.8.8")));
+        assertTrue(blocklist.unblock("8.8.8.0/24"));
+        assertFalse(blocklist.isBlocked(ip("8.8.8.8")));
+        assertTrue(blocklist.isBlocked(ip("8.8.9.1")));
+        assertEquals(2, blocklist.runtimeSize());
+        assertFalse(blocklist.block("8.8.8"));
+
+        blocklist.reload();
+        assertTrue(blocklist.isBlocked(ip("8.8.9.1")));
+        assertTrue(blocklist.isBlocked(ip("1.1.1.1")));
+    }
+
+    @Test
+    void fileAndConfiguredRangesAreCombined() throws IOException {
+        Path file = directory.resolve("blocklist.txt");
+        Files.write(file, List.of("# scanners", "", "45.0.0.0/8", "46.1.1.1-46.1.1.9"));
+        IpBlocklist blocklist = blocklist(List.of("1.1.1.1"), file);
+        assertTrue(blocklist.isBlocked(ip("45.3.3.3")));
+        assertTrue(blocklist.isBlocked(ip("46.1.1.5")));
+        assertTrue(blocklist.isBlocked(ip("1.1.1.1")));
+        assertFalse(blocklist.isBlocked(ip("46.1.1.10")));
+        blocklist.stopReloading();
+    }
+
+    @Test
+    void disabledBlocklistBlocksNothing() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getIpBlocklist().setRanges(List.of("0.0.0.0/0"));
+        IpBlocklist blocklist = new IpBlocklist(properties);
+        blocklist.load();
+        assertFalse(blocklist.isBlocked(ip("1.2.3.4")));
+    }
+
+    private static IpBlocklist blocklist(List<String> ranges, Path file) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getIpBlocklist().setEnabled(true);
+        properties.getIpBlocklist().setRanges(ranges);
+        properties.getIpBlocklist().setFile(file == null ? null : file.toString());
+        IpBlocklist blocklist = new IpBlocklist(properties);
+        blocklist.load();
+        return blocklist;
+    }
+
+    private static long ip(String address) {
+        return IpAddresses.parseIpv4(address);
+    }
+
+    private static String format(long address) {
+        return (address >>> 24) + "." + (address >>> 16 & 0xFF) + "." + (address >>> 8 & 0xFF) + "." + (address & 0xFF);
+    }
+
+}
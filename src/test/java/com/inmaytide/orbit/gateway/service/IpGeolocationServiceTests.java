@@ -0,0 +1,133 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lionsoul.ip2region.xdb.Searcher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IpGeolocationServiceTests {
+
+    private static final String HANGZHOU = "中国|0|浙江省|杭州市|电信";
+
+    @TempDir
+    Path directory;
+
+    private Path database;
+
+    private IpGeolocationService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        database = directory.resolve("ip2region.xdb");
+        write(database, HANGZHOU);
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getGeolocation().setDatabase(database.toString());
+        service = new IpGeolocationService(properties);
+        service.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stopReloading();
+    }
+
+    @Test
+    void regionIsReducedToCountryAndSmallestDivision() {
+        assertEquals("中国-杭州市", service.search("1.0.0.8"));
+        assertEquals("美国", service.search("2.3.4.5"));
+        assertEquals(Constants.Markers.LAN, service.search("10.1.2.3"));
+        assertEquals(Constants.Markers.NOT_APPLICABLE, service.search("20.0.0.1"));
+        assertEquals("中国-杭州市", service.search("::ffff:1.0.0.8"));
+    }
+
+    @Test
+    void unsupportedAddressesDoNotThrow() {
+        assertEquals(Constants.Markers.NOT_APPLICABLE, service.search("2001:db8::1"));
+        assertEquals(Constants.Markers.NOT_APPLICABLE, service.search("999.1.1.1"));
+        assertEquals(Constants.Markers.NOT_APPLICABLE, service.search("1.2.3"));
+        assertEquals(Constants.Markers.NOT_APPLICABLE, service.search("unknown"));
+        assertEquals(Constants.Markers.NOT_APPLICABLE, service.search(null));
+    }
+
+    @Test
+    void reloadSwapsInNewDatabase() throws IOException {
+        assertEquals("中国-杭州市", service.search("1.0.0.8"));
+        write(database, "中国|0|江苏省|南京市|联通");
+        service.reload();
+        assertEquals("中国-南京市", service.search("1.0.0.8"));
+    }
+
+    @Test
+    void invalidDatabaseIsNotSwappedIn() throws IOException {
+        Files.write(database, new byte[16]);
+        service.reload();
+        assertEquals("中国-杭州市", service.search("1.0.0.8"));
+    }
+
+    /**
+     * 按 xdb 格式写入一个覆盖全部 IPv4 地址的小型数据库
+     */
+    private static void write(Path path, String region) throws IOException {
+        long[][] ranges = {
+                {0L, ip(0, 255, 255, 255)},
+                {ip(1, 0, 0, 0), ip(1, 0, 0, 255)},
+                {ip(1, 0, 1, 0), ip(9, 255, 255, 255)},
+                {ip(10, 0, 0, 0), ip(10, 255, 255, 255)},
+                {ip(11, 0, 0, 0), 0xFFFFFFFFL}
+        };
+        String[] regions = {"0|0|0|0|0", region, "美国|0|0|0|0", "0|0|0|内网IP|内网IP", "0|0|0|0|0"};
+        int vectorSize = Searcher.VectorIndexRows * Searcher.VectorIndexCols * Searcher.VectorIndexSize;
+        int segmentStart = Searcher.HeaderInfoLength + vectorSize;
+        int dataStart = segmentStart + ranges.length * Searcher.SegmentIndexSize;
+        byte[][] data = new byte[regions.length][];
+        int dataSize = 0;
+        for (int i = 0; i < regions.length; i++) {
+            data[i] = regions[i].getBytes(StandardCharsets.UTF_8);
+            dataSize += data[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(dataStart + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        for (int cell = 0; cell < Searcher.VectorIndexRows * Searcher.VectorIndexCols; cell++) {
+            long cellStart = (long) cell << 16;
+            long cellEnd = cellStart | 0xFFFF;
+            int first = -1;
+            int last = -1;
+            for (int i = 0; i < ranges.length; i++) {
+                if (ranges[i][1] >= cellStart && ranges[i][0] <= cellEnd) {
+                    first = first < 0 ? i : first;
+                    last = i;
+                }
+            }
+            int offset = Searcher.HeaderInfoLength + cell * Searcher.VectorIndexSize;
+            buffer.putInt(offset, segmentStart + first * Searcher.SegmentIndexSize);
+            buffer.putInt(offset + 4, segmentStart + last * Searcher.SegmentIndexSize);
+        }
+        int dataPtr = dataStart;
+        for (int i = 0; i < ranges.length; i++) {
+            int offset = segmentStart + i * Searcher.SegmentIndexSize;
+            buffer.putInt(offset, (int) ranges[i][0]);
+            buffer.putInt(offset + 4, (int) ranges[i][1]);
+            buffer.putShort(offset + 8, (short) data[i].length);
+            buffer.putInt(offset + 10, dataPtr);
+            buffer.put(dataPtr, data[i]);
+            dataPtr += data[i].length;
+        }
+        Files.write(path, buffer.array());
+    }
+
+    private static long ip(int a, int b, int c, int d) {
+        return (long) a << 24 | b << 16 | c << 8 | d;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.inmaytide.orbit.gateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTests {
+
+    @Test
+    void everyValueFallsIntoBucketCoveringIt() {
+        for (long value = 0; value < 1_000_000; value += value < 1024 ? 1 : 997) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.lowerBoundOf(index) <= value, "value " + value);
+            assertTrue(LatencyHistogram.lowerBoundOf(index + 1) > value, "value " + value);
+        }
+    }
+
+    @Test
+    void percentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        Map<String, Object> snapshot = histogram.snapshot();
+        assertEquals(1000L, snapshot.get("count"));
+        assertEquals(1000.0, snapshot.get("max"));
+        assertWithin(500, (double) snapshot.get("p50"));
+        assertWithin(990, (double) snapshot.get("p99"));
+    }
+
+    @Test
+    void resetClearsRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        histogram.reset();
+        assertEquals(0L, histogram.snapshot().get("count"));
+        assertEquals(0.0, histogram.snapshot().get("max"));
+    }
+
+    private static void assertWithin(double expected, double actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125, "expected about " + expected + " but was " + actual);
+    }
+
+}
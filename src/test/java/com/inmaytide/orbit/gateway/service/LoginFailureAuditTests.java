@@ -0,0 +1,150 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.log.domain.OperationLog;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginFailureAuditTests {
+
+    private static final Pattern REPEATED = Pattern.compile("另有 (\\d+) 次");
+
+    private final List<OperationLog> published = new ArrayList<>();
+
+    private final AtomicInteger built = new AtomicInteger();
+
+    @Test
+    void repeatedFailuresAreSummarized() {
+        LoginFailureAudit audit = new LoginFailureAudit(published::add, new ApplicationProperties());
+        for (int i = 0; i < 100; i++) {
+            audit.failed("admin", "10.0.0.1", "0x00200010", this::buildLog);
+        }
+        audit.failed("admin", "10.0.0.2", "0x00200010", this::buildLog);
+        assertEquals(2, published.size());
+        assertEquals(2, built.get());
+
+        audit.flush();
+        assertEquals(3, published.size());
+        assertTrue(published.get(2).getResponse().contains("99"));
+        assertEquals("10.0.0.1", published.get(2).getIpAddress());
+
+        // 新的时间段重新立即记录第一次失败
+        audit.failed("admin", "10.0.0.1", "0x00200010", this::buildLog);
+        assertEquals(4, published.size());
+        audit.flush();
+        assertEquals(4, published.size());
+    }
+
+    @Test
+    void overflowIsAggregatedByCode() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getLoginAudit().setMaximumAggregated(2);
+        LoginFailureAudit audit = new LoginFailureAudit(published::add, properties);
+        for (int i = 0; i < 50; i++) {
+            audit.failed("user" + i, "10.0.0.1", "0x00200010", this::buildLog);
+        }
+        assertEquals(3, published.size());
+        audit.flush();
+        assertEquals(4, published.size());
+    }
+
+    @Test
+    void overflowSummaryIsNotAttributedToOneUser() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getLoginAudit().setMaximumAggregated(1);
+        LoginFailureAudit audit = new LoginFailureAudit(published::add, properties);
+        for (int i = 0; i < 10; i++) {
+            String username = "user" + i;
+            String ipAddress = "10.0.0." + i;
+            audit.failed(username, ipAddress, "0x00200010", () -> {
+                OperationLog log = buildLog();
+                log.setIpAddress(ipAddress);
+                log.setArguments("Credentials{username='" + username + "'}");
+                return log;
+            });
+        }
+        audit.flush();
+        OperationLog summary = published.get(published.size() - 1);
+        assertNull(summary.getIpAddress());
+        assertNull(summary.getArguments());
+        assertTrue(summary.getResponse().contains("另有 8 次来自多个用户名和 IP"), summary.getResponse());
+        // 第一次溢出的失败仍按原样立即记录
+        assertEquals("10.0.0.1", published.get(1).getIpAddress());
+    }
+
+    @Test
+    void zeroWindowPublishesEveryFailure() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getLoginAudit().setAggregationWindow(Duration.ZERO);
+        LoginFailureAudit audit = new LoginFailureAudit(published::add, properties);
+        for (int i = 0; i < 10; i++) {
+            audit.failed("admin", "10.0.0.1", "0x00200010", this::buildLog);
+        }
+        assertEquals(10, published.size());
+    }
+
+    @Test
+    void failuresConcurrentWithFlushAreNotLost() throws Exception {
+        Queue<OperationLog> logs = new ConcurrentLinkedQueue<>();
+        LoginFailureAudit audit = new LoginFailureAudit(logs::add, new ApplicationProperties());
+        int threads = 4;
+        int failures = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < failures; i++) {
+                        audit.failed("admin", "10.0.0.1", "0x00200010", this::buildLog);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            while (!tasks.stream().allMatch(Future::isDone)) {
+                audit.flush();
+            }
+            for (Future<?> task : tasks) {
+                task.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        audit.flush();
+        long recorded = logs.stream().mapToLong(log -> {
+            Matcher matcher = REPEATED.matcher(log.getResponse());
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : 1;
+        }).sum();
+        assertEquals((long) threads * failures, recorded);
+    }
+
+    private OperationLog buildLog() {
+        built.incrementAndGet();
+        OperationLog log = new OperationLog();
+        log.setOperationTime(Instant.now());
+        log.setIpAddress("10.0.0.1");
+        log.setResponse("用户名或密码输入错误");
+        return log;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.inmaytide.orbit.gateway.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoginFailureCounterTests {
+
+    private static final String USERNAME = "admin";
+
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    private ReactiveValueCaches caches;
+
+    private LoginFailureCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        caches = mock(ReactiveValueCaches.class);
+        counter = new LoginFailureCounter(redisTemplate, caches);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void incrementUsesOneScriptCall() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("LOGIN_FAILURE_NUMBERS::admin")), eq(List.of("300000")))).thenReturn(Flux.just(3L));
+        assertEquals(3, counter.increment(USERNAME).block());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void missingCountIsZero() {
+        when(caches.get(LoginFailureCounter.CACHE_NAME, USERNAME)).thenReturn(Mono.empty());
+        assertEquals(0, counter.get(USERNAME).block());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lockedUsernameIsAnsweredLocally() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just((long) LoginFailureCounter.MAXIMUM_FAILURES));
+        counter.increment(USERNAME).block();
+        assertEquals(LoginFailureCounter.MAXIMUM_FAILURES, counter.get(USERNAME).block());
+        verify(caches, times(0)).get(LoginFailureCounter.CACHE_NAME, USERNAME);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resetForgetsLocalLock() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(7L));
+        when(caches.delete(LoginFailureCounter.CACHE_NAME, USERNAME)).thenReturn(Mono.just(true));
+        when(caches.get(LoginFailureCounter.CACHE_NAME, USERNAME)).thenReturn(Mono.empty());
+        counter.increment(USERNAME).block();
+        counter.reset(USERNAME).block();
+        assertEquals(0, counter.get(USERNAME).block());
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.inmaytide.orbit.gateway.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MicroBatcherTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    private final Function<List<String>, Mono<List<String>>> upperCase = keys -> {
+        batches.add(keys);
+        List<String> values = new ArrayList<>(keys.size());
+        keys.forEach(key -> values.add(key.startsWith("missing") ? null : key.toUpperCase()));
+        return Mono.just(values);
+    };
+
+    @Test
+    void concurrentLoadsShareOneBatch() {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>("test", upperCase, true, 10, Duration.ofMillis(20), meterRegistry);
+        List<String> values = Flux.merge(batcher.load("a"), batcher.load("b"), batcher.load("c")).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("A", "B", "C"), values);
+        assertEquals(List.of(List.of("a", "b", "c")), batches);
+        assertEquals(3, meterRegistry.get("gateway.redis.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void fullBatchIsLoadedWithoutWaiting() {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>("test", upperCase, true, 2, Duration.ofSeconds(30), meterRegistry);
+        List<String> values = Flux.merge(batcher.load("a"), batcher.load("b")).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("A", "B"), values);
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void missingValueCompletesEmpty() {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>("test", upperCase, true, 2, Duration.ofMillis(20), meterRegistry);
+        Mono<String> missing = batcher.load("missing").cache();
+        Mono<String> found = batcher.load("a").cache();
+        missing.subscribe();
+        assertEquals("A", found.block(Duration.ofSeconds(5)));
+        assertNull(missing.block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void failureIsDeliveredToEveryCaller() {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>("test", keys -> Mono.error(new IllegalStateException("redis is down")), true, 3, Duration.ofMillis(20), meterRegistry);
+        Mono<String> first = batcher.load("a").cache();
+        Mono<String> second = batcher.load("b").cache();
+        first.subscribe(value -> {}, e -> {});
+        assertThrows(IllegalStateException.class, () -> second.block(Duration.ofSeconds(5)));
+        assertThrows(IllegalStateException.class, () -> first.block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void cancelledCallerDoesNotAffectOthers() {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>("test", upperCase, true, 10, Duration.ofMillis(20), meterRegistry);
+        Disposable cancelled = batcher.load("a").subscribe();
+        Mono<String> other = batcher.load("b");
+        cancelled.dispose();
+        assertEquals("B", other.block(Duration.ofSeconds(5)));
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void disabledBatcherLoadsEachKey() {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>("test", upperCase, false, 10, Duration.ofMillis(20), meterRegistry);
+        assertEquals(Arrays.asList("A", "B"), Flux.concat(batcher.load("a"), batcher.load("b")).collectList().block(Duration.ofSeconds(5)));
+        assertEquals(List.of(List.of("a"), List.of("b")), batches);
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.domain.Oauth2Token;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProactiveTokenRenewalSchedulerTests {
+
+    private TokenRenewalCoordinator coordinator;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ProactiveTokenRenewalScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        coordinator = mock(TokenRenewalCoordinator.class);
+        when(coordinator.renew(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(mock(Oauth2Token.class)));
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties properties = new ApplicationProperties();
+        ApplicationProperties.Proactive proactive = properties.getTokenRenewal().getProactive();
+        proactive.setEnabled(true);
+        proactive.setJitter(Duration.ZERO);
+        proactive.setRate(2);
+        scheduler = new ProactiveTokenRenewalScheduler(coordinator, properties, meterRegistry);
+    }
+
+    @Test
+    void tokensAreRenewedInDueOrderWithinBudget() {
+        scheduler.track("later", "refresh-later", 50);
+        scheduler.track("earliest", "refresh-earliest", 1);
+        scheduler.track("earlier", "refresh-earlier", 20);
+
+        scheduler.renewDue().block(Duration.ofSeconds(5));
+        InOrder order = inOrder(coordinator);
+        order.verify(coordinator).renew(eq("earliest"), eq("refresh-earliest"), any(Duration.class));
+        order.verify(coordinator).renew(eq("earlier"), eq("refresh-earlier"), any(Duration.class));
+        verify(coordinator, never()).renew(eq("later"), anyString(), any(Duration.class));
+
+        scheduler.renewDue().block(Duration.ofSeconds(5));
+        verify(coordinator).renew(eq("later"), eq("refresh-later"), any(Duration.class));
+        assertEquals(3, meterRegistry.get("gateway.token-renewal.proactive").tag("result", "renewed").counter().count());
+    }
+
+    @Test
+    void tokensAreNotRenewedBeforeDue() {
+        scheduler.track("access-token", "refresh-token", 3600);
+        scheduler.renewDue().block(Duration.ofSeconds(5));
+        verify(coordinator, never()).renew(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void renewedTokenIsNotRenewedAgain() {
+        scheduler.track("access-token", "refresh-token", 1);
+        scheduler.renewDue().block(Duration.ofSeconds(5));
+        // 客户端继续携带旧 access_token 请求
+        scheduler.track("access-token", "refresh-token", 1);
+        scheduler.renewDue().block(Duration.ofSeconds(5));
+        verify(coordinator, times(1)).renew(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void renewalResultOutlivesPreviousAccessToken() {
+        scheduler.track("access-token", "refresh-token", 30);
+        scheduler.renewDue().block(Duration.ofSeconds(5));
+        ArgumentCaptor<Duration> retention = ArgumentCaptor.forClass(Duration.class);
+        verify(coordinator).renew(eq("access-token"), eq("refresh-token"), retention.capture());
+        assertTrue(retention.getValue().compareTo(Duration.ofSeconds(80)) > 0, retention.getValue().toString());
+    }
+
+    @Test
+    void failedRenewalDoesNotStopOthers() {
+        when(coordinator.renew(eq("failing"), anyString(), any(Duration.class))).thenReturn(Mono.error(new IllegalStateException("refresh token was revoked")));
+        scheduler.track("failing", "refresh-failing", 1);
+        scheduler.track("access-token", "refresh-token", 2);
+        scheduler.renewDue().block(Duration.ofSeconds(5));
+        verify(coordinator).renew(eq("access-token"), eq("refresh-token"), any(Duration.class));
+        assertEquals(1, meterRegistry.get("gateway.token-renewal.proactive").tag("result", "failed").counter().count());
+        assertEquals(1, meterRegistry.get("gateway.token-renewal.proactive").tag("result", "renewed").counter().count());
+    }
+
+}
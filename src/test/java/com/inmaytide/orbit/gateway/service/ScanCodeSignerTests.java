@@ -0,0 +1,116 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.domain.ScanCodeCredentials;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanCodeSignerTests {
+
+    private static final String OLD_KEY = "0123456789abcdef0123456789abcdef";
+
+    private static final String NEW_KEY = "fedcba9876543210fedcba9876543210";
+
+    @Test
+    void signedContentIsVerified() {
+        ScanCodeSigner signer = signer(Map.of("k1", OLD_KEY), null);
+        Instant expiry = Instant.now().plusSeconds(600).truncatedTo(ChronoUnit.MILLIS);
+        String content = signer.sign("gateway-1~8f2a1c", "AB12CD34", expiry);
+        assertTrue(ScanCodeSigner.isSigned(content));
+
+        ScanCodeCredentials credentials = credentials(content);
+        signer.verify(credentials);
+        assertEquals("gateway-1~8f2a1c", credentials.getSessionId());
+        assertEquals("AB12CD34", credentials.getCode());
+        assertEquals(expiry, credentials.getExpiry());
+        assertFalse(credentials.isExpired());
+    }
+
+    @Test
+    void tamperedContentIsRejected() {
+        ScanCodeSigner signer = signer(Map.of("k1", OLD_KEY), null);
+        String content = signer.sign("gateway-1~8f2a1c", "AB12CD34", Instant.now().plusSeconds(600));
+        String extended = content.replaceFirst("\\.(\\d+)\\.", "." + Instant.now().plusSeconds(3600).toEpochMilli() + ".");
+        assertThrows(IllegalArgumentException.class, () -> signer.verify(credentials(extended)));
+        assertThrows(IllegalArgumentException.class, () -> signer.verify(credentials(content.replace("AB12CD34", "AB12CD35"))));
+        assertThrows(IllegalArgumentException.class, () -> signer.verify(credentials(content.substring(0, content.lastIndexOf('.')))));
+        assertThrows(IllegalArgumentException.class, () -> signer(Map.of("k1", NEW_KEY), null).verify(credentials(content)));
+    }
+
+    @Test
+    void contentSignedWithRotatedKeyIsStillAccepted() {
+        String content = signer(Map.of("k1", OLD_KEY), null).sign("gateway-1~8f2a1c", "AB12CD34", Instant.now().plusSeconds(600));
+        ScanCodeSigner rotated = signer(Map.of("k1", OLD_KEY, "k2", NEW_KEY), "k2");
+        assertTrue(rotated.sign("gateway-1~8f2a1c", "AB12CD34", Instant.now()).startsWith("S1.k2."));
+        ScanCodeCredentials credentials = credentials(content);
+        rotated.verify(credentials);
+        assertEquals("AB12CD34", credentials.getCode());
+        // 旧密钥删除后不再接受
+        assertThrows(IllegalArgumentException.class, () -> signer(Map.of("k2", NEW_KEY), null).verify(credentials(content)));
+    }
+
+    @Test
+    void keysAreRotatedOnRefresh() {
+        ApplicationProperties properties = properties(Map.of("k1", OLD_KEY), null);
+        ScanCodeSigner signer = new ScanCodeSigner(properties);
+        String content = signer.sign("gateway-1~8f2a1c", "AB12CD34", Instant.now().plusSeconds(600));
+
+        properties.getScanCode().setSigningKeys(Map.of("k1", OLD_KEY, "k2", NEW_KEY));
+        properties.getScanCode().setSigningKeyId("k2");
+        signer.refresh();
+        assertTrue(signer.sign("gateway-1~8f2a1c", "AB12CD34", Instant.now()).startsWith("S1.k2."));
+        signer.verify(credentials(content));
+
+        // 刷新后的配置不正确时继续使用原来的密钥
+        properties.getScanCode().setSigningKeyId("k3");
+        signer.refresh();
+        assertTrue(signer.sign("gateway-1~8f2a1c", "AB12CD34", Instant.now()).startsWith("S1.k2."));
+
+        properties.getScanCode().setSigningKeys(Map.of("k2", NEW_KEY));
+        properties.getScanCode().setSigningKeyId(null);
+        signer.refresh();
+        assertThrows(IllegalArgumentException.class, () -> signer.verify(credentials(content)));
+    }
+
+    @Test
+    void legacyContentIsLeftToRsa() {
+        ScanCodeSigner signer = signer(Map.of(), null);
+        assertFalse(signer.isEnabled());
+        assertFalse(ScanCodeSigner.isSigned("aGVsbG8gd29ybGQ="));
+        signer.verify(credentials("aGVsbG8gd29ybGQ="));
+    }
+
+    @Test
+    void invalidConfigurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> signer(Map.of("k1", "short"), null));
+        assertThrows(IllegalArgumentException.class, () -> signer(Map.of("k.1", OLD_KEY), null));
+        assertThrows(IllegalArgumentException.class, () -> signer(Map.of("k1", OLD_KEY, "k2", NEW_KEY), null));
+        assertThrows(IllegalArgumentException.class, () -> signer(Map.of("k1", OLD_KEY), "k2"));
+    }
+
+    private static ScanCodeSigner signer(Map<String, String> keys, String keyId) {
+        return new ScanCodeSigner(properties(keys, keyId));
+    }
+
+    private static ApplicationProperties properties(Map<String, String> keys, String keyId) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getScanCode().setSigningKeys(keys);
+        properties.getScanCode().setSigningKeyId(keyId);
+        return properties;
+    }
+
+    private static ScanCodeCredentials credentials(String content) {
+        ScanCodeCredentials credentials = new ScanCodeCredentials();
+        credentials.setContent(content);
+        return credentials;
+    }
+
+}
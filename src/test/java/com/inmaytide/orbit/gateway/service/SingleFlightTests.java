@@ -0,0 +1,64 @@
+package com.inmaytide.orbit.gateway.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTests {
+
+    @Test
+    void concurrentCallsShareOneExecution() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+        CompletableFuture<List<String>> values = Flux.range(0, 20)
+                .flatMap(i -> flight.execute("key", () -> {
+                    executions.incrementAndGet();
+                    return result.asMono();
+                }))
+                .collectList()
+                .toFuture();
+        assertEquals(1, flight.inFlight());
+        result.tryEmitValue("value");
+        assertEquals(20, values.join().size());
+        assertEquals(1, executions.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void finishedCallIsExecutedAgain() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        assertEquals(1, flight.execute("key", () -> Mono.fromSupplier(executions::incrementAndGet)).block());
+        assertEquals(2, flight.execute("key", () -> Mono.fromSupplier(executions::incrementAndGet)).block());
+    }
+
+    @Test
+    void failedCallIsReleased() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        Mono<String> failed = flight.execute("key", () -> Mono.error(new IllegalStateException()));
+        assertThrows(IllegalStateException.class, () -> failed.block(Duration.ofSeconds(1)));
+        assertEquals(0, flight.inFlight());
+        assertEquals("value", flight.execute("key", () -> Mono.just("value")).block(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void cancelledSubscriberDoesNotAbortCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        Sinks.One<String> result = Sinks.one();
+        flight.execute("key", result::asMono).subscribe().dispose();
+        CompletableFuture<String> waiting = flight.execute("key", () -> Mono.just("other")).toFuture();
+        result.tryEmitValue("value");
+        assertEquals("value", waiting.join());
+    }
+
+}
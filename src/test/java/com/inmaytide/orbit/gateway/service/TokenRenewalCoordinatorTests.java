@@ -0,0 +1,242 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.commons.domain.Oauth2Token;
+import com.inmaytide.orbit.commons.service.uaa.AuthorizationService;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRenewalCoordinatorTests {
+
+    private static final String ACCESS_TOKEN = "expiring-access-token";
+
+    private static final String REFRESH_TOKEN = "refresh-token";
+
+    private static final String RENEWED_ACCESS_TOKEN = "renewed-access-token";
+
+    private ReactiveValueCaches caches;
+
+    private AccessTokenExpiryCache expiryCache;
+
+    private AuthorizationService authorizationService;
+
+    private TokenRenewalCoordinator coordinator;
+
+    private Oauth2Token renewed;
+
+    @BeforeEach
+    void setUp() {
+        caches = mock(ReactiveValueCaches.class);
+        expiryCache = mock(AccessTokenExpiryCache.class);
+        authorizationService = mock(AuthorizationService.class);
+        when(caches.put(anyString(), anyString(), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(Mono.just(true));
+        when(expiryCache.invalidate(anyString())).thenReturn(Mono.empty());
+
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getTokenRenewal().setDistributed(false);
+        coordinator = new TokenRenewalCoordinator(mock(ReactiveStringRedisTemplate.class), caches, expiryCache, mock(ReactiveRedisMessageListenerContainer.class), new ObjectMapper(), properties, authorizationService);
+
+        renewed = mock(Oauth2Token.class);
+        when(renewed.getAccessToken()).thenReturn(RENEWED_ACCESS_TOKEN);
+    }
+
+    @Test
+    void remoteRefreshDoesNotRunOnCallerThread() {
+        AtomicReference<String> refreshThread = new AtomicReference<>();
+        when(authorizationService.refreshToken(REFRESH_TOKEN)).thenAnswer(invocation -> {
+            refreshThread.set(Thread.currentThread().getName());
+            return renewed;
+        });
+        assertEquals(renewed, coordinator.renew(ACCESS_TOKEN, REFRESH_TOKEN).block(Duration.ofSeconds(5)));
+        assertTrue(refreshThread.get().startsWith("boundedElastic"), refreshThread.get());
+        verify(caches).put(Constants.CacheNames.TOKEN_TEMPORARY_STORE, ACCESS_TOKEN, RENEWED_ACCESS_TOKEN, TokenRenewalCoordinator.TOKEN_TEMPORARY_STORE_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void concurrentRenewalsShareOneRemoteRefresh() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(authorizationService.refreshToken(REFRESH_TOKEN)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return renewed;
+        });
+        List<Mono<Oauth2Token>> renewals = IntStream.range(0, 20).mapToObj(i -> coordinator.renew(ACCESS_TOKEN, REFRESH_TOKEN)).toList();
+        CompletableFuture<List<Oauth2Token>> completed = Flux.merge(renewals).collectList().toFuture();
+        release.countDown();
+        List<Oauth2Token> tokens = completed.get(5, TimeUnit.SECONDS);
+        assertEquals(20, tokens.size());
+        tokens.forEach(token -> assertEquals(renewed, token));
+        verify(authorizationService, times(1)).refreshToken(REFRESH_TOKEN);
+    }
+
+    @Test
+    void leaderStoresResultWithoutUnchangedRefreshTokenAndPublishesOnlyPreviousToken() {
+        SharedRedis redis = new SharedRedis();
+        AuthorizationService leaderService = mock(AuthorizationService.class);
+        when(leaderService.refreshToken(REFRESH_TOKEN)).thenReturn(token(RENEWED_ACCESS_TOKEN, REFRESH_TOKEN));
+        TokenRenewalCoordinator leader = distributed(redis, leaderService);
+
+        assertEquals(RENEWED_ACCESS_TOKEN, leader.renew(ACCESS_TOKEN, REFRESH_TOKEN).block(Duration.ofSeconds(5)).getAccessToken());
+        String stored = redis.values.get(ReactiveValueCaches.getCacheKey(TokenRenewalCoordinator.CACHE_NAME, ACCESS_TOKEN));
+        assertTrue(stored.contains(RENEWED_ACCESS_TOKEN), stored);
+        assertFalse(stored.contains(REFRESH_TOKEN), stored);
+        assertEquals(1, redis.published.size());
+        assertTrue(redis.published.get(0).contains(ACCESS_TOKEN));
+        assertFalse(redis.published.get(0).contains(RENEWED_ACCESS_TOKEN), redis.published.get(0));
+        assertFalse(redis.published.get(0).contains(REFRESH_TOKEN), redis.published.get(0));
+
+        Oauth2Token found = leader.lookup(ACCESS_TOKEN, REFRESH_TOKEN).block(Duration.ofSeconds(5));
+        assertEquals(RENEWED_ACCESS_TOKEN, found.getAccessToken());
+        assertEquals(REFRESH_TOKEN, found.getRefreshToken());
+        assertNull(leader.lookup(ACCESS_TOKEN, null).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void rotatedRefreshTokenIsKeptInStoredResult() {
+        SharedRedis redis = new SharedRedis();
+        AuthorizationService leaderService = mock(AuthorizationService.class);
+        when(leaderService.refreshToken(REFRESH_TOKEN)).thenReturn(token(RENEWED_ACCESS_TOKEN, "rotated-refresh-token"));
+        TokenRenewalCoordinator leader = distributed(redis, leaderService);
+
+        leader.renew(ACCESS_TOKEN, REFRESH_TOKEN).block(Duration.ofSeconds(5));
+        assertEquals("rotated-refresh-token", leader.lookup(ACCESS_TOKEN, REFRESH_TOKEN).block(Duration.ofSeconds(5)).getRefreshToken());
+        // 只持有旧 access_token 或其他 refresh_token 的请求读取不到轮换后的 refresh_token
+        assertNull(leader.lookup(ACCESS_TOKEN, null).block(Duration.ofSeconds(5)));
+        assertNull(leader.lookup(ACCESS_TOKEN, "other-refresh-token").block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void followerReadsLeaderResultAfterNotification() throws Exception {
+        SharedRedis redis = new SharedRedis();
+        CountDownLatch release = new CountDownLatch(1);
+        AuthorizationService leaderService = mock(AuthorizationService.class);
+        when(leaderService.refreshToken(REFRESH_TOKEN)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return token(RENEWED_ACCESS_TOKEN, REFRESH_TOKEN);
+        });
+        AuthorizationService followerService = mock(AuthorizationService.class);
+        TokenRenewalCoordinator leader = distributed(redis, leaderService);
+        TokenRenewalCoordinator follower = distributed(redis, followerService);
+
+        CompletableFuture<Oauth2Token> led = leader.renew(ACCESS_TOKEN, REFRESH_TOKEN).toFuture();
+        CompletableFuture<Oauth2Token> followed = follower.renew(ACCESS_TOKEN, REFRESH_TOKEN).toFuture();
+        assertFalse(followed.isDone());
+        release.countDown();
+
+        assertEquals(RENEWED_ACCESS_TOKEN, led.get(5, TimeUnit.SECONDS).getAccessToken());
+        Oauth2Token token = followed.get(5, TimeUnit.SECONDS);
+        assertEquals(RENEWED_ACCESS_TOKEN, token.getAccessToken());
+        assertEquals(REFRESH_TOKEN, token.getRefreshToken());
+        verify(followerService, never()).refreshToken(anyString());
+    }
+
+    @Test
+    void followerFailsWhenLeaderFails() throws Exception {
+        SharedRedis redis = new SharedRedis();
+        CountDownLatch release = new CountDownLatch(1);
+        AuthorizationService leaderService = mock(AuthorizationService.class);
+        when(leaderService.refreshToken(REFRESH_TOKEN)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("refresh token was revoked");
+        });
+        TokenRenewalCoordinator leader = distributed(redis, leaderService);
+        TokenRenewalCoordinator follower = distributed(redis, mock(AuthorizationService.class));
+
+        CompletableFuture<Oauth2Token> led = leader.renew(ACCESS_TOKEN, REFRESH_TOKEN).toFuture();
+        CompletableFuture<Oauth2Token> followed = follower.renew(ACCESS_TOKEN, REFRESH_TOKEN).toFuture();
+        release.countDown();
+
+        assertThrows(ExecutionException.class, () -> led.get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> followed.get(5, TimeUnit.SECONDS));
+        assertFalse(redis.values.containsKey(ReactiveValueCaches.getCacheKey(TokenRenewalCoordinator.CACHE_NAME, ACCESS_TOKEN)));
+    }
+
+    private TokenRenewalCoordinator distributed(SharedRedis redis, AuthorizationService service) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getTokenRenewal().setDistributed(true);
+        TokenRenewalCoordinator coordinator = new TokenRenewalCoordinator(redis.template, caches, expiryCache, redis.listenerContainer, new ObjectMapper(), properties, service);
+        coordinator.subscribe();
+        return coordinator;
+    }
+
+    private static Oauth2Token token(String accessToken, String refreshToken) {
+        Oauth2Token token = new Oauth2Token();
+        token.setAccessToken(accessToken);
+        token.setRefreshToken(refreshToken);
+        return token;
+    }
+
+    /**
+     * 多个节点共享的 Redis, 只实现协调刷新用到的命令
+     */
+    @SuppressWarnings("unchecked")
+    private static class SharedRedis {
+
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+
+        private final List<String> published = new CopyOnWriteArrayList<>();
+
+        private final Sinks.Many<ReactiveSubscription.Message<String, String>> messages = Sinks.many().multicast().directBestEffort();
+
+        private final ReactiveStringRedisTemplate template = mock(ReactiveStringRedisTemplate.class);
+
+        private final ReactiveRedisMessageListenerContainer listenerContainer = mock(ReactiveRedisMessageListenerContainer.class);
+
+        SharedRedis() {
+            ReactiveValueOperations<String, String> operations = mock(ReactiveValueOperations.class);
+            when(template.opsForValue()).thenReturn(operations);
+            when(operations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                    .thenAnswer(invocation -> Mono.fromCallable(() -> values.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null));
+            when(operations.set(anyString(), anyString(), any(Duration.class)))
+                    .thenAnswer(invocation -> Mono.fromCallable(() -> {
+                        values.put(invocation.getArgument(0), invocation.getArgument(1));
+                        return true;
+                    }));
+            when(operations.get(anyString())).thenAnswer(invocation -> Mono.fromCallable(() -> values.get(invocation.<String>getArgument(0))));
+            when(template.delete(anyString())).thenAnswer(invocation -> Mono.fromCallable(() -> values.remove(invocation.<String>getArgument(0)) == null ? 0L : 1L));
+            when(template.convertAndSend(anyString(), anyString())).thenAnswer(invocation -> Mono.fromCallable(() -> {
+                published.add(invocation.getArgument(1));
+                messages.emitNext(new ReactiveSubscription.ChannelMessage<>(invocation.getArgument(0), invocation.getArgument(1)), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+                return 1L;
+            }));
+            when(listenerContainer.receive(any(ChannelTopic.class))).thenReturn(messages.asFlux());
+        }
+    }
+
+}
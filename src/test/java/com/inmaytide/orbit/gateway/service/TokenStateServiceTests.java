@@ -0,0 +1,174 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.commons.constants.Constants;
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import com.inmaytide.orbit.gateway.domain.TokenState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenStateServiceTests {
+
+    private static final String ACCESS_TOKEN = "access-token";
+
+    private static final String REFRESH_TOKEN = "refresh-token";
+
+    private static final long WINDOW = 30;
+
+    private final ApplicationProperties properties = new ApplicationProperties();
+
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    private AccessTokenExpiryCache expiryCache;
+
+    private DisabledRefreshTokenRegistry disabledRefreshTokens;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        expiryCache = mock(AccessTokenExpiryCache.class);
+        disabledRefreshTokens = mock(DisabledRefreshTokenRegistry.class);
+        when(disabledRefreshTokens.mightBeDisabled(anyString())).thenReturn(true);
+        when(expiryCache.getLocalExpire(anyString(), anyLong())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void redisIsSkippedWhenLocalCachesAnswer() {
+        when(disabledRefreshTokens.mightBeDisabled(REFRESH_TOKEN)).thenReturn(false);
+        when(expiryCache.getLocalExpire(ACCESS_TOKEN, WINDOW)).thenReturn(Optional.of(600L));
+        TokenState state = service().resolve(ACCESS_TOKEN, REFRESH_TOKEN, WINDOW).block(Duration.ofSeconds(5));
+        assertFalse(state.isDisabled());
+        assertEquals(600, state.getExpire());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void requestWithoutTokensIsResolvedLocally() {
+        assertSame(TokenState.NONE, service().resolve(null, null, WINDOW).block(Duration.ofSeconds(5)));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void onlyChecksThatCannotBeAnsweredLocallyAreSentToScript() {
+        when(disabledRefreshTokens.mightBeDisabled(REFRESH_TOKEN)).thenReturn(false);
+        givenScriptResult(0L, 120L, null);
+        service().resolve(ACCESS_TOKEN, REFRESH_TOKEN, WINDOW).block(Duration.ofSeconds(5));
+
+        ArgumentCaptor<List<String>> keys = captor();
+        ArgumentCaptor<List<String>> args = captor();
+        verify(redisTemplate).execute(any(RedisScript.class), keys.capture(), args.capture());
+        assertEquals(List.of(
+                ReactiveValueCaches.getCacheKey(Constants.CacheNames.DISABLED_REFRESH_TOKEN, REFRESH_TOKEN),
+                ReactiveValueCaches.getCacheKey(Constants.CacheNames.ACCESS_TOKEN_STORE, ACCESS_TOKEN),
+                ReactiveValueCaches.getCacheKey(Constants.CacheNames.TOKEN_TEMPORARY_STORE, ACCESS_TOKEN)), keys.getValue());
+        assertEquals(List.of("0", "1", "30"), args.getValue());
+    }
+
+    @Test
+    void scriptResultIsMappedToTokenState() {
+        givenScriptResult(1L, 12L, "renewed-access-token");
+        TokenState state = service().resolve(ACCESS_TOKEN, REFRESH_TOKEN, WINDOW).block(Duration.ofSeconds(5));
+        assertTrue(state.isDisabled());
+        assertEquals(12, state.getExpire());
+        assertEquals("renewed-access-token", state.getRenewedAccessToken());
+        verify(expiryCache).record(ACCESS_TOKEN, 12);
+    }
+
+    @Test
+    void missingAccessTokenIsMappedToZeroExpire() {
+        givenScriptResult(0L, -2L, null);
+        TokenState state = service().resolve(ACCESS_TOKEN, REFRESH_TOKEN, WINDOW).block(Duration.ofSeconds(5));
+        assertFalse(state.isDisabled());
+        assertEquals(0, state.getExpire());
+        assertFalse(state.isAccessTokenValid());
+        assertNull(state.getRenewedAccessToken());
+    }
+
+    @Test
+    void accessTokenWithoutExpiryIsValid() {
+        givenScriptResult(0L, -1L, null);
+        TokenState state = service().resolve(ACCESS_TOKEN, REFRESH_TOKEN, WINDOW).block(Duration.ofSeconds(5));
+        assertEquals(TokenState.NEVER_EXPIRES, state.getExpire());
+        assertTrue(state.isAccessTokenValid());
+    }
+
+    @Test
+    void accessTokenCheckBypassesLocalCacheUnlessRevocationAware() {
+        when(expiryCache.getLocalExpire(ACCESS_TOKEN, 0)).thenReturn(Optional.of(600L));
+        givenScriptResult(0L, -2L, null);
+        TokenState state = service().resolveAccessToken(ACCESS_TOKEN).block(Duration.ofSeconds(5));
+        assertFalse(state.isAccessTokenValid());
+        verify(expiryCache, never()).getLocalExpire(anyString(), anyLong());
+
+        when(expiryCache.isRevocationAware()).thenReturn(true);
+        assertTrue(service().resolveAccessToken(ACCESS_TOKEN).block(Duration.ofSeconds(5)).isAccessTokenValid());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void locallyKnownExpireIsKeptWhenOnlyDisabledCheckRuns() {
+        when(expiryCache.getLocalExpire(ACCESS_TOKEN, WINDOW)).thenReturn(Optional.of(600L));
+        givenScriptResult(1L, -2L, null);
+        TokenState state = service().resolve(ACCESS_TOKEN, REFRESH_TOKEN, WINDOW).block(Duration.ofSeconds(5));
+        assertTrue(state.isDisabled());
+        assertEquals(600, state.getExpire());
+        verify(expiryCache, never()).record(anyString(), anyLong());
+    }
+
+    @Test
+    void batchedResultsAreMappedByPosition() {
+        properties.getRedisBatching().setEnabled(true);
+        properties.getRedisBatching().setMaxBatchSize(2);
+        givenScriptResult(0L, 300L, null, 1L, 5L, "renewed-second");
+        TokenStateService service = service();
+        List<TokenState> states = Flux.merge(service.resolve("first", "refresh-first", WINDOW), service.resolve("second", "refresh-second", WINDOW))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        assertEquals(2, states.size());
+        TokenState first = states.stream().filter(state -> state.getExpire() == 300).findFirst().orElseThrow();
+        TokenState second = states.stream().filter(state -> state.getExpire() == 5).findFirst().orElseThrow();
+        assertFalse(first.isDisabled());
+        assertTrue(second.isDisabled());
+        assertEquals("renewed-second", second.getRenewedAccessToken());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenScriptResult(Object... values) {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(Arrays.asList(values)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<String>> captor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private TokenStateService service() {
+        return new TokenStateService(redisTemplate, expiryCache, disabledRefreshTokens, properties, new SimpleMeterRegistry());
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.inmaytide.orbit.gateway.service;
+
+import com.inmaytide.orbit.gateway.configuration.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebSocketSessionRegistryTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void sessionsBeyondMaximumAreRejected() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getScanCode().setMaximumSessions(1);
+        WebSocketSessionRegistry registry = new WebSocketSessionRegistry(properties, meterRegistry);
+        WebSocketSender sender = registry.register(session("a"));
+        assertNotNull(sender);
+        assertNull(registry.register(session("b")));
+        assertSame(sender, registry.get("a"));
+        assertEquals(1, meterRegistry.get("gateway.websocket.sessions").gauge().value());
+        assertEquals(1, closed("rejected"));
+    }
+
+    @Test
+    void overflowClosesSession() {
+        WebSocketSessionRegistry registry = registry(ApplicationProperties.ScanCode.OverflowPolicy.CLOSE);
+        WebSocketSession session = session("a");
+        WebSocketSender sender = registry.register(session);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(sender.send("message"));
+        }
+        assertFalse(sender.send("message"));
+        assertNull(registry.get("a"));
+        assertEquals(1, closed("overflow"));
+        verify(session).close(CloseStatus.POLICY_VIOLATION);
+    }
+
+    @Test
+    void overflowDropsMessage() {
+        WebSocketSessionRegistry registry = registry(ApplicationProperties.ScanCode.OverflowPolicy.DROP);
+        WebSocketSession session = session("a");
+        WebSocketSender sender = registry.register(session);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(sender.send("message"));
+        }
+        assertFalse(sender.send("message"));
+        assertSame(sender, registry.get("a"));
+        assertEquals(1, meterRegistry.get("gateway.websocket.dropped").counter().count());
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void bufferedBytesAreReleasedWhenWritten() {
+        WebSocketSessionRegistry registry = registry(ApplicationProperties.ScanCode.OverflowPolicy.CLOSE);
+        WebSocketSender sender = registry.register(session("a"));
+        sender.send("0123456789");
+        assertEquals(10, meterRegistry.get("gateway.websocket.buffered").gauge().value());
+        List<WebSocketMessage> written = sender.outbound().take(1).collectList().block(Duration.ofSeconds(1));
+        assertEquals(1, written.size());
+        assertEquals(0, meterRegistry.get("gateway.websocket.buffered").gauge().value());
+    }
+
+    @Test
+    void sweepPingsLiveSessionsAndClosesUnresponsiveOnes() {
+        WebSocketSessionRegistry registry = registry(ApplicationProperties.ScanCode.OverflowPolicy.CLOSE);
+        WebSocketSession session = session("a");
+        WebSocketSender sender = registry.register(session);
+        long registered = System.nanoTime();
+
+        // 心跳间隔默认 30 秒, 两个间隔内没有收到任何帧才关闭
+        registry.sweep(registered + Duration.ofSeconds(50).toNanos());
+        assertSame(sender, registry.get("a"));
+        verify(session).pingMessage(any());
+
+        registry.sweep(registered + Duration.ofSeconds(70).toNanos());
+        assertNull(registry.get("a"));
+        assertEquals(1, closed("heartbeat"));
+        verify(session).close(CloseStatus.GOING_AWAY);
+    }
+
+    @Test
+    void idleSessionsAreClosed() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getScanCode().setHeartbeatInterval(Duration.ofMinutes(30));
+        properties.getScanCode().setIdleTimeout(Duration.ofMinutes(10));
+        WebSocketSessionRegistry registry = new WebSocketSessionRegistry(properties, meterRegistry);
+        WebSocketSession session = session("a");
+        registry.register(session);
+        registry.sweep(System.nanoTime() + Duration.ofMinutes(11).toNanos());
+        assertNull(registry.get("a"));
+        assertEquals(1, closed("idle"));
+        verify(session).close(CloseStatus.NORMAL);
+    }
+
+    @Test
+    void codeRequestsAreThrottledPerSession() {
+        WebSocketSessionRegistry registry = registry(ApplicationProperties.ScanCode.OverflowPolicy.CLOSE);
+        WebSocketSender a = registry.register(session("a"));
+        WebSocketSender b = registry.register(session("b"));
+        assertTrue(registry.tryIssueCode(a));
+        assertFalse(registry.tryIssueCode(a));
+        assertTrue(registry.tryIssueCode(b));
+        assertEquals(1, meterRegistry.get("gateway.websocket.code.throttled").counter().count());
+    }
+
+    private WebSocketSessionRegistry registry(ApplicationProperties.ScanCode.OverflowPolicy policy) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getScanCode().setOutboundBuffer(8);
+        properties.getScanCode().setOverflowPolicy(policy);
+        return new WebSocketSessionRegistry(properties, meterRegistry);
+    }
+
+    private double closed(String reason) {
+        return meterRegistry.get(WebSocketSessionRegistry.CLOSED_METER).tag("reason", reason).counter().count();
+    }
+
+    private static WebSocketSession session(String id) {
+        DataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.textMessage(anyString())).thenAnswer(invocation -> {
+            byte[] bytes = invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8);
+            return new WebSocketMessage(WebSocketMessage.Type.TEXT, factory.wrap(bytes));
+        });
+        when(session.pingMessage(any())).thenAnswer(invocation -> {
+            Function<DataBufferFactory, DataBuffer> payload = invocation.getArgument(0);
+            return new WebSocketMessage(WebSocketMessage.Type.PING, payload.apply(factory));
+        });
+        when(session.close(any())).thenReturn(Mono.empty());
+        return session;
+    }
+
+}